@@ -56,7 +56,12 @@ public class FixedWindowRecord extends AbstractTokenRecord {
 
     @Override
     protected long getNanosToConsumptionImpl(RefillPolicy policy, long tokenConsumption) {
-        return Duration.between(Instant.now(), windowEnd).toNanos();
+        return getNanosToConsumptionImpl(policy, tokenConsumption, Instant.now());
+    }
+
+    @Override
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long tokenConsumption, Instant timestamp) {
+        return Duration.between(timestamp, windowEnd).toNanos();
     }
 
     @Override
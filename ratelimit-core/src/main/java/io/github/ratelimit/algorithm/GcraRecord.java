@@ -0,0 +1,137 @@
+package io.github.ratelimit.algorithm;
+
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.AbstractRecord;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Instant;
+
+/**
+ * Generic cell rate algorithm record. The only persistent state is the theoretical arrival time (TAT)
+ * in epoch nanos, so the serialized form is a single long. Token count is derived from the TAT and the
+ * policy emission interval on every updateWith and is not serialized.
+ */
+public class GcraRecord extends AbstractRecord {
+
+    private static final long serialVersionUID = -2300911545283940722L;
+
+    private long theoreticalArrivalNanos;
+
+    private transient long lastUpdateNanos;
+    private transient long emissionIntervalNanos;
+    private transient long tokenCount;
+
+    public GcraRecord() {
+        super();
+    }
+
+    private GcraRecord(long theoreticalArrivalNanos) {
+        this.theoreticalArrivalNanos = theoreticalArrivalNanos;
+    }
+
+    public static GcraRecord from(long tokenCount, RefillPolicy policy) {
+        return GcraRecord.of(tokenCount, policy, Instant.now());
+    }
+
+    public static GcraRecord of(long tokenCount, RefillPolicy policy, Instant timestamp) {
+        long missingTokens = Math.max(0L, policy.getCapacity() - tokenCount);
+        long nowNanos = toEpochNanos(timestamp);
+        GcraRecord record = new GcraRecord(nowNanos + missingTokens * policy.getNanosBetweenRefills());
+        return (GcraRecord) record.updateWith(policy, timestamp);
+    }
+
+    public static GcraRecord withTheoreticalArrival(long theoreticalArrivalNanos) {
+        return new GcraRecord(theoreticalArrivalNanos);
+    }
+
+    public long getTheoreticalArrivalNanos() {
+        return theoreticalArrivalNanos;
+    }
+
+    @Override
+    public RateLimitRecord updateWith(RefillPolicy policy, Instant requestTs) {
+        lastUpdateNanos = toEpochNanos(requestTs);
+        emissionIntervalNanos = policy.getNanosBetweenRefills();
+        int capacity = policy.getCapacity();
+        if (capacity == 0) {
+            tokenCount = 0L;
+            return this;
+        }
+        long burstNanos = policy.getSamplingPeriod().toNanos();
+        long backlogNanos = Math.max(0L, theoreticalArrivalNanos - lastUpdateNanos);
+        long tokens = (burstNanos - backlogNanos) / emissionIntervalNanos;
+        tokenCount = Math.max(0L, Math.min(tokens, capacity));
+        return this;
+    }
+
+    @Override
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    @Override
+    public RateLimitRecord consume(long tokens) {
+        theoreticalArrivalNanos = Math.max(theoreticalArrivalNanos, lastUpdateNanos) + tokens * emissionIntervalNanos;
+        tokenCount -= tokens;
+        return this;
+    }
+
+    @Override
+    public boolean canConsume(long tokens) {
+        return tokenCount >= tokens;
+    }
+
+    @Override
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens) {
+        return getNanosToConsumptionImpl(policy, missingTokens, Instant.now());
+    }
+
+    @Override
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens, Instant timestamp) {
+        long nanosBetweenRefills = policy.getNanosBetweenRefills();
+        if (nanosBetweenRefills == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long neededTokens = tokenCount + missingTokens;
+        if (neededTokens > Long.MAX_VALUE / nanosBetweenRefills) {
+            return Long.MAX_VALUE;
+        }
+        long burstNanos = policy.getSamplingPeriod().toNanos();
+        long conformanceNanos = theoreticalArrivalNanos - burstNanos + neededTokens * nanosBetweenRefills;
+        return Math.max(0L, conformanceNanos - toEpochNanos(timestamp));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s = {tokenCount: %d, theoreticalArrivalNanos: %d}", this.getClass().getSimpleName(),
+                tokenCount, theoreticalArrivalNanos);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(theoreticalArrivalNanos);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        theoreticalArrivalNanos = in.readLong();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GcraRecord)) return false;
+
+        GcraRecord that = (GcraRecord) o;
+
+        return theoreticalArrivalNanos == that.theoreticalArrivalNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (theoreticalArrivalNanos ^ (theoreticalArrivalNanos >>> 32));
+    }
+}
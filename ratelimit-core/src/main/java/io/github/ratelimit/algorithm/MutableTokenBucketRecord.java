@@ -0,0 +1,122 @@
+package io.github.ratelimit.algorithm;
+
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.AbstractTokenRecord;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Instant;
+
+/**
+ * Token bucket record which keeps its state in primitive fields and is updated in place.
+ * Refill and consumption do not allocate, so it is safe to use on the hot path of every request.
+ */
+public class MutableTokenBucketRecord extends AbstractTokenRecord {
+
+    private static final long serialVersionUID = -3206622335434502475L;
+
+    protected long lastTokenDistributedNanos;
+
+    public MutableTokenBucketRecord() {
+        super();
+    }
+
+    public MutableTokenBucketRecord(long tokenCount, long lastTokenDistributedNanos) {
+        super(tokenCount);
+        this.lastTokenDistributedNanos = lastTokenDistributedNanos;
+    }
+
+    public static MutableTokenBucketRecord empty() {
+        return MutableTokenBucketRecord.from(0L);
+    }
+
+    public static MutableTokenBucketRecord from(long tokenCount) {
+        return MutableTokenBucketRecord.of(tokenCount, Instant.now());
+    }
+
+    public static MutableTokenBucketRecord of(long tokenCount, Instant timestamp) {
+        return new MutableTokenBucketRecord(tokenCount, toEpochNanos(timestamp));
+    }
+
+    public long getLastTokenDistributedNanos() {
+        return lastTokenDistributedNanos;
+    }
+
+    @Override
+    public RateLimitRecord updateWith(RefillPolicy policy, Instant requestTs) {
+        long requestNanos = toEpochNanos(requestTs);
+        long numNewTokens = SimpleRefillPolicy.distributeNewTokens(policy, requestNanos - lastTokenDistributedNanos);
+        if (numNewTokens > 0) {
+            long capacity = policy.getCapacity();
+            tokenCount = Math.min(tokenCount + numNewTokens, capacity);
+            lastTokenDistributedNanos = requestNanos;
+        }
+        return this;
+    }
+
+    @Override
+    public RateLimitRecord consume(long numTokens) {
+        tokenCount -= numTokens;
+        return this;
+    }
+
+    @Override
+    public long getNanosToConsumptionImpl(RefillPolicy policy, long tokenConsumption) {
+        return getNanosToConsumptionImpl(policy, tokenConsumption, Instant.now());
+    }
+
+    @Override
+    public long getNanosToConsumptionImpl(RefillPolicy policy, long tokenConsumption, Instant timestamp) {
+        long nanosBetweenRefills = policy.getNanosBetweenRefills();
+        if (nanosBetweenRefills == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long nanosUntilNextToken = lastTokenDistributedNanos + nanosBetweenRefills - toEpochNanos(timestamp);
+        if (tokenConsumption == 1) {
+            return nanosUntilNextToken;
+        }
+        if (tokenConsumption - 1 > Long.MAX_VALUE / nanosBetweenRefills) {
+            return Long.MAX_VALUE;
+        }
+        return saturatedAdd(nanosUntilNextToken, (tokenConsumption - 1) * nanosBetweenRefills);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s = {tokenCount: %d, lastTokenDistributedNanos: %d}", this.getClass().getSimpleName(),
+                tokenCount, lastTokenDistributedNanos);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(tokenCount);
+        out.writeLong(lastTokenDistributedNanos);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        tokenCount = in.readLong();
+        lastTokenDistributedNanos = in.readLong();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MutableTokenBucketRecord)) return false;
+        if (!super.equals(o)) return false;
+
+        MutableTokenBucketRecord that = (MutableTokenBucketRecord) o;
+
+        return lastTokenDistributedNanos == that.lastTokenDistributedNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (int) (lastTokenDistributedNanos ^ (lastTokenDistributedNanos >>> 32));
+        return result;
+    }
+}
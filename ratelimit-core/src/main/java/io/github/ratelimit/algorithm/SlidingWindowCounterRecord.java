@@ -0,0 +1,165 @@
+package io.github.ratelimit.algorithm;
+
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.AbstractTokenRecord;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Instant;
+
+/**
+ * Sliding window counter keeps request counts of the previous and current fixed window and
+ * approximates the sliding window by weighting the previous count with its overlap.
+ * Memory is constant regardless of policy capacity.
+ */
+public class SlidingWindowCounterRecord extends AbstractTokenRecord {
+
+    private static final long serialVersionUID = 5204938617220375523L;
+
+    private long windowStartNanos;
+    private long previousCount;
+    private long currentCount;
+
+    public SlidingWindowCounterRecord() {
+        super();
+    }
+
+    private SlidingWindowCounterRecord(long tokenCount, long windowStartNanos, long previousCount, long currentCount) {
+        super(tokenCount);
+        this.windowStartNanos = windowStartNanos;
+        this.previousCount = previousCount;
+        this.currentCount = currentCount;
+    }
+
+    public static SlidingWindowCounterRecord from(long tokenCount, long capacity) {
+        return SlidingWindowCounterRecord.of(tokenCount, capacity, Instant.now());
+    }
+
+    public static SlidingWindowCounterRecord of(long tokenCount, long capacity, Instant windowStart) {
+        long requestsToFake = Math.max(0L, capacity - tokenCount);
+        return new SlidingWindowCounterRecord(tokenCount, toEpochNanos(windowStart), 0L, requestsToFake);
+    }
+
+    public static SlidingWindowCounterRecord withState(long tokenCount, long windowStartNanos, long previousCount,
+                                                       long currentCount) {
+        return new SlidingWindowCounterRecord(tokenCount, windowStartNanos, previousCount, currentCount);
+    }
+
+    public long getWindowStartNanos() {
+        return windowStartNanos;
+    }
+
+    public long getPreviousCount() {
+        return previousCount;
+    }
+
+    public long getCurrentCount() {
+        return currentCount;
+    }
+
+    @Override
+    public RateLimitRecord updateWith(RefillPolicy policy, Instant requestTs) {
+        long requestNanos = toEpochNanos(requestTs);
+        if (requestNanos < windowStartNanos) {
+            return this;
+        }
+        long samplingPeriodNanos = policy.getSamplingPeriod().toNanos();
+        long windowsPassed = (requestNanos - windowStartNanos) / samplingPeriodNanos;
+        if (windowsPassed > 0) {
+            previousCount = windowsPassed == 1 ? currentCount : 0L;
+            currentCount = 0L;
+            windowStartNanos += windowsPassed * samplingPeriodNanos;
+        }
+        long elapsedInWindow = requestNanos - windowStartNanos;
+        tokenCount = policy.getCapacity() - currentCount
+                - weightedCount(previousCount, samplingPeriodNanos - elapsedInWindow, samplingPeriodNanos);
+        return this;
+    }
+
+    private static long weightedCount(long count, long overlapNanos, long samplingPeriodNanos) {
+        return (long) Math.ceil(count * ((double) overlapNanos / samplingPeriodNanos));
+    }
+
+    @Override
+    public RateLimitRecord consume(long numTokens) {
+        currentCount += numTokens;
+        tokenCount -= numTokens;
+        return this;
+    }
+
+    @Override
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens) {
+        return getNanosToConsumptionImpl(policy, missingTokens, Instant.now());
+    }
+
+    @Override
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens, Instant timestamp) {
+        long samplingPeriodNanos = policy.getSamplingPeriod().toNanos();
+        long allowedCount = policy.getCapacity() - (tokenCount + missingTokens);
+        if (allowedCount < 0) {
+            return Long.MAX_VALUE;
+        }
+
+        long nanosInWindowNeeded;
+        if (allowedCount >= currentCount) {
+            nanosInWindowNeeded = nanosUntilWeightFits(previousCount, allowedCount - currentCount, samplingPeriodNanos);
+        } else {
+            nanosInWindowNeeded = samplingPeriodNanos
+                    + nanosUntilWeightFits(currentCount, allowedCount, samplingPeriodNanos);
+        }
+        return Math.max(0L, windowStartNanos + nanosInWindowNeeded - toEpochNanos(timestamp));
+    }
+
+    private static long nanosUntilWeightFits(long count, long allowedWeight, long samplingPeriodNanos) {
+        if (count <= allowedWeight) {
+            return 0L;
+        }
+        return samplingPeriodNanos - (long) Math.floor((double) allowedWeight * samplingPeriodNanos / count);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s = {tokenCount: %d, windowStartNanos: %d, previousCount: %d, currentCount: %d}",
+                this.getClass().getSimpleName(), tokenCount, windowStartNanos, previousCount, currentCount);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(windowStartNanos);
+        out.writeLong(tokenCount);
+        out.writeLong(previousCount);
+        out.writeLong(currentCount);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        windowStartNanos = in.readLong();
+        tokenCount = in.readLong();
+        previousCount = in.readLong();
+        currentCount = in.readLong();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SlidingWindowCounterRecord)) return false;
+        if (!super.equals(o)) return false;
+
+        SlidingWindowCounterRecord that = (SlidingWindowCounterRecord) o;
+
+        if (windowStartNanos != that.windowStartNanos) return false;
+        if (previousCount != that.previousCount) return false;
+        return currentCount == that.currentCount;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (int) (windowStartNanos ^ (windowStartNanos >>> 32));
+        result = 31 * result + (int) (previousCount ^ (previousCount >>> 32));
+        result = 31 * result + (int) (currentCount ^ (currentCount >>> 32));
+        return result;
+    }
+}
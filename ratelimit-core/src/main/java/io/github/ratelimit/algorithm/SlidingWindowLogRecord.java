@@ -7,39 +7,70 @@ import io.github.ratelimit.core.impl.AbstractRecord;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.time.Duration;
 import java.time.Instant;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Sliding window log kept in a circular buffer of (epochNanos, weight) pairs ordered by time.
+ * Expired requests are evicted from the head and new requests are appended to the tail, while
+ * the weight of the requests in the window is tracked incrementally.
+ */
 public class SlidingWindowLogRecord extends AbstractRecord {
     private static final long serialVersionUID = -6619395629072636732L;
 
-    private Map<Instant, Long> requestMap;
+    private static final int INITIAL_BUFFER_SIZE = 8;
+
+    private long[] requestNanos;
+    private long[] requestWeights;
+    private int head;
+    private int size;
     private long capacity;
     private long requestsWeight;
+    private transient long lastUpdateNanos;
 
     public SlidingWindowLogRecord() {
         super();
     }
 
-    private SlidingWindowLogRecord(Map<Instant, Long> requestMap, long capacity) {
-        this.requestMap = requestMap;
+    private SlidingWindowLogRecord(int bufferSize, long capacity) {
+        this.requestNanos = new long[bufferSize];
+        this.requestWeights = new long[bufferSize];
         this.capacity = capacity;
-        this.requestsWeight = calculateRequestsWeight();
     }
 
     public static SlidingWindowLogRecord of(long numTokens, long capacity) {
+        return SlidingWindowLogRecord.of(numTokens, capacity, Instant.now());
+    }
+
+    public static SlidingWindowLogRecord of(long numTokens, long capacity, Instant timestamp) {
+        SlidingWindowLogRecord record = new SlidingWindowLogRecord(INITIAL_BUFFER_SIZE, capacity);
         long requestsToFake = capacity - numTokens;
-        return withRequestMap(createRequestMap(requestsToFake), capacity);
+        record.lastUpdateNanos = toEpochNanos(timestamp);
+        if (requestsToFake > 0L) {
+            record.append(record.lastUpdateNanos, requestsToFake);
+        }
+        return record;
     }
 
-    private long calculateRequestsWeight() {
-        return requestMap.entrySet().stream().map(Map.Entry::getValue).reduce(0L, (a, b) -> a + b);
+    public static SlidingWindowLogRecord withRequestMap(Map<Instant, Long> requestMap, long capacity) {
+        SlidingWindowLogRecord record = new SlidingWindowLogRecord(bufferSizeFor(requestMap.size()), capacity);
+        for (Map.Entry<Instant, Long> entry : requestMap.entrySet()) {
+            record.append(toEpochNanos(entry.getKey()), entry.getValue());
+        }
+        return record;
     }
 
+    /**
+     * @return Map<Instant, Long> snapshot of requests currently in the log
+     */
     public Map<Instant, Long> getRequestMap() {
+        Map<Instant, Long> requestMap = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            int index = indexOf(i);
+            long nanos = requestNanos[index];
+            requestMap.put(Instant.ofEpochSecond(0L, nanos), requestWeights[index]);
+        }
         return requestMap;
     }
 
@@ -47,15 +78,15 @@ public class SlidingWindowLogRecord extends AbstractRecord {
         return capacity;
     }
 
-    public static SlidingWindowLogRecord withRequestMap(Map<Instant, Long> requestMap, long capacity) {
-        return new SlidingWindowLogRecord(requestMap, capacity);
-    }
-
     @Override
     public RateLimitRecord updateWith(RefillPolicy policy, Instant requestTs) {
-        Instant slidingWindowStart = requestTs.minus(policy.getSamplingPeriod());
-        requestMap.entrySet().removeIf(entry -> entry.getKey().isBefore(slidingWindowStart));
-        requestsWeight = calculateRequestsWeight();
+        lastUpdateNanos = toEpochNanos(requestTs);
+        long slidingWindowStart = lastUpdateNanos - policy.getSamplingPeriod().toNanos();
+        while (size > 0 && requestNanos[head] < slidingWindowStart) {
+            requestsWeight -= requestWeights[head];
+            head = indexOf(1);
+            size--;
+        }
         return this;
     }
 
@@ -64,11 +95,21 @@ public class SlidingWindowLogRecord extends AbstractRecord {
         return capacity - requestsWeight;
     }
 
+    /**
+     * Requests are logged at the timestamp of the last updateWith, which is the time the consumption was decided at.
+     */
     @Override
     public RateLimitRecord consume(long numTokens) {
-        Instant now = Instant.now();
-        requestMap.put(now, requestMap.getOrDefault(now, 0L) + numTokens);
-        requestsWeight = calculateRequestsWeight();
+        long now = lastUpdateNanos != 0L ? lastUpdateNanos : toEpochNanos(Instant.now());
+        if (size > 0) {
+            int tail = indexOf(size - 1);
+            if (requestNanos[tail] == now) {
+                requestWeights[tail] += numTokens;
+                requestsWeight += numTokens;
+                return this;
+            }
+        }
+        append(now, numTokens);
         return this;
     }
 
@@ -77,26 +118,59 @@ public class SlidingWindowLogRecord extends AbstractRecord {
         return getTokenCount() >= numTokens;
     }
 
-    private static Map<Instant, Long> createRequestMap(long numRequests) {
-        Map<Instant, Long> requstMap = new LinkedHashMap<>();
-        if (numRequests > 0L) {
-            requstMap.put(Instant.now(), numRequests);
+    private void append(long nanos, long weight) {
+        if (size == requestNanos.length) {
+            grow();
+        }
+        int tail = indexOf(size);
+        requestNanos[tail] = nanos;
+        requestWeights[tail] = weight;
+        requestsWeight += weight;
+        size++;
+    }
+
+    private void grow() {
+        int newLength = bufferSizeFor(size + 1);
+        long[] newNanos = new long[newLength];
+        long[] newWeights = new long[newLength];
+        for (int i = 0; i < size; i++) {
+            int index = indexOf(i);
+            newNanos[i] = requestNanos[index];
+            newWeights[i] = requestWeights[index];
+        }
+        requestNanos = newNanos;
+        requestWeights = newWeights;
+        head = 0;
+    }
+
+    private int indexOf(int offset) {
+        return (head + offset) & (requestNanos.length - 1);
+    }
+
+    private static int bufferSizeFor(int numRequests) {
+        int bufferSize = INITIAL_BUFFER_SIZE;
+        while (bufferSize < numRequests) {
+            bufferSize <<= 1;
         }
-        return requstMap;
+        return bufferSize;
     }
 
     @Override
     protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens) {
-        Instant slidingWindowStart = Instant.now().minus(policy.getSamplingPeriod());
-        Iterator<Map.Entry<Instant, Long>> it = requestMap.entrySet().iterator();
+        return getNanosToConsumptionImpl(policy, missingTokens, Instant.now());
+    }
+
+    @Override
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens, Instant timestamp) {
+        long slidingWindowStart = toEpochNanos(timestamp) - policy.getSamplingPeriod().toNanos();
 
         long tokensAccomulated = 0L;
-        while (it.hasNext()) {
-            Map.Entry<Instant, Long> entry = it.next();
-            tokensAccomulated += entry.getValue();
+        for (int i = 0; i < size; i++) {
+            int index = indexOf(i);
+            tokensAccomulated += requestWeights[index];
 
             if (tokensAccomulated >= missingTokens) {
-                return Duration.between(slidingWindowStart, entry.getKey()).toNanos();
+                return requestNanos[index] - slidingWindowStart;
             }
         }
 
@@ -106,26 +180,32 @@ public class SlidingWindowLogRecord extends AbstractRecord {
     @Override
     public String toString() {
         return String.format("%s = {tokenCount: %d, requestMap = %s}", this.getClass().getSimpleName(), getTokenCount(),
-                requestMap);
+                getRequestMap());
     }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
-        out.writeInt(requestMap.size());
+        out.writeInt(size);
         out.writeLong(capacity);
-        for (Map.Entry<Instant, Long> entry : requestMap.entrySet()) {
-            out.writeLong(entry.getKey().toEpochMilli());
-            out.writeLong(entry.getValue());
+        for (int i = 0; i < size; i++) {
+            int index = indexOf(i);
+            out.writeLong(requestNanos[index]);
+            out.writeLong(requestWeights[index]);
         }
     }
 
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        int mapSize = in.readInt();
+        int numRequests = in.readInt();
         capacity = in.readLong();
-        requestMap = new LinkedHashMap<>();
-        for (int i = 0; i < mapSize; i++) {
-            requestMap.put(Instant.ofEpochMilli(in.readLong()), in.readLong());
+        int bufferSize = bufferSizeFor(numRequests);
+        requestNanos = new long[bufferSize];
+        requestWeights = new long[bufferSize];
+        head = 0;
+        size = 0;
+        requestsWeight = 0L;
+        for (int i = 0; i < numRequests; i++) {
+            append(in.readLong(), in.readLong());
         }
     }
 
@@ -38,6 +38,10 @@ public class TokenBucketRecord extends AbstractTokenRecord {
         return new TokenBucketRecord(tokenCount, timestamp);
     }
 
+    public Instant getLastTokenDistributedTs() {
+        return lastTokenDistributedTs;
+    }
+
     @Override
     public RateLimitRecord updateWith(RefillPolicy policy, Instant requestTs) {
         Duration timeElapsed = Duration.between(lastTokenDistributedTs, requestTs);
@@ -60,9 +64,14 @@ public class TokenBucketRecord extends AbstractTokenRecord {
 
     @Override
     public long getNanosToConsumptionImpl(RefillPolicy policy, long tokenConsumption) {
+        return getNanosToConsumptionImpl(policy, tokenConsumption, Instant.now());
+    }
+
+    @Override
+    public long getNanosToConsumptionImpl(RefillPolicy policy, long tokenConsumption, Instant timestamp) {
         long nanosBetweenRefills = policy.getNanosBetweenRefills();
         Instant nextRefill = lastTokenDistributedTs.plusNanos(nanosBetweenRefills);
-        long nanosUntilNextToken = Duration.between(Instant.now(), nextRefill).toNanos();
+        long nanosUntilNextToken = Duration.between(timestamp, nextRefill).toNanos();
         if (tokenConsumption == 1) {
             return nanosUntilNextToken;
         } else {
@@ -0,0 +1,52 @@
+package io.github.ratelimit.core;
+
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking counterpart of EntryStorage. Failures and timeouts complete the returned stage exceptionally with
+ * RateLimiterException.
+ */
+public interface AsyncEntryStorage {
+
+    /**
+     * Function checks and update user rate limit entries in one trip to storage backend.
+     *
+     * @param identifier to entries
+     * @return CompletionStage<ConsumptionEntry>
+     */
+    CompletionStage<ConsumptionEntry> conformRateLimits(String identifier, int requestWeight);
+
+    /**
+     * Returns entries currently in entry storage. Those are not refilled according to current timestamp.
+     *
+     * @param identifier to entries
+     * @return CompletionStage<List<RateLimitEntry>> list of rate limit entries
+     */
+    CompletionStage<List<RateLimitEntry>> getCurrentEntries(String identifier);
+
+    /**
+     * Returns copies of rate limit entries refilled according to current timestamp, without updating stored entries.
+     *
+     * @param identifier to entries
+     * @return CompletionStage<List<RateLimitEntry>> list of rate limit entries
+     */
+    CompletionStage<List<RateLimitEntry>> getRefilledEntries(String identifier);
+
+    /**
+     * Stores entries to entry storage.
+     *
+     * @param identifier to entries
+     * @param entries
+     * @return CompletionStage<Void> completed once entries are stored
+     */
+    CompletionStage<Void> storeEntries(String identifier, List<RateLimitEntry> entries);
+
+    /**
+     * @return get execution timeout for asynchronous operations
+     */
+    long getExecutionTimeout();
+
+}
@@ -0,0 +1,75 @@
+package io.github.ratelimit.core;
+
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking counterpart of RateLimiter for event-loop servers. Failures and timeouts complete the returned stage
+ * exceptionally with RateLimiterException.
+ */
+public interface AsyncRateLimiter {
+
+    /**
+     * Same as calling conformsRateLimits(identifier, 1);
+     *
+     * @param identifier
+     * @return CompletionStage<Boolean>
+     */
+    default CompletionStage<Boolean> conformsRateLimits(String identifier) {
+        return conformsRateLimits(identifier, 1);
+    }
+
+    /**
+     * Same as calling conformRateLimitsWithConsumption(identifier, 1);
+     *
+     * @param identifier
+     * @return CompletionStage<ConsumptionEntry>
+     */
+    default CompletionStage<ConsumptionEntry> conformRateLimitsWithConsumption(String identifier) {
+        return conformRateLimitsWithConsumption(identifier, 1);
+    }
+
+    /**
+     * @param identifier
+     * @param requestWeight
+     * @return CompletionStage<Boolean> whether identity passes rate limits
+     */
+    default CompletionStage<Boolean> conformsRateLimits(String identifier, int requestWeight) {
+        return conformRateLimitsWithConsumption(identifier, requestWeight).thenApply(ConsumptionEntry::doesConform);
+    }
+
+    /**
+     * @param identifier
+     * @param requestWeight
+     * @return CompletionStage<ConsumptionEntry>
+     */
+    CompletionStage<ConsumptionEntry> conformRateLimitsWithConsumption(String identifier, int requestWeight);
+
+    /**
+     * Get missing token counts for RefillPolicies. This method is
+     * RateLimitAlgorithm specific and can returns different values.
+     *
+     * @param identifier
+     * @return CompletionStage<Map<String, Long>>
+     */
+    CompletionStage<Map<String, Long>> getMissingTokenCounts(String identifier);
+
+    /**
+     * Get remaining token count for RefillPolicies. This method is
+     * RateLimitAlgorithm specific and can return different values.
+     *
+     * @param identifier
+     * @return CompletionStage<Map<String, Long>>
+     */
+    CompletionStage<Map<String, Long>> getTokenCounts(String identifier);
+
+    /**
+     * Get underlying AsyncEntryStorage of AsyncRateLimiter.
+     *
+     * @return AsyncEntryStorage
+     */
+    AsyncEntryStorage getStorage();
+
+}
@@ -2,7 +2,10 @@ package io.github.ratelimit.core;
 
 import io.github.ratelimit.core.impl.ConsumptionEntry;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface EntryStorage {
 
@@ -15,6 +18,40 @@ public interface EntryStorage {
      */
     ConsumptionEntry conformRateLimits(String identifier, int requestWeight) throws RateLimiterException;
 
+    /**
+     * Checks and updates rate limit entries of one identifier for several requests, one after another in the order
+     * of requestWeights.
+     *
+     * @param identifier     to entries
+     * @param requestWeights request weight of each request
+     * @return List<ConsumptionEntry> consumption of each request, in order of requestWeights
+     * @throws RateLimiterException
+     */
+    default List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights)
+            throws RateLimiterException {
+        List<ConsumptionEntry> consumptions = new ArrayList<>(requestWeights.length);
+        for (int requestWeight : requestWeights) {
+            consumptions.add(conformRateLimits(identifier, requestWeight));
+        }
+        return consumptions;
+    }
+
+    /**
+     * Checks and updates rate limit entries of several identifiers, each independently of the others.
+     *
+     * @param requestWeights request weight by identifier
+     * @return Map<String, ConsumptionEntry> consumption by identifier, in iteration order of requestWeights
+     * @throws RateLimiterException
+     */
+    default Map<String, ConsumptionEntry> conformRateLimitsBatch(Map<String, Integer> requestWeights)
+            throws RateLimiterException {
+        Map<String, ConsumptionEntry> consumptions = new LinkedHashMap<>(requestWeights.size() * 2);
+        for (Map.Entry<String, Integer> requestWeight : requestWeights.entrySet()) {
+            consumptions.put(requestWeight.getKey(), conformRateLimits(requestWeight.getKey(), requestWeight.getValue()));
+        }
+        return consumptions;
+    }
+
     /**
      * Returns entries currently in entry storage. Those are not refilled according to current timestamp.
      *
@@ -34,6 +71,18 @@ public interface EntryStorage {
      */
     List<RateLimitEntry> getUpdateEntries(String identifier) throws RateLimiterException;
 
+    /**
+     * Returns copies of rate limit entries refilled according to current timestamp, without updating stored entries.
+     * Defaults to getUpdateEntries for storages which can't read without writing.
+     *
+     * @param identifier to entries
+     * @return List<RateLimitEntry> list of rate limit entries
+     * @throws RateLimiterException
+     */
+    default List<RateLimitEntry> getRefilledEntries(String identifier) throws RateLimiterException {
+        return getUpdateEntries(identifier);
+    }
+
     /**
      * Stores entries to entry storage.
      *
@@ -0,0 +1,65 @@
+package io.github.ratelimit.core;
+
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+
+import java.util.List;
+
+/**
+ * EntryStorage variant keyed by primitive long identifiers.
+ */
+public interface LongEntryStorage {
+
+    /**
+     * Function checks and update user rate limit entries in one trip to storage backend.
+     *
+     * @param identifier to entries
+     * @return ConsumptionEntry
+     * @throws RateLimiterException
+     */
+    ConsumptionEntry conformRateLimits(long identifier, int requestWeight) throws RateLimiterException;
+
+    /**
+     * Returns entries currently in entry storage. Those are not refilled according to current timestamp.
+     *
+     * @param identifier to entries
+     * @return List<RateLimitEntry> list of rate limit entries
+     * @throws RateLimiterException
+     */
+    List<RateLimitEntry> getCurrentEntries(long identifier) throws RateLimiterException;
+
+    /**
+     * Returns refilled rate limit entries from entry storage.
+     *
+     * @param identifier to entries
+     * @return List<RateLimitEntry> list of rate limit entries
+     * @throws RateLimiterException
+     */
+    List<RateLimitEntry> getUpdateEntries(long identifier) throws RateLimiterException;
+
+    /**
+     * Returns copies of rate limit entries refilled according to current timestamp, without updating stored entries.
+     * Defaults to getUpdateEntries for storages which can't read without writing.
+     *
+     * @param identifier to entries
+     * @return List<RateLimitEntry> list of rate limit entries
+     * @throws RateLimiterException
+     */
+    default List<RateLimitEntry> getRefilledEntries(long identifier) throws RateLimiterException {
+        return getUpdateEntries(identifier);
+    }
+
+    /**
+     * Stores entries to entry storage.
+     *
+     * @param identifier to entries
+     * @param entries
+     * @throws RateLimiterException
+     */
+    void storeEntries(long identifier, List<RateLimitEntry> entries) throws RateLimiterException;
+
+    /**
+     * @return get execution timeout for asynchronous operations
+     */
+    long getExecutionTimeout();
+
+}
@@ -0,0 +1,79 @@
+package io.github.ratelimit.core;
+
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+
+import java.util.Map;
+
+/**
+ * RateLimiter variant keyed by primitive long identifiers, such as numeric user or account ids.
+ */
+public interface LongRateLimiter {
+
+    /**
+     * Same as calling conformsRateLimits(identifier, 1);
+     *
+     * @param identifier
+     * @return boolean
+     * @throws RateLimiterException
+     */
+    default boolean conformsRateLimits(long identifier) throws RateLimiterException {
+        return conformsRateLimits(identifier, 1);
+    }
+
+    /**
+     * Same as calling conformsRateLimitsWithConsumption(identifier, 1);
+     *
+     * @param identifier
+     * @return ConsumptionEntry
+     * @throws RateLimiterException
+     */
+    default ConsumptionEntry conformRateLimitsWithConsumption(long identifier) throws RateLimiterException {
+        return conformRateLimitsWithConsumption(identifier, 1);
+    }
+
+    /**
+     * @param identifier
+     * @param requestWeight
+     * @return boolean whether identity passes rate limits
+     * @throws RateLimiterException
+     */
+    default boolean conformsRateLimits(long identifier, int requestWeight) throws RateLimiterException {
+        return conformRateLimitsWithConsumption(identifier, requestWeight).doesConform();
+    }
+
+    /**
+     * @param identifier
+     * @param requestWeight
+     * @return ConsumptionEntry
+     * @throws RateLimiterException
+     */
+    ConsumptionEntry conformRateLimitsWithConsumption(long identifier, int requestWeight) throws RateLimiterException;
+
+    /**
+     * Get missing token counts for RefillPolicies. This method is
+     * RateLimitAlgorithm specific and can returns different values.
+     *
+     * @param identifier
+     * @return Map<String, Long>
+     * @throws RateLimiterException
+     */
+    Map<String, Long> getMissingTokenCounts(long identifier) throws RateLimiterException;
+
+    /**
+     * Get remaining token count for RefillPolicies. This method is
+     * RateLimitAlgorithm specific and can return different values.
+     *
+     * @param identifier
+     * @return Map<String, Long>
+     * @throws RateLimiterException
+     */
+    Map<String, Long> getTokenCounts(long identifier) throws RateLimiterException;
+
+    /**
+     * Get underlying LongEntryStorage of LongRateLimiter.
+     *
+     * @return LongEntryStorage
+     */
+    LongEntryStorage getStorage();
+
+}
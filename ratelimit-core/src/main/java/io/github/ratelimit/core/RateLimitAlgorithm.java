@@ -1,5 +1,5 @@
 package io.github.ratelimit.core;
 
 public enum RateLimitAlgorithm {
-    TOKEN_BUCKET, FIXED_WINDOW, SLIDING_WINDOW;
+    TOKEN_BUCKET, FIXED_WINDOW, SLIDING_WINDOW, SLIDING_WINDOW_COUNTER, GCRA;
 }
@@ -65,6 +65,15 @@ public interface RateLimitEntry extends Externalizable {
      */
     long getNanosToConsumption(long consumptionCount);
 
+    /**
+     * @param consumptionCount number of tokens to consume
+     * @param ts               current timestamp, ignored by the default which reads the current time
+     * @return long time until next successful consumption in nano seconds
+     */
+    default long getNanosToConsumption(long consumptionCount, Instant ts) {
+        return getNanosToConsumption(consumptionCount);
+    }
+
     /**
      * @return long time until next refill in nano seconds
      */
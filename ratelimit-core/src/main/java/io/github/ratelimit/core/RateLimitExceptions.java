@@ -1,5 +1,8 @@
 package io.github.ratelimit.core;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 public final class RateLimitExceptions {
 
     private RateLimitExceptions() {
@@ -20,4 +23,89 @@ public final class RateLimitExceptions {
         return new IllegalArgumentException(msg);
     }
 
+    public static IllegalArgumentException capacityExceedsLimit(long capacity, long maxCapacity) {
+        String msg = String.format("Policy capacity %d exceeds supported maximum of %d", capacity, maxCapacity);
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalArgumentException keyLimitExceeded(long numKeys, long maxKeys) {
+        String msg = String.format("Number of keys %d exceeds supported maximum of %d", numKeys, maxKeys);
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalArgumentException policyIdConflict(int policyId, RefillPolicy registered) {
+        String msg = String.format("Policy id %d is already registered for policy %s", policyId, registered);
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalArgumentException invalidPolicyId(int policyId, int maxPolicyId) {
+        String msg = String.format("Policy id must be between 0 and %d, got %d", maxPolicyId, policyId);
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalArgumentException unsupportedPolicy(RefillPolicy policy) {
+        String msg = String.format("Refill policy %s of type %s can not be encoded", policy,
+                policy.getClass().getName());
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalArgumentException mutatingCommand(Object command) {
+        String msg = String.format("Command %s mutates entries and can not be executed read-only", command);
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalArgumentException invalidFraction(double fraction) {
+        String msg = String.format("Fraction must be greater than 0 and at most 1, got %s", fraction);
+        return new IllegalArgumentException(msg);
+    }
+
+    public static IllegalStateException backendUnavailable() {
+        return new BackendUnavailableException();
+    }
+
+    /**
+     * @param ex
+     * @return boolean whether ex, or one of its causes, is a fast-fail rejection of an open circuit breaker
+     */
+    public static boolean isBackendUnavailable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BackendUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Logs a failed storage call at SEVERE with its stack trace, except rejections of an open circuit breaker, which
+     * every request gets while the backend is down and are logged at FINE without one.
+     */
+    public static void logFailure(Logger logger, String message, Throwable ex) {
+        if (isBackendUnavailable(ex)) {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.logp(Level.FINE, logger.getName(), null, message + ": " + ex.getMessage());
+            }
+        } else {
+            logger.logp(Level.SEVERE, logger.getName(), null, message, ex);
+        }
+    }
+
+    /**
+     * Thrown on every call while a circuit breaker is open, so it skips filling in the stack trace.
+     */
+    private static final class BackendUnavailableException extends IllegalStateException {
+
+        private static final long serialVersionUID = -3620135496253411783L;
+
+        private BackendUnavailableException() {
+            super("Storage backend circuit breaker is open");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+    }
+
 }
@@ -47,4 +47,17 @@ public interface RateLimitRecord {
      */
     long getNanosToConsumption(RefillPolicy refillPolicy, long tokens, boolean throwOnPolicyExceds) throws IllegalArgumentException;
 
+    /**
+     * @param refillPolicy
+     * @param tokens              to consume
+     * @param throwOnPolicyExceds boolean whether to throw on impossible consumption
+     * @param timestamp           current timestamp, ignored by the default which reads the current time
+     * @return long time to consumption in nano seconds
+     * @throws IllegalArgumentException
+     */
+    default long getNanosToConsumption(RefillPolicy refillPolicy, long tokens, boolean throwOnPolicyExceds,
+                                       Instant timestamp) throws IllegalArgumentException {
+        return getNanosToConsumption(refillPolicy, tokens, throwOnPolicyExceds);
+    }
+
 }
@@ -50,6 +50,19 @@ public interface RateLimiter {
     ConsumptionEntry conformRateLimitsWithConsumption(String identifier, int requestWeight)
             throws RateLimiterException;
 
+    /**
+     * Checks several identifiers at once, e.g. the user, API key and IP of one request. Each identifier is
+     * consumed independently of the others. Distributed storages check all of them in one round trip per node.
+     *
+     * @param requestWeights request weight by identifier
+     * @return Map<String, ConsumptionEntry> consumption by identifier, in iteration order of requestWeights
+     * @throws RateLimiterException
+     */
+    default Map<String, ConsumptionEntry> conformRateLimitsBatch(Map<String, Integer> requestWeights)
+            throws RateLimiterException {
+        return getStorage().conformRateLimitsBatch(requestWeights);
+    }
+
     /**
      * Get missing token counts for RefillPolicies. This method is
      * RateLimitAlgorithm specific and can returns different values.
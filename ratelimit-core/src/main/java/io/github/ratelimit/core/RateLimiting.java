@@ -1,6 +1,7 @@
 package io.github.ratelimit.core;
 
 import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.LongRateLimiterImpl;
 import io.github.ratelimit.core.impl.RateLimiterImpl;
 
 public final class RateLimiting {
@@ -12,6 +13,10 @@ public final class RateLimiting {
         return new RateLimiterImpl(storage);
     }
 
+    public static LongRateLimiter withStorage(LongEntryStorage storage) {
+        return new LongRateLimiterImpl(storage);
+    }
+
     public static EntryBuilder schedulerBuilder() {
         return new SchedulerBuilder();
     }
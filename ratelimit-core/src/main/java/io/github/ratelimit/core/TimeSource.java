@@ -0,0 +1,19 @@
+package io.github.ratelimit.core;
+
+import java.time.Instant;
+
+public interface TimeSource {
+
+    /**
+     * @return long current time in nanoseconds since epoch
+     */
+    long currentTimeNanos();
+
+    /**
+     * @return Instant current time
+     */
+    default Instant now() {
+        return Instant.ofEpochSecond(0L, currentTimeNanos());
+    }
+
+}
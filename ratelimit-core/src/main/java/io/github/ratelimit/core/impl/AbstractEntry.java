@@ -4,6 +4,7 @@ import io.github.ratelimit.core.RateLimitEntry;
 import io.github.ratelimit.core.RateLimitExceptions;
 import io.github.ratelimit.core.RateLimitRecord;
 import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
 
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -16,6 +17,7 @@ public abstract class AbstractEntry implements RateLimitEntry {
     protected RateLimitRecord record;
     protected RefillPolicy policy;
     protected boolean throwOnPolicyExceds;
+    protected transient TimeSource timeSource = SystemTimeSource.INSTANCE;
 
     protected AbstractEntry() {
     }
@@ -25,9 +27,15 @@ public abstract class AbstractEntry implements RateLimitEntry {
     }
 
     protected AbstractEntry(RateLimitRecord record, RefillPolicy policy, boolean throwOnPolicyExceeds) {
+        this(record, policy, throwOnPolicyExceeds, SystemTimeSource.INSTANCE);
+    }
+
+    protected AbstractEntry(RateLimitRecord record, RefillPolicy policy, boolean throwOnPolicyExceeds,
+                            TimeSource timeSource) {
         this.record = Objects.requireNonNull(record);
         this.policy = Objects.requireNonNull(policy);
         this.throwOnPolicyExceds = throwOnPolicyExceeds;
+        this.timeSource = Objects.requireNonNull(timeSource);
     }
 
     @Override
@@ -47,7 +55,7 @@ public abstract class AbstractEntry implements RateLimitEntry {
     public abstract boolean tryConsume(long numTokens);
 
     protected boolean tryConsumeTokens(long numTokens) {
-        return tryConsumeTokens(numTokens, Instant.now());
+        return tryConsumeTokens(numTokens, timeSource.now());
     }
 
     protected boolean tryConsumeTokens(long numTokens, Instant ts) {
@@ -62,18 +70,19 @@ public abstract class AbstractEntry implements RateLimitEntry {
         return true;
     }
 
-    private ConsumptionEntry consumptionEntryFor(boolean canConsume, long numTokens) {
+    private ConsumptionEntry consumptionEntryFor(boolean canConsume, long numTokens, Instant ts) {
         if (canConsume) {
             return ConsumptionEntry.conformant(getTokenCount());
         } else {
             long missingTokens = numTokens - getTokenCount();
-            return ConsumptionEntry.rejected(record.getTokenCount(), getNanosToConsumption(missingTokens), getRefillPolicy());
+            return ConsumptionEntry.rejected(record.getTokenCount(), getNanosToConsumption(missingTokens, ts), getRefillPolicy());
         }
     }
 
     @Override
     public ConsumptionEntry tryConsumeAndReturnRemaining(long numTokens) {
-        return consumptionEntryFor(tryConsumeTokens(numTokens), numTokens);
+        Instant ts = timeSource.now();
+        return consumptionEntryFor(tryConsumeTokens(numTokens, ts), numTokens, ts);
     }
 
     @Override
@@ -81,14 +90,24 @@ public abstract class AbstractEntry implements RateLimitEntry {
         long tokenCount = getTokenCount();
         if (!record.canConsume(toConsume)) {
             long missingTokens = toConsume - tokenCount;
-            return ConsumptionEntry.rejected(record.getTokenCount(), getNanosToConsumption(missingTokens), getRefillPolicy());
+            return ConsumptionEntry.rejected(record.getTokenCount(), getNanosToConsumption(missingTokens, ts), getRefillPolicy());
         }
         return ConsumptionEntry.conformant(tokenCount - toConsume);
     }
 
     @Override
     public long getNanosToConsumption(long consumptionCount) {
-        return record.getNanosToConsumption(policy, consumptionCount, throwOnPolicyExceds);
+        return getNanosToConsumption(consumptionCount, timeSource.now());
+    }
+
+    @Override
+    public long getNanosToConsumption(long consumptionCount, Instant ts) {
+        return record.getNanosToConsumption(policy, consumptionCount, throwOnPolicyExceds, ts);
+    }
+
+    @Override
+    public RateLimitEntry update() {
+        return update(timeSource.now());
     }
 
     @Override
@@ -96,7 +115,13 @@ public abstract class AbstractEntry implements RateLimitEntry {
         return policy;
     }
 
-    ;
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    public boolean isThrowOnPolicyExceeds() {
+        return throwOnPolicyExceds;
+    }
 
     @Override
     public RateLimitRecord getRateLimitRecord() {
@@ -5,11 +5,43 @@ import io.github.ratelimit.core.RateLimitRecord;
 import io.github.ratelimit.core.RefillPolicy;
 
 import java.io.Externalizable;
+import java.time.Instant;
 
 public abstract class AbstractRecord implements RateLimitRecord, Externalizable {
 
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * @param timestamp
+     * @return long nanoseconds since epoch, computed without allocating
+     */
+    protected static long toEpochNanos(Instant timestamp) {
+        return timestamp.getEpochSecond() * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @return long sum of a and b, saturated to Long.MAX_VALUE/Long.MIN_VALUE on overflow
+     */
+    protected static long saturatedAdd(long a, long b) {
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return result;
+    }
+
     protected abstract long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens);
 
+    /**
+     * Records which compute the time to consumption from a passed timestamp override this, the default ignores
+     * timestamp and calls getNanosToConsumptionImpl(policy, missingTokens).
+     */
+    protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens, Instant timestamp) {
+        return getNanosToConsumptionImpl(policy, missingTokens);
+    }
+
     protected boolean checkConsumptionLimits(RefillPolicy policy, long missingTokens, boolean throwOnPolicyExceds) {
         long tokenCount = getTokenCount();
         long toConsume = missingTokens + tokenCount;
@@ -26,10 +58,16 @@ public abstract class AbstractRecord implements RateLimitRecord, Externalizable
 
     @Override
     public long getNanosToConsumption(RefillPolicy policy, long missingTokens, boolean throwOnPolicyExceeds) {
+        return getNanosToConsumption(policy, missingTokens, throwOnPolicyExceeds, Instant.now());
+    }
+
+    @Override
+    public long getNanosToConsumption(RefillPolicy policy, long missingTokens, boolean throwOnPolicyExceeds,
+                                      Instant timestamp) {
         if (checkConsumptionLimits(policy, missingTokens, throwOnPolicyExceeds)) {
             return 0;
         }
-        return getNanosToConsumptionImpl(policy, missingTokens);
+        return getNanosToConsumptionImpl(policy, missingTokens, timestamp);
     }
 
 }
@@ -0,0 +1,56 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.AsyncEntryStorage;
+import io.github.ratelimit.core.AsyncRateLimiter;
+import io.github.ratelimit.core.RateLimitEntry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+public class AsyncRateLimiterImpl implements AsyncRateLimiter {
+
+    private final AsyncEntryStorage entryStorage;
+
+    public AsyncRateLimiterImpl(AsyncEntryStorage entryStorage) {
+        this.entryStorage = entryStorage;
+    }
+
+    public static AsyncRateLimiterImpl withStorage(AsyncEntryStorage storage) {
+        return new AsyncRateLimiterImpl(storage);
+    }
+
+    @Override
+    public CompletionStage<ConsumptionEntry> conformRateLimitsWithConsumption(String identifier, int requestWeight) {
+        return entryStorage.conformRateLimits(identifier, requestWeight);
+    }
+
+    @Override
+    public CompletionStage<Map<String, Long>> getMissingTokenCounts(String identifier) {
+        return getStats(identifier, (RateLimitEntry e) -> e.getMissingTokens());
+    }
+
+    @Override
+    public CompletionStage<Map<String, Long>> getTokenCounts(String identifier) {
+        return getStats(identifier, (RateLimitEntry e) -> e.getTokenCount());
+    }
+
+    @Override
+    public AsyncEntryStorage getStorage() {
+        return entryStorage;
+    }
+
+    private CompletionStage<Map<String, Long>> getStats(String identifier,
+                                                        Function<RateLimitEntry, Long> statFunction) {
+        return entryStorage.getRefilledEntries(identifier).thenApply((List<RateLimitEntry> updated) -> {
+            Map<String, Long> statMap = new HashMap<>(4);
+            for (RateLimitEntry entry : updated) {
+                statMap.put(entry.getRefillPolicy().getSamplingPeriod().toString(), statFunction.apply(entry));
+            }
+            return statMap;
+        });
+    }
+
+}
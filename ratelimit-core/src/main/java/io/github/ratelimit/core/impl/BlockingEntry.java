@@ -4,6 +4,7 @@ import io.github.ratelimit.core.BlockingStrategy;
 import io.github.ratelimit.core.RateLimitEntry;
 import io.github.ratelimit.core.RateLimitRecord;
 import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
 
 import java.io.IOException;
 import java.io.ObjectInput;
@@ -27,6 +28,12 @@ public class BlockingEntry extends AbstractEntry {
         this.blockingStrategy = blockingStrategy;
     }
 
+    public BlockingEntry(RateLimitRecord record, RefillPolicy policy, BlockingStrategy blockingStrategy,
+                         boolean throwOnLimitExceed, TimeSource timeSource) {
+        super(record, policy, throwOnLimitExceed, timeSource);
+        this.blockingStrategy = blockingStrategy;
+    }
+
     @Override
     public boolean tryConsume(long numTokens, Instant ts) {
         boolean canConsume = tryConsumeTokens(numTokens, ts);
@@ -34,7 +41,7 @@ public class BlockingEntry extends AbstractEntry {
             return true;
         }
         long missingTokens = numTokens - getTokenCount();
-        long nanosToPark = getNanosToConsumption(missingTokens);
+        long nanosToPark = getNanosToConsumption(missingTokens, ts);
         try {
             blockingStrategy.block(nanosToPark);
             return tryConsumeTokens(numTokens);
@@ -43,9 +50,14 @@ public class BlockingEntry extends AbstractEntry {
         }
     }
 
+    public BlockingStrategy getBlockingStrategy() {
+        return blockingStrategy;
+    }
+
     @Override
     public RateLimitEntry update(Instant timestamp) {
-        return new BlockingEntry(record.updateWith(policy, timestamp), policy, blockingStrategy);
+        return new BlockingEntry(record.updateWith(policy, timestamp), policy, blockingStrategy, throwOnPolicyExceds,
+                timeSource);
     }
 
     @Override
@@ -62,6 +74,6 @@ public class BlockingEntry extends AbstractEntry {
 
     @Override
     public boolean tryConsume(long numTokens) {
-        return tryConsume(numTokens, Instant.now());
+        return tryConsume(numTokens, timeSource.now());
     }
 }
@@ -0,0 +1,51 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.TimeSource;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse TimeSource which returns a cached timestamp refreshed by a background ticker.
+ * Reading the time is a single volatile read, at the cost of up to one tick of precision.
+ */
+public final class CachedTimeSource implements TimeSource, AutoCloseable {
+
+    private final TimeSource delegate;
+    private final ScheduledExecutorService ticker;
+    private volatile long currentTimeNanos;
+
+    public CachedTimeSource(Duration tickInterval) {
+        this(SystemTimeSource.INSTANCE, tickInterval);
+    }
+
+    public CachedTimeSource(TimeSource delegate, Duration tickInterval) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.currentTimeNanos = delegate.currentTimeNanos();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ratelimit-cached-time-source");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickNanos = tickInterval.toNanos();
+        ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void tick() {
+        currentTimeNanos = delegate.currentTimeNanos();
+    }
+
+    @Override
+    public long currentTimeNanos() {
+        return currentTimeNanos;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+}
@@ -1,8 +1,10 @@
 package io.github.ratelimit.core.impl;
 
 import io.github.ratelimit.algorithm.FixedWindowRecord;
+import io.github.ratelimit.algorithm.GcraRecord;
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
+import io.github.ratelimit.algorithm.SlidingWindowCounterRecord;
 import io.github.ratelimit.algorithm.SlidingWindowLogRecord;
-import io.github.ratelimit.algorithm.TokenBucketRecord;
 import io.github.ratelimit.core.*;
 
 import java.time.Instant;
@@ -16,6 +18,8 @@ public class EntryBuilder {
     protected RateLimitAlgorithm rateLimitAlgorithm = RateLimitAlgorithm.TOKEN_BUCKET;
     protected RateLimitRecord record;
     protected boolean throwOnPolicyExceeds = false;
+    protected TimeSource timeSource = SystemTimeSource.INSTANCE;
+    protected PolicyRegistry policyRegistry;
 
     public EntryBuilder withThrowOnPolicyExceds() {
         this.throwOnPolicyExceeds = true;
@@ -47,30 +51,68 @@ public class EntryBuilder {
         return this;
     }
 
+    public EntryBuilder withTimeSource(TimeSource timeSource) {
+        this.timeSource = Objects.requireNonNull(timeSource);
+        return this;
+    }
+
+    /**
+     * Built entries reference the policy interned in policyRegistry instead of their own copy.
+     *
+     * @param policyRegistry
+     * @return EntryBuilder
+     */
+    public EntryBuilder withPolicyRegistry(PolicyRegistry policyRegistry) {
+        this.policyRegistry = Objects.requireNonNull(policyRegistry);
+        return this;
+    }
+
     public EntryBuilder withRecord(RateLimitRecord record) {
         this.record = record;
         return this;
     }
 
     protected RateLimitRecord buildRecord() {
+        return buildRecord(timeSource.now());
+    }
+
+    protected RateLimitRecord buildRecord(Instant now) {
         switch (rateLimitAlgorithm) {
             case SLIDING_WINDOW:
-                return SlidingWindowLogRecord.of(initialTokenCount, refillPolicy.getCapacity());
+                return SlidingWindowLogRecord.of(initialTokenCount, refillPolicy.getCapacity(), now);
+            case SLIDING_WINDOW_COUNTER:
+                return SlidingWindowCounterRecord.of(initialTokenCount, refillPolicy.getCapacity(), now);
             case TOKEN_BUCKET:
-                return TokenBucketRecord.from(initialTokenCount);
+                return MutableTokenBucketRecord.of(initialTokenCount, now);
+            case GCRA:
+                return GcraRecord.of(initialTokenCount, refillPolicy, now);
             case FIXED_WINDOW:
-                return FixedWindowRecord.of(initialTokenCount, Instant.now().plus(refillPolicy.getSamplingPeriod()));
+                return FixedWindowRecord.of(initialTokenCount, now.plus(refillPolicy.getSamplingPeriod()));
             default:
                 throw RateLimitExceptions.unsupportedTechnique();
         }
     }
 
     public RateLimitEntry build() {
-        RateLimitRecord buildRecord = record == null ? buildRecord() : record;
+        return build(record == null ? buildRecord() : record);
+    }
+
+    /**
+     * Builds an entry whose record starts at createdAt instead of the time source's current time.
+     *
+     * @param createdAt
+     * @return RateLimitEntry
+     */
+    public RateLimitEntry build(Instant createdAt) {
+        return build(record == null ? buildRecord(createdAt) : record);
+    }
+
+    private RateLimitEntry build(RateLimitRecord buildRecord) {
+        RefillPolicy refillPolicy = policyRegistry == null ? this.refillPolicy : policyRegistry.intern(this.refillPolicy);
         if (blockingStrategy != null) {
-            return new BlockingEntry(buildRecord, refillPolicy, blockingStrategy, throwOnPolicyExceeds);
+            return new BlockingEntry(buildRecord, refillPolicy, blockingStrategy, throwOnPolicyExceeds, timeSource);
         } else {
-            return new NonBlockingEntry(buildRecord, refillPolicy, throwOnPolicyExceeds);
+            return new NonBlockingEntry(buildRecord, refillPolicy, throwOnPolicyExceeds, timeSource);
         }
     }
 
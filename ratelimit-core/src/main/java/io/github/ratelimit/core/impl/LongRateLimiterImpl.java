@@ -0,0 +1,57 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.LongEntryStorage;
+import io.github.ratelimit.core.LongRateLimiter;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class LongRateLimiterImpl implements LongRateLimiter {
+
+    private final LongEntryStorage entryStorage;
+
+    public LongRateLimiterImpl(LongEntryStorage entryStorage) {
+        this.entryStorage = entryStorage;
+    }
+
+    public static LongRateLimiterImpl withStorage(LongEntryStorage storage) {
+        return new LongRateLimiterImpl(storage);
+    }
+
+    @Override
+    public ConsumptionEntry conformRateLimitsWithConsumption(long identifier, int requestWeight)
+            throws RateLimiterException {
+        return entryStorage.conformRateLimits(identifier, requestWeight);
+    }
+
+    @Override
+    public Map<String, Long> getMissingTokenCounts(long identifier) throws RateLimiterException {
+        return getStats(identifier, (RateLimitEntry e) -> e.getMissingTokens());
+    }
+
+    @Override
+    public Map<String, Long> getTokenCounts(long identifier) throws RateLimiterException {
+        return getStats(identifier, (RateLimitEntry e) -> e.getTokenCount());
+    }
+
+    @Override
+    public LongEntryStorage getStorage() {
+        return entryStorage;
+    }
+
+    private Map<String, Long> getStats(long identifier, Function<RateLimitEntry, Long> statFunction)
+            throws RateLimiterException {
+        List<RateLimitEntry> updated = entryStorage.getRefilledEntries(identifier);
+
+        Map<String, Long> statMap = new HashMap<>(4);
+        for (RateLimitEntry entry : updated) {
+            statMap.put(entry.getRefillPolicy().getSamplingPeriod().toString(), statFunction.apply(entry));
+        }
+        return statMap;
+    }
+
+}
@@ -0,0 +1,39 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.TimeSource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TimeSource which only moves when told to. Intended for tests.
+ */
+public final class ManualTimeSource implements TimeSource {
+
+    private final AtomicLong currentTimeNanos;
+
+    public ManualTimeSource() {
+        this(Instant.now());
+    }
+
+    public ManualTimeSource(Instant start) {
+        this.currentTimeNanos = new AtomicLong(start.getEpochSecond() * 1_000_000_000L + start.getNano());
+    }
+
+    public ManualTimeSource set(Instant timestamp) {
+        currentTimeNanos.set(timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano());
+        return this;
+    }
+
+    public ManualTimeSource advance(Duration duration) {
+        currentTimeNanos.addAndGet(duration.toNanos());
+        return this;
+    }
+
+    @Override
+    public long currentTimeNanos() {
+        return currentTimeNanos.get();
+    }
+
+}
@@ -0,0 +1,29 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.TimeSource;
+
+import java.time.Instant;
+
+/**
+ * TimeSource backed by System.nanoTime anchored to the wall clock once on creation.
+ * Never goes backwards, but does not follow wall clock adjustments made after creation.
+ */
+public final class MonotonicTimeSource implements TimeSource {
+
+    public static final MonotonicTimeSource INSTANCE = new MonotonicTimeSource();
+
+    private final long epochNanosAtStart;
+    private final long nanoTimeAtStart;
+
+    public MonotonicTimeSource() {
+        Instant now = Instant.now();
+        this.nanoTimeAtStart = System.nanoTime();
+        this.epochNanosAtStart = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    @Override
+    public long currentTimeNanos() {
+        return epochNanosAtStart + (System.nanoTime() - nanoTimeAtStart);
+    }
+
+}
@@ -3,6 +3,7 @@ package io.github.ratelimit.core.impl;
 import io.github.ratelimit.core.RateLimitEntry;
 import io.github.ratelimit.core.RateLimitRecord;
 import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
 
 import java.time.Instant;
 
@@ -21,6 +22,11 @@ public class NonBlockingEntry extends AbstractEntry {
         super(record, policy, throwOnPolicyExceed);
     }
 
+    public NonBlockingEntry(RateLimitRecord record, RefillPolicy policy, boolean throwOnPolicyExceed,
+                            TimeSource timeSource) {
+        super(record, policy, throwOnPolicyExceed, timeSource);
+    }
+
     @Override
     public boolean tryConsume(long numTokens) {
         return tryConsumeTokens(numTokens);
@@ -28,7 +34,7 @@ public class NonBlockingEntry extends AbstractEntry {
 
     @Override
     public RateLimitEntry update(Instant timestamp) {
-        return new NonBlockingEntry(record.updateWith(policy, timestamp), policy);
+        return new NonBlockingEntry(record.updateWith(policy, timestamp), policy, throwOnPolicyExceds, timeSource);
     }
 
     @Override
@@ -0,0 +1,132 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RefillPolicy;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns refill policies and assigns each one a small integer id, so the millions of entries sharing a handful
+ * of policies reference one RegisteredRefillPolicy instance and serialize only its id.
+ * <p>
+ * Ids are resolved against the default registry when entries are deserialized. Register the same policies under
+ * the same ids on every node, e.g. with registerAll(getPolicies()) from a replicated copy, before serving requests.
+ */
+public class PolicyRegistry {
+
+    public static final int MAX_POLICY_ID = (1 << 16) - 1;
+
+    private static final PolicyRegistry DEFAULT = new PolicyRegistry();
+
+    private final ConcurrentMap<SimpleRefillPolicy, RegisteredRefillPolicy> byPolicy = new ConcurrentHashMap<>();
+    private volatile RegisteredRefillPolicy[] byId = new RegisteredRefillPolicy[16];
+    private int nextPolicyId;
+
+    public static PolicyRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param policy
+     * @return RegisteredRefillPolicy interned instance equal to policy, registered under the next free id if new
+     */
+    public RegisteredRefillPolicy intern(RefillPolicy policy) {
+        if (policy instanceof RegisteredRefillPolicy && get(((RegisteredRefillPolicy) policy).getPolicyId()) == policy) {
+            return (RegisteredRefillPolicy) policy;
+        }
+        SimpleRefillPolicy key = keyOf(policy);
+        RegisteredRefillPolicy registered = byPolicy.get(key);
+        if (registered != null) {
+            return registered;
+        }
+        synchronized (this) {
+            registered = byPolicy.get(key);
+            if (registered != null) {
+                return registered;
+            }
+            while (nextPolicyId < byId.length && byId[nextPolicyId] != null) {
+                nextPolicyId++;
+            }
+            return register(nextPolicyId, policy);
+        }
+    }
+
+    /**
+     * @param policyId id to register the policy under
+     * @param policy
+     * @return RegisteredRefillPolicy registered instance
+     * @throws IllegalArgumentException if policyId is taken by a different policy
+     */
+    public synchronized RegisteredRefillPolicy register(int policyId, RefillPolicy policy) {
+        if (policyId < 0 || policyId > MAX_POLICY_ID) {
+            throw RateLimitExceptions.invalidPolicyId(policyId, MAX_POLICY_ID);
+        }
+        RegisteredRefillPolicy existing = get(policyId);
+        SimpleRefillPolicy key = keyOf(policy);
+        if (existing != null) {
+            if (!existing.equals(key)) {
+                throw RateLimitExceptions.policyIdConflict(policyId, existing);
+            }
+            return existing;
+        }
+
+        RegisteredRefillPolicy registered = new RegisteredRefillPolicy(policyId, policy.getCapacity(),
+                policy.getSamplingPeriod());
+        RegisteredRefillPolicy[] policies = byId;
+        if (policyId >= policies.length) {
+            RegisteredRefillPolicy[] grown = new RegisteredRefillPolicy[Math.max(policyId + 1, policies.length * 2)];
+            System.arraycopy(policies, 0, grown, 0, policies.length);
+            policies = grown;
+        } else {
+            policies = policies.clone();
+        }
+        policies[policyId] = registered;
+        byId = policies;
+        byPolicy.putIfAbsent(key, registered);
+        return registered;
+    }
+
+    public void registerAll(Map<Integer, ? extends RefillPolicy> policies) {
+        for (Map.Entry<Integer, ? extends RefillPolicy> entry : policies.entrySet()) {
+            register(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @param policyId
+     * @return RegisteredRefillPolicy or null if policyId is not registered
+     */
+    public RegisteredRefillPolicy get(int policyId) {
+        RegisteredRefillPolicy[] policies = byId;
+        return policyId >= 0 && policyId < policies.length ? policies[policyId] : null;
+    }
+
+    /**
+     * @return Map<Integer, RefillPolicy> snapshot of registered policies by id
+     */
+    public Map<Integer, RefillPolicy> getPolicies() {
+        RegisteredRefillPolicy[] policies = byId;
+        Map<Integer, RefillPolicy> snapshot = new LinkedHashMap<>();
+        for (int i = 0; i < policies.length; i++) {
+            if (policies[i] != null) {
+                snapshot.put(i, SimpleRefillPolicy.withRefill(policies[i].getCapacity(),
+                        policies[i].getSamplingPeriod()));
+            }
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    private static SimpleRefillPolicy keyOf(RefillPolicy policy) {
+        Objects.requireNonNull(policy);
+        if (policy instanceof SimpleRefillPolicy) {
+            return (SimpleRefillPolicy) policy;
+        }
+        return SimpleRefillPolicy.withRefill(policy.getCapacity(), policy.getSamplingPeriod());
+    }
+
+}
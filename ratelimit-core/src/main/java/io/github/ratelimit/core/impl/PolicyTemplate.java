@@ -0,0 +1,84 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.RefillPolicy;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Policies and algorithm of the entries an identifier starts with, filled at the time they are created. Policies are
+ * kept as given, so entries share RegisteredRefillPolicy instances and keep custom refill behaviour; intern them
+ * through PolicyRegistry beforehand to canonicalize them. Serializing a template requires serializable policies.
+ */
+public final class PolicyTemplate implements Serializable {
+
+    private static final long serialVersionUID = 6244164271437503172L;
+
+    private final List<RefillPolicy> policies;
+    private final RateLimitAlgorithm algorithm;
+
+    public PolicyTemplate(List<? extends RefillPolicy> policies, RateLimitAlgorithm algorithm) {
+        List<RefillPolicy> copies = new ArrayList<>(policies.size());
+        for (RefillPolicy policy : policies) {
+            copies.add(Objects.requireNonNull(policy));
+        }
+        this.policies = Collections.unmodifiableList(copies);
+        this.algorithm = Objects.requireNonNull(algorithm);
+    }
+
+    public static PolicyTemplate of(RefillPolicy... policies) {
+        return new PolicyTemplate(Arrays.asList(policies), RateLimitAlgorithm.TOKEN_BUCKET);
+    }
+
+    public List<RefillPolicy> getPolicies() {
+        return policies;
+    }
+
+    public RateLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @param createdAt
+     * @return List new mutable list of filled entries, one per policy
+     */
+    public List<RateLimitEntry> createEntries(Instant createdAt) {
+        List<RateLimitEntry> entries = new ArrayList<>(policies.size());
+        for (int i = 0; i < policies.size(); i++) {
+            entries.add(RateLimiting.entryBuilder().withAlgorithm(algorithm).withRefillPolicy(policies.get(i))
+                    .filled().build(createdAt));
+        }
+        return entries;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PolicyTemplate that = (PolicyTemplate) o;
+        return policies.equals(that.policies) && algorithm == that.algorithm;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(policies, algorithm);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PolicyTemplate{policies=%s, algorithm=%s}", policies, algorithm);
+    }
+
+}
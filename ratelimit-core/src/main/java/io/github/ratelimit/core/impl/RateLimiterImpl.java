@@ -45,7 +45,7 @@ public class RateLimiterImpl implements RateLimiter {
 
     private Map<String, Long> getStats(String identifier, Function<RateLimitEntry, Long> statFunction)
             throws RateLimiterException {
-        List<RateLimitEntry> updated = entryStorage.getUpdateEntries(identifier);
+        List<RateLimitEntry> updated = entryStorage.getRefilledEntries(identifier);
 
         Map<String, Long> statMap = new HashMap<>(4);
         for (RateLimitEntry entry : updated) {
@@ -0,0 +1,102 @@
+package io.github.ratelimit.core.impl;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Duration;
+
+/**
+ * SimpleRefillPolicy interned in a PolicyRegistry. Policies of the default PolicyRegistry are serialized as their
+ * policy id only and resolved against the default PolicyRegistry of the node that reads it, so all nodes must
+ * register the same policies under the same ids. Policies of other registries are serialized in full and read as
+ * SimpleRefillPolicy, as ids mean nothing outside their registry. Per-policy constants are computed once at
+ * registration.
+ */
+public class RegisteredRefillPolicy extends SimpleRefillPolicy {
+
+    private static final long serialVersionUID = -5106347765620254410L;
+
+    private static final int UNREGISTERED_ID = -1;
+
+    private int policyId;
+    private long samplingPeriodNanos;
+    private long nanosBetweenRefills;
+
+    public RegisteredRefillPolicy() {
+    }
+
+    RegisteredRefillPolicy(int policyId, int capacity, Duration samplingPeriod) {
+        super(capacity, samplingPeriod);
+        this.policyId = policyId;
+        computeConstants();
+    }
+
+    private void computeConstants() {
+        this.samplingPeriodNanos = samplingPeriod.toNanos();
+        this.nanosBetweenRefills = capacity == 0 ? Long.MAX_VALUE : samplingPeriodNanos / capacity;
+    }
+
+    public int getPolicyId() {
+        return policyId;
+    }
+
+    /**
+     * @return boolean whether this is the instance registered under its id in the default PolicyRegistry, so the id
+     * alone identifies it on every node
+     */
+    public boolean isInDefaultRegistry() {
+        return PolicyRegistry.getDefault().get(policyId) == this;
+    }
+
+    public long getSamplingPeriodNanos() {
+        return samplingPeriodNanos;
+    }
+
+    @Override
+    public long getNanosBetweenRefills() {
+        return nanosBetweenRefills;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        if (isInDefaultRegistry()) {
+            out.writeInt(policyId);
+            return;
+        }
+        out.writeInt(UNREGISTERED_ID);
+        out.writeInt(capacity);
+        out.writeLong(samplingPeriod.toNanos());
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        policyId = in.readInt();
+        if (policyId == UNREGISTERED_ID) {
+            capacity = in.readInt();
+            samplingPeriod = Duration.ofNanos(in.readLong());
+            computeConstants();
+            return;
+        }
+        RegisteredRefillPolicy registered = PolicyRegistry.getDefault().get(policyId);
+        if (registered == null) {
+            throw new InvalidObjectException("Policy id " + policyId + " is not registered on this node");
+        }
+        capacity = registered.capacity;
+        samplingPeriod = registered.samplingPeriod;
+        computeConstants();
+    }
+
+    /**
+     * @return the interned instance when deserialized, so all entries share one policy object per id, or a
+     * SimpleRefillPolicy for policies of a registry other than the default one
+     */
+    protected Object readResolve() {
+        if (policyId == UNREGISTERED_ID) {
+            return SimpleRefillPolicy.withRefill(capacity, samplingPeriod);
+        }
+        RegisteredRefillPolicy registered = PolicyRegistry.getDefault().get(policyId);
+        return registered != null ? registered : this;
+    }
+
+}
@@ -32,6 +32,35 @@ public class SimpleRefillPolicy implements RefillPolicy, Externalizable {
         return samplingPeriod;
     }
 
+    /**
+     * Number of tokens the policy distributes over the elapsed time. Built-in policies are computed directly on
+     * nanos, any other policy through its own {@link RefillPolicy#distributeNewTokens(Duration)}.
+     *
+     * @param policy       policy to refill with
+     * @param nanosElapsed nanos from last distribution
+     * @return long number of tokens to distribute, never negative
+     */
+    public static long distributeNewTokens(RefillPolicy policy, long nanosElapsed) {
+        if (nanosElapsed <= 0) {
+            return 0L;
+        }
+        Class<?> policyClass = policy.getClass();
+        if (policyClass != SimpleRefillPolicy.class && policyClass != RegisteredRefillPolicy.class) {
+            return Math.max(0, policy.distributeNewTokens(Duration.ofNanos(nanosElapsed)));
+        }
+        long capacity = policy.getCapacity();
+        long samplingPeriodNanos = policyClass == RegisteredRefillPolicy.class
+                ? ((RegisteredRefillPolicy) policy).getSamplingPeriodNanos()
+                : policy.getSamplingPeriod().toNanos();
+        if (capacity == 0) {
+            return 0L;
+        }
+        if (nanosElapsed >= samplingPeriodNanos) {
+            return capacity;
+        }
+        return nanosElapsed * capacity / samplingPeriodNanos;
+    }
+
     public static SimpleRefillPolicy banPolicy() {
         return new SimpleRefillPolicy(0, Duration.ofSeconds(1));
     }
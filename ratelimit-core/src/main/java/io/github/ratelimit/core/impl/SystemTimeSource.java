@@ -0,0 +1,26 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.TimeSource;
+
+import java.time.Instant;
+
+/**
+ * Default TimeSource backed by the system wall clock. Consistent with Instant.now() and with
+ * timestamps produced on other nodes, which makes it the safe choice for distributed storage.
+ */
+public final class SystemTimeSource implements TimeSource {
+
+    public static final SystemTimeSource INSTANCE = new SystemTimeSource();
+
+    @Override
+    public long currentTimeNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    @Override
+    public Instant now() {
+        return Instant.now();
+    }
+
+}
@@ -0,0 +1,340 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.algorithm.FixedWindowRecord;
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
+import io.github.ratelimit.algorithm.TokenBucketRecord;
+import io.github.ratelimit.core.EntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe in-process EntryStorage. Every token bucket or fixed window policy is packed into a single long
+ * (24 bits of tokens, 40 bits of milliseconds since storage creation). Identifiers with one policy keep it in an
+ * AtomicLong, identifiers with several keep them in a copy-on-write long[] behind an AtomicReference, so every
+ * conform is a single lock-free CAS loop and concurrent requests never see a partially applied consumption.
+ * <p>
+ * Policies are limited to a capacity of 2^24 - 1 tokens and refills have millisecond resolution.
+ */
+public class AtomicEntryStorage implements EntryStorage {
+
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MAX_CAPACITY = (1L << (Long.SIZE - TIME_BITS)) - 1;
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final ConcurrentMap<String, PackedEntries> entries = new ConcurrentHashMap<>();
+    private final TimeSource timeSource;
+    private final long baseMillis;
+
+    public AtomicEntryStorage() {
+        this(SystemTimeSource.INSTANCE);
+    }
+
+    public AtomicEntryStorage(TimeSource timeSource) {
+        this.timeSource = Objects.requireNonNull(timeSource);
+        this.baseMillis = timeSource.currentTimeNanos() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public ConsumptionEntry conformRateLimits(String identifier, int requestWeight) {
+        PackedEntries packed = getOrStoreFallback(identifier);
+        if (packed == null) {
+            return ConsumptionEntry.conformant(0L);
+        }
+        return packed.conform(requestWeight, currentMillis());
+    }
+
+    @Override
+    public List<RateLimitEntry> getCurrentEntries(String identifier) {
+        PackedEntries packed = getOrStoreFallback(identifier);
+        if (packed == null) {
+            return Collections.emptyList();
+        }
+        return packed.toEntries();
+    }
+
+    @Override
+    public List<RateLimitEntry> getUpdateEntries(String identifier) {
+        PackedEntries packed = getOrStoreFallback(identifier);
+        if (packed == null) {
+            return Collections.emptyList();
+        }
+        packed.refill(currentMillis());
+        return packed.toEntries();
+    }
+
+    @Override
+    public List<RateLimitEntry> getRefilledEntries(String identifier) {
+        PackedEntries packed = getOrStoreFallback(identifier);
+        if (packed == null) {
+            return Collections.emptyList();
+        }
+        return packed.toRefilledEntries(currentMillis());
+    }
+
+    @Override
+    public void storeEntries(String identifier, List<RateLimitEntry> rateLimitEntries) {
+        entries.put(identifier, new PackedEntries(rateLimitEntries));
+    }
+
+    /**
+     * Removes the entries of every identifier.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public long getExecutionTimeout() {
+        return 0L;
+    }
+
+    protected List<RateLimitEntry> getFallbackEntries(String identifier) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the stored entries, or the fallback entries stored unless a concurrent request stored some first,
+     * or null when there are none
+     */
+    private PackedEntries getOrStoreFallback(String identifier) {
+        PackedEntries packed = entries.get(identifier);
+        if (packed != null) {
+            return packed;
+        }
+        List<RateLimitEntry> fallbackEntries = getFallbackEntries(identifier);
+        if (fallbackEntries.isEmpty()) {
+            return null;
+        }
+        PackedEntries fallback = new PackedEntries(fallbackEntries);
+        PackedEntries existing = entries.putIfAbsent(identifier, fallback);
+        return existing != null ? existing : fallback;
+    }
+
+    private long currentMillis() {
+        return timeSource.currentTimeNanos() / NANOS_PER_MILLI - baseMillis;
+    }
+
+    private long toStorageMillis(Instant timestamp) {
+        return Math.max(0L, timestamp.toEpochMilli() - baseMillis);
+    }
+
+    private Instant toInstant(long storageMillis) {
+        return Instant.ofEpochMilli(baseMillis + storageMillis);
+    }
+
+    private static long pack(long tokens, long millis) {
+        return (tokens << TIME_BITS) | (millis & TIME_MASK);
+    }
+
+    private static long tokensOf(long state) {
+        return state >>> TIME_BITS;
+    }
+
+    private static long millisOf(long state) {
+        return state & TIME_MASK;
+    }
+
+    private final class PackedEntries {
+
+        private final RefillPolicy[] policies;
+        private final boolean[] fixedWindow;
+        private final long[] capacities;
+        private final long[] samplingPeriodMillis;
+        private final AtomicLong single;
+        private final AtomicReference<long[]> multiple;
+
+        private PackedEntries(List<RateLimitEntry> rateLimitEntries) {
+            int size = rateLimitEntries.size();
+            this.policies = new RefillPolicy[size];
+            this.fixedWindow = new boolean[size];
+            this.capacities = new long[size];
+            this.samplingPeriodMillis = new long[size];
+            long[] state = new long[size];
+
+            for (int i = 0; i < size; i++) {
+                RateLimitEntry entry = rateLimitEntries.get(i);
+                RefillPolicy policy = entry.getRefillPolicy();
+                if (policy.getCapacity() > MAX_CAPACITY) {
+                    throw RateLimitExceptions.capacityExceedsLimit(policy.getCapacity(), MAX_CAPACITY);
+                }
+                policies[i] = policy;
+                capacities[i] = policy.getCapacity();
+                samplingPeriodMillis[i] = Math.max(1L, policy.getSamplingPeriod().toMillis());
+
+                RateLimitRecord record = entry.getRateLimitRecord();
+                long tokens = Math.max(0L, Math.min(record.getTokenCount(), capacities[i]));
+                if (record instanceof FixedWindowRecord) {
+                    fixedWindow[i] = true;
+                    state[i] = pack(tokens, toStorageMillis(((FixedWindowRecord) record).getWindowEnd()));
+                } else if (record instanceof TokenBucketRecord) {
+                    Instant lastRefill = ((TokenBucketRecord) record).getLastTokenDistributedTs();
+                    state[i] = pack(tokens, toStorageMillis(lastRefill));
+                } else if (record instanceof MutableTokenBucketRecord) {
+                    long lastRefillNanos = ((MutableTokenBucketRecord) record).getLastTokenDistributedNanos();
+                    state[i] = pack(tokens, Math.max(0L, lastRefillNanos / NANOS_PER_MILLI - baseMillis));
+                } else {
+                    throw RateLimitExceptions.unsupportedTechnique();
+                }
+            }
+            this.single = size == 1 ? new AtomicLong(state[0]) : null;
+            this.multiple = size == 1 ? null : new AtomicReference<>(state);
+        }
+
+        private long refilled(int i, long current, long now) {
+            long tokens = tokensOf(current);
+            long millis = millisOf(current);
+            long capacity = capacities[i];
+            long periodMillis = samplingPeriodMillis[i];
+
+            if (fixedWindow[i]) {
+                if (now <= millis) {
+                    return current;
+                }
+                long windowsPassed = (now - millis) / periodMillis + 1;
+                return pack(capacity, millis + windowsPassed * periodMillis);
+            }
+
+            long newTokens = SimpleRefillPolicy.distributeNewTokens(policies[i], (now - millis) * NANOS_PER_MILLI);
+            if (newTokens == 0) {
+                return current;
+            }
+            long refilledTokens = Math.min(capacity, tokens + newTokens);
+            long lastRefill = refilledTokens == capacity
+                    ? now
+                    : Math.min(now, millis + newTokens * periodMillis / capacity);
+            return pack(refilledTokens, lastRefill);
+        }
+
+        private long nanosToConsumption(int i, long refilled, long requestWeight, long now) {
+            long capacity = capacities[i];
+            if (requestWeight > capacity) {
+                return Long.MAX_VALUE;
+            }
+            long elapsedNanos = (now - millisOf(refilled)) * NANOS_PER_MILLI;
+            if (fixedWindow[i]) {
+                return -elapsedNanos;
+            }
+            long missingTokens = requestWeight - tokensOf(refilled);
+            long nanosBetweenRefills = policies[i].getNanosBetweenRefills();
+            return Math.max(0L, missingTokens * nanosBetweenRefills - elapsedNanos);
+        }
+
+        private ConsumptionEntry conform(int requestWeight, long now) {
+            if (single != null) {
+                return conformSingle(requestWeight, now);
+            }
+            int size = policies.length;
+            while (true) {
+                long[] current = multiple.get();
+                long[] updated = new long[size];
+                int violated = -1;
+                long violatedNanos = 0L;
+                long minRemaining = Long.MAX_VALUE;
+                for (int i = 0; i < size; i++) {
+                    updated[i] = refilled(i, current[i], now);
+                    long tokens = tokensOf(updated[i]);
+                    if (tokens < requestWeight) {
+                        long nanos = nanosToConsumption(i, updated[i], requestWeight, now);
+                        if (violated == -1 || nanos > violatedNanos) {
+                            violated = i;
+                            violatedNanos = nanos;
+                        }
+                    } else if (violated == -1) {
+                        minRemaining = Math.min(minRemaining, tokens - requestWeight);
+                    }
+                }
+
+                if (violated != -1) {
+                    return ConsumptionEntry.rejected(tokensOf(updated[violated]), violatedNanos, policies[violated]);
+                }
+                for (int i = 0; i < size; i++) {
+                    updated[i] = pack(tokensOf(updated[i]) - requestWeight, millisOf(updated[i]));
+                }
+                if (multiple.compareAndSet(current, updated)) {
+                    return ConsumptionEntry.conformant(minRemaining);
+                }
+            }
+        }
+
+        private ConsumptionEntry conformSingle(int requestWeight, long now) {
+            while (true) {
+                long current = single.get();
+                long updated = refilled(0, current, now);
+                long tokens = tokensOf(updated);
+                if (tokens < requestWeight) {
+                    return ConsumptionEntry.rejected(tokens, nanosToConsumption(0, updated, requestWeight, now),
+                            policies[0]);
+                }
+                if (single.compareAndSet(current, pack(tokens - requestWeight, millisOf(updated)))) {
+                    return ConsumptionEntry.conformant(tokens - requestWeight);
+                }
+            }
+        }
+
+        private void refill(long now) {
+            if (single != null) {
+                while (true) {
+                    long current = single.get();
+                    long updated = refilled(0, current, now);
+                    if (updated == current || single.compareAndSet(current, updated)) {
+                        return;
+                    }
+                }
+            }
+            while (true) {
+                long[] current = multiple.get();
+                long[] updated = new long[current.length];
+                boolean changed = false;
+                for (int i = 0; i < current.length; i++) {
+                    updated[i] = refilled(i, current[i], now);
+                    changed |= updated[i] != current[i];
+                }
+                if (!changed || multiple.compareAndSet(current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        private List<RateLimitEntry> toEntries() {
+            return toRefilledEntries(-1L);
+        }
+
+        /**
+         * @param now storage millis to refill the returned entries to, or -1 for the stored state
+         */
+        private List<RateLimitEntry> toRefilledEntries(long now) {
+            long[] state = single != null ? new long[]{single.get()} : multiple.get();
+            List<RateLimitEntry> rateLimitEntries = new ArrayList<>(policies.length);
+            for (int i = 0; i < policies.length; i++) {
+                long current = now < 0 ? state[i] : refilled(i, state[i], now);
+                Instant timestamp = toInstant(millisOf(current));
+                RateLimitRecord record = fixedWindow[i]
+                        ? FixedWindowRecord.of(tokensOf(current), timestamp)
+                        : MutableTokenBucketRecord.of(tokensOf(current), timestamp);
+                rateLimitEntries.add(new NonBlockingEntry(record, policies[i], false, timeSource));
+            }
+            return rateLimitEntries;
+        }
+
+    }
+
+}
@@ -0,0 +1,233 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thread-safe in-memory backend which forgets idle keys and holds at most maxKeys keys.
+ * <p>
+ * A key becomes idle once every policy in its entries would be refilled to capacity, as such entries hold no
+ * more information than fresh ones, but not before minIdleTime since its last access, so freshly stored entries
+ * are not dropped before their first consumption. Every access sweeps a few keys from a cursor over the map and drops the idle
+ * ones, so cleanup is amortized and the map is never scanned at once. When maxKeys is exceeded, a sample of keys
+ * is probed and an idle key is evicted if one is found, otherwise the least recently accessed one of the sample.
+ * <p>
+ * Evicted keys are reported as not found, so this backend is meant to be used with an EntryStorage which
+ * recreates entries through getFallbackEntries, or with commands which create them, such as
+ * ConformRateLimitsOrInitialize. Commands returning the stored entries, such as GetEntries, return copies.
+ */
+public class BoundedInMemoryStorageBackend<K extends Serializable> implements StorageBackend<K> {
+
+    private static final int SWEEP_BATCH = 2;
+    private static final int EVICTION_SAMPLES = 8;
+    private static final Duration DEFAULT_MIN_IDLE_TIME = Duration.ofSeconds(1);
+
+    private final ConcurrentHashMap<K, Node> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final Object cursorLock = new Object();
+    private final TimeSource timeSource;
+    private final int maxKeys;
+    private final long minIdleNanos;
+
+    private Iterator<Map.Entry<K, Node>> cursor;
+
+    public BoundedInMemoryStorageBackend(int maxKeys) {
+        this(maxKeys, SystemTimeSource.INSTANCE);
+    }
+
+    public BoundedInMemoryStorageBackend(int maxKeys, TimeSource timeSource) {
+        this(maxKeys, DEFAULT_MIN_IDLE_TIME, timeSource);
+    }
+
+    public BoundedInMemoryStorageBackend(int maxKeys, Duration minIdleTime, TimeSource timeSource) {
+        if (maxKeys <= 0) {
+            throw RateLimitExceptions.nonPositiveNumber(maxKeys);
+        }
+        this.maxKeys = maxKeys;
+        this.minIdleNanos = minIdleTime.toNanos();
+        this.timeSource = Objects.requireNonNull(timeSource);
+    }
+
+    public <T> StorageBackendCommandResult<T> execute(K key, EntryStorageCommand<T> command) {
+        long nowNanos = timeSource.currentTimeNanos();
+        Instant now = Instant.ofEpochSecond(0L, nowNanos);
+        Object[] result = new Object[1];
+        boolean[] created = new boolean[1];
+        cache.compute(key, (k, node) -> {
+            if (node == null || node.entries.isEmpty()) {
+                List<RateLimitEntry> initialEntries = command.initialEntries(now);
+                if (initialEntries != null) {
+                    result[0] = copyIfStored(command.execute(initialEntries, now), initialEntries);
+                    created[0] = node == null;
+                    return new Node(initialEntries, nowNanos, idleDeadline(initialEntries, now, nowNanos));
+                } else if (node == null) {
+                    return null;
+                }
+            }
+            T data = command.execute(node.entries, now);
+            result[0] = copyIfStored(data, node.entries);
+            node.lastAccessNanos = nowNanos;
+            if (command.didMutate(data)) {
+                node.idleDeadlineNanos = idleDeadline(node.entries, now, nowNanos);
+            }
+            return node;
+        });
+        sweep(nowNanos, SWEEP_BATCH);
+        if (created[0]) {
+            evictOverflow(key, nowNanos);
+        }
+
+        @SuppressWarnings("unchecked")
+        T data = (T) result[0];
+        return data != null ? StorageBackendCommandResult.success(data)
+                : StorageBackendCommandResult.entriesNotFound();
+    }
+
+    @Override
+    public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(K key, EntryStorageCommand<T> command) {
+        return CompletableFuture.completedFuture(execute(key, command));
+    }
+
+    @Override
+    public CompletableFuture<Void> storeEntries(K key, List<RateLimitEntry> entries) {
+        long nowNanos = timeSource.currentTimeNanos();
+        Instant now = Instant.ofEpochSecond(0L, nowNanos);
+        cache.put(key, new Node(entries, nowNanos, idleDeadline(entries, now, nowNanos)));
+        sweep(nowNanos, SWEEP_BATCH);
+        evictOverflow(key, nowNanos);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeEntries(K key) {
+        cache.remove(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * @return int number of keys currently held, including idle keys not yet swept
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private static Object copyIfStored(Object data, List<RateLimitEntry> entries) {
+        return data == entries ? InMemoryStorageBackend.copyOf(entries) : data;
+    }
+
+    private long idleDeadline(List<RateLimitEntry> entries, Instant now, long nowNanos) {
+        long nanosToFull = minIdleNanos;
+        for (int i = 0; i < entries.size(); i++) {
+            RateLimitEntry entry = entries.get(i);
+            long missingTokens = entry.getMissingTokens();
+            if (missingTokens > 0) {
+                nanosToFull = Math.max(nanosToFull, entry.getNanosToConsumption(missingTokens, now));
+            }
+        }
+        if (nanosToFull > Long.MAX_VALUE - nowNanos) {
+            return Long.MAX_VALUE;
+        }
+        return nowNanos + nanosToFull;
+    }
+
+    private void sweep(long nowNanos, int batch) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < batch; i++) {
+                Map.Entry<K, Node> next = advanceCursor();
+                if (next == null) {
+                    return;
+                }
+                cache.computeIfPresent(next.getKey(), (k, node) -> node.isIdle(nowNanos) ? null : node);
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Evicts keys while more than maxKeys are held, stopping once a sample finds nothing to evict, such as when
+     * storedKey is the only key or concurrent calls evict the sampled keys first.
+     */
+    private void evictOverflow(K storedKey, long nowNanos) {
+        while (cache.size() > maxKeys && evictOne(storedKey, nowNanos)) {
+            // keep evicting
+        }
+    }
+
+    /**
+     * @return boolean whether a key was evicted
+     */
+    private boolean evictOne(K storedKey, long nowNanos) {
+        K candidate = null;
+        long candidateAccessNanos = Long.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLES; i++) {
+            Map.Entry<K, Node> next = advanceCursor();
+            if (next == null) {
+                return false;
+            }
+            K key = next.getKey();
+            Node node = next.getValue();
+            if (key.equals(storedKey)) {
+                continue;
+            }
+            if (node.isIdle(nowNanos)) {
+                candidate = key;
+                break;
+            }
+            if (node.lastAccessNanos < candidateAccessNanos) {
+                candidate = key;
+                candidateAccessNanos = node.lastAccessNanos;
+            }
+        }
+        return candidate != null && cache.remove(candidate) != null;
+    }
+
+    private Map.Entry<K, Node> advanceCursor() {
+        synchronized (cursorLock) {
+            if (cursor == null || !cursor.hasNext()) {
+                cursor = cache.entrySet().iterator();
+                if (!cursor.hasNext()) {
+                    return null;
+                }
+            }
+            return cursor.next();
+        }
+    }
+
+    private static final class Node {
+
+        private final List<RateLimitEntry> entries;
+        private volatile long lastAccessNanos;
+        private volatile long idleDeadlineNanos;
+
+        private Node(List<RateLimitEntry> entries, long lastAccessNanos, long idleDeadlineNanos) {
+            this.entries = Objects.requireNonNull(entries);
+            this.lastAccessNanos = lastAccessNanos;
+            this.idleDeadlineNanos = idleDeadlineNanos;
+        }
+
+        private boolean isIdle(long nowNanos) {
+            return idleDeadlineNanos <= nowNanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TierResolver decorator which remembers resolved tiers, including null ones, for ttl. When maxSize identifiers are
+ * remembered, expired ones are dropped first, then arbitrary ones, an eighth of maxSize at a time. Call invalidate
+ * when an identifier changes plan to pick up the new tier before ttl expires.
+ */
+public class CachingTierResolver implements TierResolver {
+
+    private final ConcurrentHashMap<String, Resolution> resolutions;
+    private final TierResolver delegate;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final TimeSource timeSource;
+
+    public CachingTierResolver(TierResolver delegate, Duration ttl, int maxSize) {
+        this(delegate, ttl, maxSize, SystemTimeSource.INSTANCE);
+    }
+
+    public CachingTierResolver(TierResolver delegate, Duration ttl, int maxSize, TimeSource timeSource) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw RateLimitExceptions.nonPositiveNumber(ttl.toNanos());
+        }
+        if (maxSize <= 0) {
+            throw RateLimitExceptions.nonPositiveNumber(maxSize);
+        }
+        this.resolutions = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+        this.delegate = Objects.requireNonNull(delegate);
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.timeSource = Objects.requireNonNull(timeSource);
+    }
+
+    @Override
+    public String resolveTier(String identifier) {
+        long nowNanos = timeSource.currentTimeNanos();
+        Resolution resolution = resolutions.get(identifier);
+        if (resolution != null && nowNanos - resolution.expiryNanos < 0L) {
+            return resolution.tierId;
+        }
+        String tierId = delegate.resolveTier(identifier);
+        if (resolution == null && resolutions.size() >= maxSize) {
+            evict(nowNanos);
+        }
+        resolutions.put(identifier, new Resolution(tierId, nowNanos + ttlNanos));
+        return tierId;
+    }
+
+    public void invalidate(String identifier) {
+        resolutions.remove(identifier);
+    }
+
+    public void invalidateAll() {
+        resolutions.clear();
+    }
+
+    /**
+     * @return int number of remembered identifiers, including expired ones not yet dropped
+     */
+    public int size() {
+        return resolutions.size();
+    }
+
+    private void evict(long nowNanos) {
+        int targetSize = maxSize - Math.max(1, maxSize / 8);
+        for (Iterator<Resolution> it = resolutions.values().iterator(); it.hasNext(); ) {
+            if (nowNanos - it.next().expiryNanos >= 0L) {
+                it.remove();
+            }
+        }
+        for (Iterator<String> it = resolutions.keySet().iterator(); it.hasNext() && resolutions.size() > targetSize; ) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Resolution {
+
+        private final String tierId;
+        private final long expiryNanos;
+
+        private Resolution(String tierId, long expiryNanos) {
+            this.tierId = tierId;
+            this.expiryNanos = expiryNanos;
+        }
+
+    }
+
+}
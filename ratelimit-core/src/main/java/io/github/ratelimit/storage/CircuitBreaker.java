@@ -0,0 +1,74 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Opens after failureThreshold consecutive failures and rejects calls for openDuration. Then a single probe call is
+ * let through (HALF_OPEN), which closes the breaker on success and opens it again on failure.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final TimeSource timeSource;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAtNanos;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, SystemTimeSource.INSTANCE);
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, TimeSource timeSource) {
+        if (failureThreshold <= 0) {
+            throw RateLimitExceptions.nonPositiveNumber(failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.timeSource = Objects.requireNonNull(timeSource);
+    }
+
+    /**
+     * @return boolean whether a call may go through, callers which get true must report onSuccess or onFailure
+     */
+    public boolean tryAcquire() {
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return timeSource.currentTimeNanos() - openedAtNanos >= openNanos
+                        && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            default:
+                return false;
+        }
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAtNanos = timeSource.currentTimeNanos();
+            consecutiveFailures.set(0);
+            state.set(State.OPEN);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+}
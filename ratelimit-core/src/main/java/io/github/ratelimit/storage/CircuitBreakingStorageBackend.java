@@ -0,0 +1,85 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * StorageBackend decorator which fails calls after a short deadline, well below distributedStorageBackendTimeout,
+ * and fails them at once while its CircuitBreaker is open, so callers don't wait on an unhealthy backend.
+ */
+public class CircuitBreakingStorageBackend<K extends Serializable> implements StorageBackend<K> {
+
+    private final StorageBackend<K> delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final long deadlineMillis;
+
+    public CircuitBreakingStorageBackend(StorageBackend<K> delegate, CircuitBreaker circuitBreaker,
+                                         Duration deadline) {
+        if (deadline.isNegative() || deadline.isZero()) {
+            throw RateLimitExceptions.nonPositiveNumber(deadline.toMillis());
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.circuitBreaker = Objects.requireNonNull(circuitBreaker);
+        this.deadlineMillis = Math.max(1L, deadline.toMillis());
+    }
+
+    @Override
+    public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(K key, EntryStorageCommand<T> command) {
+        return guard(() -> delegate.executeAsync(key, command));
+    }
+
+    @Override
+    public <T> CompletableFuture<Map<K, StorageBackendCommandResult<T>>> executeAllAsync(
+            Set<K> keys, EntryStorageCommand<T> command) {
+        return guard(() -> delegate.executeAllAsync(keys, command));
+    }
+
+    @Override
+    public CompletableFuture<Void> storeEntries(K key, List<RateLimitEntry> entries) {
+        return guard(() -> delegate.storeEntries(key, entries));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeEntries(K key) {
+        return guard(() -> delegate.removeEntries(key));
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private <T> CompletableFuture<T> guard(Supplier<CompletableFuture<T>> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(RateLimitExceptions.backendUnavailable());
+            return rejected;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = FutureTimeouts.within(call.get(), deadlineMillis);
+        } catch (RuntimeException ex) {
+            circuitBreaker.onFailure();
+            throw ex;
+        }
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        });
+        return future;
+    }
+
+}
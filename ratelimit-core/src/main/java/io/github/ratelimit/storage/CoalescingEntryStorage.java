@@ -0,0 +1,277 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.EntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-flight EntryStorage decorator for hot identifiers. While a conform of an identifier is in flight, later
+ * conforms of the same identifier queue up, and once it returns the queued requests are sent together as one
+ * conformRateLimitsSequence by the first of the waiting callers. Each caller gets its own ConsumptionEntry, with
+ * requests consumed in arrival order.
+ * <p>
+ * Queued callers wait at most the delegate's execution timeout to be sent, and fail with a RateLimiterException
+ * once it passes.
+ * <p>
+ * Only conformRateLimits is coalesced, other methods go straight to the delegate.
+ */
+public class CoalescingEntryStorage implements EntryStorage {
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 128;
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final EntryStorage delegate;
+    private final int maxBatchSize;
+
+    public CoalescingEntryStorage(EntryStorage delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public CoalescingEntryStorage(EntryStorage delegate, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw RateLimitExceptions.nonPositiveNumber(maxBatchSize);
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public static CoalescingEntryStorage of(EntryStorage delegate) {
+        return new CoalescingEntryStorage(delegate);
+    }
+
+    @Override
+    public ConsumptionEntry conformRateLimits(String identifier, int requestWeight) throws RateLimiterException {
+        Request request = new Request(requestWeight);
+        Flight flight;
+        List<Request> batch;
+        while (true) {
+            flight = flights.computeIfAbsent(identifier, key -> new Flight());
+            synchronized (flight) {
+                if (flight.retired) {
+                    continue;
+                }
+                if (flight.inFlight) {
+                    flight.queued.add(request);
+                    batch = null;
+                } else {
+                    flight.inFlight = true;
+                    batch = Collections.singletonList(request);
+                }
+            }
+            break;
+        }
+        if (batch == null) {
+            batch = request.awaitTurn(flight, delegate.getExecutionTimeout());
+        }
+        if (batch != null) {
+            send(identifier, flight, batch);
+        }
+        return request.get();
+    }
+
+    private void send(String identifier, Flight flight, List<Request> batch) {
+        try {
+            int[] requestWeights = new int[batch.size()];
+            for (int i = 0; i < requestWeights.length; i++) {
+                requestWeights[i] = batch.get(i).requestWeight;
+            }
+            List<ConsumptionEntry> consumptions = delegate.conformRateLimitsSequence(identifier, requestWeights);
+            for (int i = 0; i < requestWeights.length; i++) {
+                batch.get(i).complete(consumptions.get(i));
+            }
+        } catch (RateLimiterException ex) {
+            failAll(batch, ex);
+        } catch (RuntimeException ex) {
+            failAll(batch, new RateLimiterException(ex.getMessage(), ex));
+        } finally {
+            failPending(batch);
+            handOver(identifier, flight);
+        }
+    }
+
+    /**
+     * Fails requests an Error left without a result, so their callers don't wait forever.
+     */
+    private static void failPending(List<Request> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).failIfPending();
+        }
+    }
+
+    private void handOver(String identifier, Flight flight) {
+        List<Request> next;
+        synchronized (flight) {
+            if (flight.queued.isEmpty()) {
+                flight.retired = true;
+                flights.remove(identifier, flight);
+                return;
+            }
+            int batchSize = Math.min(maxBatchSize, flight.queued.size());
+            List<Request> taken = flight.queued.subList(0, batchSize);
+            next = new ArrayList<>(taken);
+            taken.clear();
+        }
+        next.get(0).lead(next);
+    }
+
+    private static void failAll(List<Request> batch, RateLimiterException ex) {
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).fail(ex);
+        }
+    }
+
+    @Override
+    public List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights)
+            throws RateLimiterException {
+        return delegate.conformRateLimitsSequence(identifier, requestWeights);
+    }
+
+    @Override
+    public Map<String, ConsumptionEntry> conformRateLimitsBatch(Map<String, Integer> requestWeights)
+            throws RateLimiterException {
+        return delegate.conformRateLimitsBatch(requestWeights);
+    }
+
+    @Override
+    public List<RateLimitEntry> getCurrentEntries(String identifier) throws RateLimiterException {
+        return delegate.getCurrentEntries(identifier);
+    }
+
+    @Override
+    public List<RateLimitEntry> getUpdateEntries(String identifier) throws RateLimiterException {
+        return delegate.getUpdateEntries(identifier);
+    }
+
+    @Override
+    public List<RateLimitEntry> getRefilledEntries(String identifier) throws RateLimiterException {
+        return delegate.getRefilledEntries(identifier);
+    }
+
+    @Override
+    public void storeEntries(String identifier, List<RateLimitEntry> entries) throws RateLimiterException {
+        delegate.storeEntries(identifier, entries);
+    }
+
+    @Override
+    public long getExecutionTimeout() {
+        return delegate.getExecutionTimeout();
+    }
+
+    /**
+     * Conforms of one identifier. Guarded by its own monitor, retired once nothing is in flight or queued.
+     */
+    private static final class Flight {
+
+        private final List<Request> queued = new ArrayList<>();
+        private boolean inFlight;
+        private boolean retired;
+
+    }
+
+    private static final class Request {
+
+        private final int requestWeight;
+        private ConsumptionEntry consumption;
+        private RateLimiterException failure;
+        private List<Request> batch;
+        private boolean done;
+
+        private Request(int requestWeight) {
+            this.requestWeight = requestWeight;
+        }
+
+        synchronized void complete(ConsumptionEntry consumption) {
+            this.consumption = consumption;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized void fail(RateLimiterException failure) {
+            this.failure = failure;
+            this.done = true;
+            notifyAll();
+        }
+
+        synchronized void failIfPending() {
+            if (!done) {
+                fail(new RateLimiterException("Coalesced conform did not complete", null));
+            }
+        }
+
+        synchronized void lead(List<Request> batch) {
+            this.batch = batch;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the request is completed by another caller, or handed a batch to send. A request still queued
+         * after timeoutMillis is removed from the queue and failed. Requests already taken into a batch keep
+         * waiting, as its sender completes them.
+         *
+         * @return List<Request> batch to send, null if the request was completed or failed
+         */
+        List<Request> awaitTurn(Flight flight, long timeoutMillis) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            boolean interrupted = false;
+            try {
+                synchronized (this) {
+                    long remaining;
+                    while (!done && batch == null && (remaining = deadline - System.nanoTime()) > 0L) {
+                        try {
+                            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                        } catch (InterruptedException ex) {
+                            interrupted = true;
+                        }
+                    }
+                    if (done || batch != null) {
+                        return done ? null : batch;
+                    }
+                }
+                boolean dequeued;
+                synchronized (flight) {
+                    dequeued = flight.queued.remove(this);
+                }
+                if (dequeued) {
+                    fail(new RateLimiterException("Coalesced conform was not sent within " + timeoutMillis + "ms",
+                            new TimeoutException()));
+                    return null;
+                }
+                synchronized (this) {
+                    while (!done && batch == null) {
+                        try {
+                            wait();
+                        } catch (InterruptedException ex) {
+                            interrupted = true;
+                        }
+                    }
+                    return done ? null : batch;
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        synchronized ConsumptionEntry get() throws RateLimiterException {
+            if (failure != null) {
+                throw failure;
+            }
+            return consumption;
+        }
+
+    }
+
+}
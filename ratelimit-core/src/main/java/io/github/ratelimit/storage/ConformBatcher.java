@@ -0,0 +1,174 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.storage.command.ConformRateLimitsSequence;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Collects conforms of any identifiers for a short window, or until maxBatchSize requests, and sends them with
+ * StorageBackend.executeAllAsync, which backends execute in one operation per storage node. Conforms of the same
+ * identifier within a window are sent as one ConformRateLimitsSequence, in arrival order.
+ * <p>
+ * The caller which opens a batch waits out the window and sends it, the caller which fills a batch sends it at once.
+ */
+final class ConformBatcher {
+
+    private final StorageBackend<String> storageBackend;
+    private final Function<String, List<RateLimitEntry>> fallbackEntries;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private List<Request> pending;
+
+    ConformBatcher(StorageBackend<String> storageBackend, Function<String, List<RateLimitEntry>> fallbackEntries,
+                   long windowNanos, int maxBatchSize) {
+        this.storageBackend = storageBackend;
+        this.fallbackEntries = fallbackEntries;
+        this.windowNanos = windowNanos;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    CompletableFuture<ConsumptionEntry> submit(String identifier, int requestWeight) {
+        Request request = new Request(identifier, requestWeight);
+        List<Request> batch;
+        List<Request> full = null;
+        synchronized (this) {
+            boolean opened = pending == null;
+            if (opened) {
+                pending = new ArrayList<>(Math.min(maxBatchSize, 64));
+            }
+            batch = pending;
+            batch.add(request);
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                pending = null;
+            } else if (!opened) {
+                return request.future;
+            }
+        }
+        if (full == null) {
+            awaitWindow();
+            synchronized (this) {
+                if (pending != batch) {
+                    return request.future;
+                }
+                pending = null;
+            }
+            full = batch;
+        }
+        send(full);
+        return request.future;
+    }
+
+    private void awaitWindow() {
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining = windowNanos;
+        while (remaining > 0L) {
+            LockSupport.parkNanos(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private void send(List<Request> batch) {
+        Map<String, List<Request>> requestsByIdentifier = new LinkedHashMap<>(batch.size() * 2);
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            requestsByIdentifier.computeIfAbsent(request.identifier, identifier -> new ArrayList<>(1)).add(request);
+        }
+        Map<List<Integer>, Set<String>> identifiersByWeights = new HashMap<>(4);
+        for (Map.Entry<String, List<Request>> requests : requestsByIdentifier.entrySet()) {
+            List<Integer> requestWeights = new ArrayList<>(requests.getValue().size());
+            for (Request request : requests.getValue()) {
+                requestWeights.add(request.requestWeight);
+            }
+            identifiersByWeights.computeIfAbsent(requestWeights, weights -> new LinkedHashSet<>())
+                    .add(requests.getKey());
+        }
+        for (Map.Entry<List<Integer>, Set<String>> group : identifiersByWeights.entrySet()) {
+            send(group.getValue(), group.getKey(), requestsByIdentifier);
+        }
+    }
+
+    private void send(Set<String> identifiers, List<Integer> requestWeights,
+                      Map<String, List<Request>> requestsByIdentifier) {
+        int[] weights = new int[requestWeights.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = requestWeights.get(i);
+        }
+        CompletableFuture<Map<String, StorageBackendCommandResult<List<ConsumptionEntry>>>> futureResults;
+        try {
+            futureResults = storageBackend.executeAllAsync(identifiers, new ConformRateLimitsSequence(weights));
+        } catch (RuntimeException ex) {
+            for (String identifier : identifiers) {
+                failAll(requestsByIdentifier.get(identifier), ex);
+            }
+            return;
+        }
+        futureResults.whenComplete((commandResults, ex) -> {
+            for (String identifier : identifiers) {
+                List<Request> requests = requestsByIdentifier.get(identifier);
+                if (ex != null) {
+                    failAll(requests, ex);
+                    continue;
+                }
+                StorageBackendCommandResult<List<ConsumptionEntry>> commandResult = commandResults.get(identifier);
+                if (commandResult == null || !commandResult.containsEntries()) {
+                    storeFallbackEntries(identifier, requests);
+                } else {
+                    List<ConsumptionEntry> consumptions = commandResult.getData();
+                    for (int i = 0; i < requests.size(); i++) {
+                        requests.get(i).future.complete(consumptions.get(i));
+                    }
+                }
+            }
+        });
+    }
+
+    private void storeFallbackEntries(String identifier, List<Request> requests) {
+        try {
+            storageBackend.storeEntries(identifier, fallbackEntries.apply(identifier)).whenComplete((stored, ex) -> {
+                if (ex != null) {
+                    failAll(requests, ex);
+                    return;
+                }
+                for (int i = 0; i < requests.size(); i++) {
+                    requests.get(i).future.complete(ConsumptionEntry.conformant(0L));
+                }
+            });
+        } catch (RuntimeException ex) {
+            failAll(requests, ex);
+        }
+    }
+
+    private static void failAll(List<Request> requests, Throwable ex) {
+        for (int i = 0; i < requests.size(); i++) {
+            requests.get(i).future.completeExceptionally(ex);
+        }
+    }
+
+    private static final class Request {
+
+        private final String identifier;
+        private final int requestWeight;
+        private final CompletableFuture<ConsumptionEntry> future = new CompletableFuture<>();
+
+        private Request(String identifier, int requestWeight) {
+            this.identifier = identifier;
+            this.requestWeight = requestWeight;
+        }
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.github.ratelimit.storage;
+
+/**
+ * How DegradingEntryStorage answers conforms while its delegate fails.
+ */
+public enum DegradationMode {
+
+    /**
+     * Every request conforms.
+     */
+    FAIL_OPEN,
+
+    /**
+     * Every request is rejected.
+     */
+    FAIL_CLOSED,
+
+    /**
+     * Requests are limited in-process to a fraction of each policy.
+     */
+    LOCAL_LIMIT
+
+}
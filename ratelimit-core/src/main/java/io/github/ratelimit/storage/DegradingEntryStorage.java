@@ -0,0 +1,240 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.EntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * EntryStorage decorator which answers conforms according to a DegradationMode when the delegate fails, instead of
+ * throwing RateLimiterException. Combined with a CircuitBreakingStorageBackend under the delegate, conforms are
+ * answered at once while the backend is unhealthy.
+ * <p>
+ * In LOCAL_LIMIT mode every identifier is limited by an in-process AtomicEntryStorage to localFraction of each of
+ * its policies, as resolved by localPolicies. The local limits are cleared once the delegate has answered every conform
+ * for recoveryPeriod, so a single half-open probe does not reset them while the backend is still flapping, and they
+ * only hold identifiers seen during the last outage. Reads and stores are not degraded.
+ * <p>
+ * Degraded conforms are logged at FINE, rejections of an open circuit breaker without a stack trace.
+ */
+public class DegradingEntryStorage implements EntryStorage {
+
+    private static final Logger LOGGER = Logger.getLogger(DegradingEntryStorage.class.getName());
+
+    public static final Duration DEFAULT_RECOVERY_PERIOD = Duration.ofMinutes(1);
+
+    private static final long HEALTHY = Long.MIN_VALUE;
+    private static final long DEGRADED = Long.MAX_VALUE;
+
+    private final EntryStorage delegate;
+    private final DegradationMode mode;
+    private final LocalStorage localStorage;
+    private final TimeSource timeSource;
+    private final long recoveryNanos;
+    /**
+     * HEALTHY, DEGRADED, or the nanos of the first answered conform since the last degraded one.
+     */
+    private final AtomicLong recoveringSince = new AtomicLong(HEALTHY);
+
+    public DegradingEntryStorage(EntryStorage delegate, DegradationMode mode) {
+        this(delegate, mode, identifier -> Collections.emptyList(), 1.0d, SystemTimeSource.INSTANCE);
+    }
+
+    public DegradingEntryStorage(EntryStorage delegate, DegradationMode mode,
+                                 Function<String, List<RefillPolicy>> localPolicies, double localFraction,
+                                 TimeSource timeSource) {
+        this(delegate, mode, localPolicies, localFraction, DEFAULT_RECOVERY_PERIOD, timeSource);
+    }
+
+    public DegradingEntryStorage(EntryStorage delegate, DegradationMode mode,
+                                 Function<String, List<RefillPolicy>> localPolicies, double localFraction,
+                                 Duration recoveryPeriod, TimeSource timeSource) {
+        if (!(localFraction > 0.0d && localFraction <= 1.0d)) {
+            throw RateLimitExceptions.invalidFraction(localFraction);
+        }
+        if (recoveryPeriod.isNegative()) {
+            throw RateLimitExceptions.nonPositiveNumber(recoveryPeriod.toMillis());
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.mode = Objects.requireNonNull(mode);
+        this.timeSource = Objects.requireNonNull(timeSource);
+        this.recoveryNanos = recoveryPeriod.toNanos();
+        this.localStorage = mode == DegradationMode.LOCAL_LIMIT
+                ? new LocalStorage(localPolicies, localFraction, timeSource) : null;
+    }
+
+    public static DegradingEntryStorage failOpen(EntryStorage delegate) {
+        return new DegradingEntryStorage(delegate, DegradationMode.FAIL_OPEN);
+    }
+
+    public static DegradingEntryStorage failClosed(EntryStorage delegate) {
+        return new DegradingEntryStorage(delegate, DegradationMode.FAIL_CLOSED);
+    }
+
+    public static DegradingEntryStorage localLimit(EntryStorage delegate,
+                                                   Function<String, List<RefillPolicy>> localPolicies,
+                                                   double localFraction) {
+        return new DegradingEntryStorage(delegate, DegradationMode.LOCAL_LIMIT, localPolicies, localFraction,
+                SystemTimeSource.INSTANCE);
+    }
+
+    @Override
+    public ConsumptionEntry conformRateLimits(String identifier, int requestWeight) throws RateLimiterException {
+        try {
+            ConsumptionEntry consumption = delegate.conformRateLimits(identifier, requestWeight);
+            recovered();
+            return consumption;
+        } catch (RateLimiterException ex) {
+            logDegraded("conformRateLimits for user: " + identifier, ex);
+            return degrade(identifier, requestWeight);
+        }
+    }
+
+    @Override
+    public List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights)
+            throws RateLimiterException {
+        try {
+            List<ConsumptionEntry> consumptions = delegate.conformRateLimitsSequence(identifier, requestWeights);
+            recovered();
+            return consumptions;
+        } catch (RateLimiterException ex) {
+            logDegraded("conformRateLimitsSequence for user: " + identifier, ex);
+            List<ConsumptionEntry> consumptions = new ArrayList<>(requestWeights.length);
+            for (int requestWeight : requestWeights) {
+                consumptions.add(degrade(identifier, requestWeight));
+            }
+            return consumptions;
+        }
+    }
+
+    @Override
+    public Map<String, ConsumptionEntry> conformRateLimitsBatch(Map<String, Integer> requestWeights)
+            throws RateLimiterException {
+        try {
+            Map<String, ConsumptionEntry> consumptions = delegate.conformRateLimitsBatch(requestWeights);
+            recovered();
+            return consumptions;
+        } catch (RateLimiterException ex) {
+            logDegraded("conformRateLimitsBatch for users: " + requestWeights.keySet(), ex);
+            Map<String, ConsumptionEntry> consumptions = new LinkedHashMap<>(requestWeights.size() * 2);
+            for (Map.Entry<String, Integer> requestWeight : requestWeights.entrySet()) {
+                consumptions.put(requestWeight.getKey(), degrade(requestWeight.getKey(), requestWeight.getValue()));
+            }
+            return consumptions;
+        }
+    }
+
+    private ConsumptionEntry degrade(String identifier, int requestWeight) throws RateLimiterException {
+        if (localStorage != null) {
+            recoveringSince.set(DEGRADED);
+        }
+        switch (mode) {
+            case FAIL_OPEN:
+                return ConsumptionEntry.conformant(0L);
+            case FAIL_CLOSED:
+                return ConsumptionEntry.rejected(0L, 0L, SimpleRefillPolicy.banPolicy());
+            default:
+                return localStorage.conformRateLimits(identifier, requestWeight);
+        }
+    }
+
+    private void recovered() {
+        long since = recoveringSince.get();
+        if (since == HEALTHY) {
+            return;
+        }
+        long now = timeSource.currentTimeNanos();
+        if (since == DEGRADED) {
+            recoveringSince.compareAndSet(DEGRADED, now);
+        } else if (now - since >= recoveryNanos && recoveringSince.compareAndSet(since, HEALTHY)) {
+            localStorage.clear();
+        }
+    }
+
+    private static void logDegraded(String operation, RateLimiterException ex) {
+        if (!LOGGER.isLoggable(Level.FINE)) {
+            return;
+        }
+        if (RateLimitExceptions.isBackendUnavailable(ex)) {
+            LOGGER.log(Level.FINE, "Degrading " + operation + ": " + ex.getMessage());
+        } else {
+            LOGGER.log(Level.FINE, "Degrading " + operation, ex);
+        }
+    }
+
+    @Override
+    public List<RateLimitEntry> getCurrentEntries(String identifier) throws RateLimiterException {
+        return delegate.getCurrentEntries(identifier);
+    }
+
+    @Override
+    public List<RateLimitEntry> getUpdateEntries(String identifier) throws RateLimiterException {
+        return delegate.getUpdateEntries(identifier);
+    }
+
+    @Override
+    public List<RateLimitEntry> getRefilledEntries(String identifier) throws RateLimiterException {
+        return delegate.getRefilledEntries(identifier);
+    }
+
+    @Override
+    public void storeEntries(String identifier, List<RateLimitEntry> entries) throws RateLimiterException {
+        delegate.storeEntries(identifier, entries);
+    }
+
+    @Override
+    public long getExecutionTimeout() {
+        return delegate.getExecutionTimeout();
+    }
+
+    /**
+     * Local limiter, which creates the scaled down policies of an identifier on its first degraded conform.
+     */
+    private static final class LocalStorage extends AtomicEntryStorage {
+
+        private final Function<String, List<RefillPolicy>> localPolicies;
+        private final double localFraction;
+        private final TimeSource timeSource;
+
+        private LocalStorage(Function<String, List<RefillPolicy>> localPolicies, double localFraction,
+                             TimeSource timeSource) {
+            super(timeSource);
+            this.localPolicies = Objects.requireNonNull(localPolicies);
+            this.localFraction = localFraction;
+            this.timeSource = timeSource;
+        }
+
+        @Override
+        protected List<RateLimitEntry> getFallbackEntries(String identifier) {
+            List<RefillPolicy> policies = localPolicies.apply(identifier);
+            List<RateLimitEntry> entries = new ArrayList<>(policies.size());
+            for (RefillPolicy policy : policies) {
+                int capacity = policy.getCapacity() == 0 ? 0 : Math.max(1, (int) (policy.getCapacity() * localFraction));
+                entries.add(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.withRefill(capacity, policy.getSamplingPeriod()))
+                        .filled().build());
+            }
+            return entries;
+        }
+
+    }
+
+}
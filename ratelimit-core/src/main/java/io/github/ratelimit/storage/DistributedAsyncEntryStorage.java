@@ -0,0 +1,96 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.AsyncEntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * AsyncEntryStorage over a StorageBackend. Results are composed on the backend futures and timeouts are scheduled,
+ * so no thread is parked while the backend executes.
+ */
+public class DistributedAsyncEntryStorage implements AsyncEntryStorage {
+
+    private static final Logger LOGGER = Logger.getLogger(DistributedAsyncEntryStorage.class.getName());
+
+    protected final StorageBackend<String> storageBackend;
+
+    public DistributedAsyncEntryStorage(StorageBackend<String> storageBackend) {
+        this.storageBackend = storageBackend;
+    }
+
+    @Override
+    public CompletionStage<ConsumptionEntry> conformRateLimits(String identifier, int requestWeight) {
+        return handleAsyncResult("conformRateLimits", identifier,
+                storageBackend.conformsRateLimitsWithStatus(identifier, requestWeight),
+                () -> ConsumptionEntry.conformant(0L));
+    }
+
+    @Override
+    public CompletionStage<List<RateLimitEntry>> getCurrentEntries(String identifier) {
+        return handleAsyncResult("getCurrentEntries", identifier, storageBackend.getRateLimitEntries(identifier),
+                () -> getFallbackEntries(identifier));
+    }
+
+    @Override
+    public CompletionStage<List<RateLimitEntry>> getRefilledEntries(String identifier) {
+        return handleAsyncResult("getRefilledEntries", identifier,
+                storageBackend.getRefilledRateLimitEntries(identifier), () -> getFallbackEntries(identifier));
+    }
+
+    @Override
+    public CompletionStage<Void> storeEntries(String identifier, List<RateLimitEntry> entries) {
+        return wrapFailure("storeEntries", identifier,
+                FutureTimeouts.within(storageBackend.storeEntries(identifier, entries), getExecutionTimeout()));
+    }
+
+    private <T> CompletableFuture<T> handleAsyncResult(String operation, String identifier,
+                                                       CompletableFuture<StorageBackendCommandResult<T>> futureResult,
+                                                       Supplier<? extends T> fallbackSupplier) {
+        CompletableFuture<T> result = FutureTimeouts.within(futureResult, getExecutionTimeout())
+                .thenCompose(commandResult -> {
+                    if (!commandResult.containsEntries()) {
+                        return FutureTimeouts.within(storageBackend.storeEntries(identifier,
+                                getFallbackEntries(identifier)), getExecutionTimeout())
+                                .<T>thenApply(stored -> fallbackSupplier.get());
+                    }
+                    return CompletableFuture.completedFuture(commandResult.getData());
+                });
+        return wrapFailure(operation, identifier, result);
+    }
+
+    private <T> CompletableFuture<T> wrapFailure(String operation, String identifier, CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, ex) -> {
+            if (ex == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            RateLimitExceptions.logFailure(LOGGER,
+                    "Something went wrong while " + operation + " for user: " + identifier, cause);
+            result.completeExceptionally(new RateLimiterException(cause.getMessage(), cause));
+        });
+        return result;
+    }
+
+    @Override
+    public long getExecutionTimeout() {
+        return StorageCalls.STORAGE_TIMEOUT;
+    }
+
+    protected List<RateLimitEntry> getFallbackEntries(String identifier) {
+        return Collections.emptyList();
+    }
+
+}
@@ -2,96 +2,373 @@ package io.github.ratelimit.storage;
 
 import io.github.ratelimit.core.EntryStorage;
 import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
 import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.TimeSource;
 import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.ConformRateLimitsOrInitialize;
+import io.github.ratelimit.storage.command.ConformRateLimitsSequence;
 import io.github.ratelimit.storage.command.StorageBackendCommandResult;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class DistributedEntryStorage implements EntryStorage {
 
     private static final Logger LOGGER = Logger.getLogger(DistributedEntryStorage.class.getName());
 
-    private static final long STORAGE_TIMEOUT = Long.parseLong(System.getProperty("distributedStorageBackendTimeout", "500"));
-
     protected final StorageBackend<String> storageBackend;
+    private final ConformBatcher conformBatcher;
+    private final NegativeCache negativeCache;
 
     public DistributedEntryStorage(StorageBackend<String> storageBackend) {
-        this.storageBackend = storageBackend;
+        this(builder(storageBackend));
+    }
+
+    /**
+     * Same as builder(storageBackend).withMicroBatching(batchWindow, maxBatchSize).build();
+     */
+    public DistributedEntryStorage(StorageBackend<String> storageBackend, Duration batchWindow, int maxBatchSize) {
+        this(builder(storageBackend).withMicroBatching(batchWindow, maxBatchSize));
+    }
+
+    protected DistributedEntryStorage(Builder builder) {
+        this.storageBackend = builder.storageBackend;
+        this.conformBatcher = builder.batchWindow == null ? null : new ConformBatcher(storageBackend,
+                this::getFallbackEntriesOfUnknown, builder.batchWindow.toNanos(), builder.maxBatchSize);
+        this.negativeCache = builder.negativeCacheTtl == null ? null : new NegativeCache(
+                builder.negativeCacheTtl.toNanos(), builder.negativeCacheSize, builder.timeSource);
+    }
+
+    public static DistributedEntryStorage withMicroBatching(StorageBackend<String> storageBackend,
+                                                            Duration batchWindow, int maxBatchSize) {
+        return new DistributedEntryStorage(storageBackend, batchWindow, maxBatchSize);
+    }
+
+    public static Builder builder(StorageBackend<String> storageBackend) {
+        return new Builder(storageBackend);
     }
 
     @Override
     public List<RateLimitEntry> getCurrentEntries(String identifier) throws RateLimiterException {
+        if (isUnconfigured(identifier)) {
+            return getFallbackEntries(identifier);
+        }
         Future<StorageBackendCommandResult<List<RateLimitEntry>>> entries = storageBackend
                 .getRateLimitEntries(identifier);
         try {
             return handleAsyncResult(identifier, entries, () -> getFallbackEntries(identifier));
         } catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, "Something went wrong while getCurrentEntries for user: " + identifier, ex);
-            throw new RateLimiterException(ex.getMessage(), ex.getCause());
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while getCurrentEntries for user: " + identifier, ex);
         }
     }
 
     @Override
     public List<RateLimitEntry> getUpdateEntries(String identifier) throws RateLimiterException {
+        if (isUnconfigured(identifier)) {
+            return getFallbackEntries(identifier);
+        }
         Future<StorageBackendCommandResult<List<RateLimitEntry>>> entries = storageBackend
                 .getUpdateRateLimitEntries(identifier);
         try {
             return handleAsyncResult(identifier, entries, () -> getFallbackEntries(identifier));
         } catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, "Something went wrong while getUpdateEntries for user: " + identifier, ex);
-            throw new RateLimiterException(ex.getMessage(), ex.getCause());
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while getUpdateEntries for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public List<RateLimitEntry> getRefilledEntries(String identifier) throws RateLimiterException {
+        if (isUnconfigured(identifier)) {
+            return getFallbackEntries(identifier);
+        }
+        Future<StorageBackendCommandResult<List<RateLimitEntry>>> entries = storageBackend
+                .getRefilledRateLimitEntries(identifier);
+        try {
+            return handleAsyncResult(identifier, entries, () -> getFallbackEntries(identifier));
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while getRefilledEntries for user: " + identifier, ex);
         }
     }
 
     @Override
     public ConsumptionEntry conformRateLimits(String identifier, int requestWeight)
             throws RateLimiterException {
+        if (isUnconfigured(identifier)) {
+            return ConsumptionEntry.conformant(0L);
+        }
+        if (conformBatcher != null) {
+            try {
+                return conformBatcher.submit(identifier, requestWeight)
+                        .get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
+            } catch (Exception ex) {
+                throw StorageCalls.failure(LOGGER,
+                        "Something went wrong while conformUpdateRateLimits for user: " + identifier, ex);
+            }
+        }
         Future<StorageBackendCommandResult<ConsumptionEntry>> commandResult = storageBackend
                 .conformsRateLimitsWithStatus(identifier, requestWeight);
         try {
             return handleAsyncResult(identifier, commandResult, () -> ConsumptionEntry.conformant(0L));
         } catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, "Something went wrong while conformUpdateRateLimits for user: " + identifier, ex);
-            throw new RateLimiterException(ex.getMessage(), ex.getCause());
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformUpdateRateLimits for user: " + identifier, ex);
+        }
+    }
+
+    /**
+     * Conforms identifier, creating its entries from template in the same backend execution if it has none, so a
+     * new identifier costs one round trip and concurrent first requests can't overwrite each other's entries.
+     * getFallbackEntries is not consulted.
+     *
+     * @param identifier
+     * @param requestWeight
+     * @param template      policies the identifier starts with
+     * @return ConsumptionEntry
+     * @throws RateLimiterException
+     */
+    public ConsumptionEntry conformRateLimits(String identifier, int requestWeight, PolicyTemplate template)
+            throws RateLimiterException {
+        try {
+            StorageBackendCommandResult<ConsumptionEntry> commandResult = storageBackend
+                    .executeAsync(identifier, new ConformRateLimitsOrInitialize(requestWeight, template))
+                    .get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
+            if (negativeCache != null) {
+                negativeCache.remove(identifier);
+            }
+            return commandResult.containsEntries() ? commandResult.getData() : ConsumptionEntry.conformant(0L);
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformRateLimits for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights)
+            throws RateLimiterException {
+        Supplier<List<ConsumptionEntry>> fallbackSupplier = () -> {
+            List<ConsumptionEntry> consumptions = new ArrayList<>(requestWeights.length);
+            for (int i = 0; i < requestWeights.length; i++) {
+                consumptions.add(ConsumptionEntry.conformant(0L));
+            }
+            return consumptions;
+        };
+        if (isUnconfigured(identifier)) {
+            return fallbackSupplier.get();
+        }
+        Future<StorageBackendCommandResult<List<ConsumptionEntry>>> commandResult = storageBackend
+                .executeAsync(identifier, new ConformRateLimitsSequence(requestWeights));
+        try {
+            return handleAsyncResult(identifier, commandResult, fallbackSupplier);
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformRateLimitsSequence for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public Map<String, ConsumptionEntry> conformRateLimitsBatch(Map<String, Integer> requestWeights)
+            throws RateLimiterException {
+        Set<String> unconfigured = new HashSet<>();
+        Map<Integer, Set<String>> identifiersByWeight = new HashMap<>(4);
+        for (Map.Entry<String, Integer> requestWeight : requestWeights.entrySet()) {
+            if (isUnconfigured(requestWeight.getKey())) {
+                unconfigured.add(requestWeight.getKey());
+                continue;
+            }
+            identifiersByWeight.computeIfAbsent(requestWeight.getValue(), weight -> new HashSet<>())
+                    .add(requestWeight.getKey());
+        }
+        List<Future<Map<String, StorageBackendCommandResult<ConsumptionEntry>>>> futureResults =
+                new ArrayList<>(identifiersByWeight.size());
+        for (Map.Entry<Integer, Set<String>> identifiers : identifiersByWeight.entrySet()) {
+            futureResults.add(storageBackend.executeAllAsync(identifiers.getValue(),
+                    new ConformRateLimits(identifiers.getKey())));
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getExecutionTimeout());
+            Map<String, StorageBackendCommandResult<ConsumptionEntry>> commandResults =
+                    new HashMap<>(requestWeights.size() * 2);
+            for (Future<Map<String, StorageBackendCommandResult<ConsumptionEntry>>> futureResult : futureResults) {
+                long remaining = Math.max(0L, deadline - System.nanoTime());
+                commandResults.putAll(futureResult.get(remaining, TimeUnit.NANOSECONDS));
+            }
+
+            Map<String, ConsumptionEntry> consumptions = new LinkedHashMap<>(requestWeights.size() * 2);
+            List<String> missing = new ArrayList<>();
+            for (String identifier : requestWeights.keySet()) {
+                StorageBackendCommandResult<ConsumptionEntry> commandResult = commandResults.get(identifier);
+                if (unconfigured.contains(identifier)) {
+                    consumptions.put(identifier, ConsumptionEntry.conformant(0L));
+                } else if (commandResult == null || !commandResult.containsEntries()) {
+                    missing.add(identifier);
+                    consumptions.put(identifier, ConsumptionEntry.conformant(0L));
+                } else {
+                    consumptions.put(identifier, commandResult.getData());
+                }
+            }
+            storeFallbackEntries(missing, deadline);
+            return consumptions;
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformRateLimitsBatch for users: " + requestWeights.keySet(), ex);
         }
     }
 
     @Override
     public void storeEntries(String identifier, List<RateLimitEntry> entries) throws RateLimiterException {
+        if (negativeCache != null) {
+            negativeCache.remove(identifier);
+        }
         try {
             storageBackend.storeEntries(identifier, entries).get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
         } catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, "Something went wrong while storingEntries for user: " + identifier, ex);
-            throw new RateLimiterException(ex.getMessage(), ex.getCause());
+            throw StorageCalls.failure(LOGGER, "Something went wrong while storingEntries for user: " + identifier, ex);
         }
     }
 
-    private <T> T handleAsyncResult(String identifier, Future<StorageBackendCommandResult<T>> futureResult, Supplier<? extends T>
-            fallbackSupplier) throws Exception {
-        StorageBackendCommandResult<T> commandResult = futureResult.get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
-        if (!commandResult.containsEntries()) {
+    private <T> T handleAsyncResult(String identifier, Future<StorageBackendCommandResult<T>> futureResult,
+                                    Supplier<? extends T> fallbackSupplier) throws Exception {
+        return StorageCalls.resultOrFallback(futureResult, getExecutionTimeout(), () -> storeFallbackEntries(identifier),
+                fallbackSupplier);
+    }
+
+    private void storeFallbackEntries(String identifier) throws RateLimiterException {
+        List<RateLimitEntry> fallbackEntries = getFallbackEntries(identifier);
+        storeEntries(identifier, fallbackEntries);
+        rememberIfUnconfigured(identifier, fallbackEntries);
+    }
+
+    /**
+     * Stores the fallback entries of all identifiers at once and waits for them until deadline, so a batch costs
+     * one more round trip however many identifiers it is missing.
+     */
+    private void storeFallbackEntries(List<String> identifiers, long deadline) throws Exception {
+        if (identifiers.isEmpty()) {
+            return;
+        }
+        CompletableFuture<?>[] stores = new CompletableFuture<?>[identifiers.size()];
+        for (int i = 0; i < stores.length; i++) {
+            String identifier = identifiers.get(i);
             List<RateLimitEntry> fallbackEntries = getFallbackEntries(identifier);
-            storeEntries(identifier, fallbackEntries);
-            return fallbackSupplier.get();
+            if (negativeCache != null) {
+                negativeCache.remove(identifier);
+            }
+            stores[i] = storageBackend.storeEntries(identifier, fallbackEntries);
+            rememberIfUnconfigured(identifier, fallbackEntries);
         }
-        return commandResult.getData();
+        long remaining = Math.max(0L, deadline - System.nanoTime());
+        CompletableFuture.allOf(stores).get(remaining, TimeUnit.NANOSECONDS);
+    }
 
+    private List<RateLimitEntry> getFallbackEntriesOfUnknown(String identifier) {
+        List<RateLimitEntry> fallbackEntries = getFallbackEntries(identifier);
+        rememberIfUnconfigured(identifier, fallbackEntries);
+        return fallbackEntries;
+    }
+
+    private void rememberIfUnconfigured(String identifier, List<RateLimitEntry> fallbackEntries) {
+        if (negativeCache != null && fallbackEntries.isEmpty()) {
+            negativeCache.add(identifier);
+        }
+    }
+
+    private boolean isUnconfigured(String identifier) {
+        return negativeCache != null && negativeCache.contains(identifier);
     }
 
     @Override
     public long getExecutionTimeout() {
-        return STORAGE_TIMEOUT;
+        return StorageCalls.STORAGE_TIMEOUT;
     }
 
     protected List<RateLimitEntry> getFallbackEntries(String identifier) {
         return Collections.emptyList();
     }
 
+    public static final class Builder {
+
+        private final StorageBackend<String> storageBackend;
+        private Duration batchWindow;
+        private int maxBatchSize;
+        private Duration negativeCacheTtl;
+        private int negativeCacheSize;
+        private TimeSource timeSource = SystemTimeSource.INSTANCE;
+
+        private Builder(StorageBackend<String> storageBackend) {
+            this.storageBackend = Objects.requireNonNull(storageBackend);
+        }
+
+        /**
+         * Micro-batching mode: conforms of any identifiers are collected for up to batchWindow, or until
+         * maxBatchSize requests, and sent with StorageBackend.executeAllAsync. Trades up to batchWindow of added
+         * latency per conform for fewer backend operations.
+         *
+         * @param batchWindow  how long a batch collects conforms
+         * @param maxBatchSize conforms after which a batch is sent before its window ends
+         * @return Builder
+         */
+        public Builder withMicroBatching(Duration batchWindow, int maxBatchSize) {
+            if (batchWindow.isNegative() || batchWindow.isZero()) {
+                throw RateLimitExceptions.nonPositiveNumber(batchWindow.toNanos());
+            }
+            if (maxBatchSize <= 0) {
+                throw RateLimitExceptions.nonPositiveNumber(maxBatchSize);
+            }
+            this.batchWindow = batchWindow;
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Remembers identifiers without entries and empty fallback entries for ttl, and answers them locally:
+         * conforms conform and reads return the fallback entries. storeEntries forgets the identifier on this
+         * node, other nodes pick up new entries once ttl expires.
+         *
+         * @param ttl     how long an identifier is remembered
+         * @param maxSize maximum number of remembered identifiers
+         * @return Builder
+         */
+        public Builder withNegativeCache(Duration ttl, int maxSize) {
+            if (ttl.isNegative() || ttl.isZero()) {
+                throw RateLimitExceptions.nonPositiveNumber(ttl.toNanos());
+            }
+            if (maxSize <= 0) {
+                throw RateLimitExceptions.nonPositiveNumber(maxSize);
+            }
+            this.negativeCacheTtl = ttl;
+            this.negativeCacheSize = maxSize;
+            return this;
+        }
+
+        public Builder withTimeSource(TimeSource timeSource) {
+            this.timeSource = Objects.requireNonNull(timeSource);
+            return this;
+        }
+
+        public DistributedEntryStorage build() {
+            return new DistributedEntryStorage(this);
+        }
+
+    }
+
 }
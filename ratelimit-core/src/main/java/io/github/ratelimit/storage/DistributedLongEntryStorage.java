@@ -0,0 +1,98 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.LongEntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+public class DistributedLongEntryStorage implements LongEntryStorage {
+
+    private static final Logger LOGGER = Logger.getLogger(DistributedLongEntryStorage.class.getName());
+
+    protected final LongStorageBackend storageBackend;
+
+    public DistributedLongEntryStorage(LongStorageBackend storageBackend) {
+        this.storageBackend = storageBackend;
+    }
+
+    @Override
+    public List<RateLimitEntry> getCurrentEntries(long identifier) throws RateLimiterException {
+        Future<StorageBackendCommandResult<List<RateLimitEntry>>> entries = storageBackend
+                .getRateLimitEntries(identifier);
+        try {
+            return handleAsyncResult(identifier, entries, () -> getFallbackEntries(identifier));
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while getCurrentEntries for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public List<RateLimitEntry> getUpdateEntries(long identifier) throws RateLimiterException {
+        Future<StorageBackendCommandResult<List<RateLimitEntry>>> entries = storageBackend
+                .getUpdateRateLimitEntries(identifier);
+        try {
+            return handleAsyncResult(identifier, entries, () -> getFallbackEntries(identifier));
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while getUpdateEntries for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public List<RateLimitEntry> getRefilledEntries(long identifier) throws RateLimiterException {
+        Future<StorageBackendCommandResult<List<RateLimitEntry>>> entries = storageBackend
+                .getRefilledRateLimitEntries(identifier);
+        try {
+            return handleAsyncResult(identifier, entries, () -> getFallbackEntries(identifier));
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while getRefilledEntries for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public ConsumptionEntry conformRateLimits(long identifier, int requestWeight) throws RateLimiterException {
+        Future<StorageBackendCommandResult<ConsumptionEntry>> commandResult = storageBackend
+                .conformsRateLimitsWithStatus(identifier, requestWeight);
+        try {
+            return handleAsyncResult(identifier, commandResult, () -> ConsumptionEntry.conformant(0L));
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformUpdateRateLimits for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public void storeEntries(long identifier, List<RateLimitEntry> entries) throws RateLimiterException {
+        try {
+            storageBackend.storeEntries(identifier, entries).get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER, "Something went wrong while storingEntries for user: " + identifier, ex);
+        }
+    }
+
+    private <T> T handleAsyncResult(long identifier, Future<StorageBackendCommandResult<T>> futureResult,
+                                    Supplier<? extends T> fallbackSupplier) throws Exception {
+        return StorageCalls.resultOrFallback(futureResult, getExecutionTimeout(), () -> storeEntries(identifier, getFallbackEntries(identifier)),
+                fallbackSupplier);
+    }
+
+    @Override
+    public long getExecutionTimeout() {
+        return StorageCalls.STORAGE_TIMEOUT;
+    }
+
+    protected List<RateLimitEntry> getFallbackEntries(long identifier) {
+        return Collections.emptyList();
+    }
+
+}
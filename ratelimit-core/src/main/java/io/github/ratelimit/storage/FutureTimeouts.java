@@ -0,0 +1,48 @@
+package io.github.ratelimit.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking timeouts for CompletableFutures, Java 8 counterpart of CompletableFuture.orTimeout. A single daemon
+ * thread completes timed out futures, no thread waits for the result.
+ */
+final class FutureTimeouts {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ratelimit-future-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FutureTimeouts() {
+    }
+
+    /**
+     * @return CompletableFuture<T> completed with the result of future, or exceptionally with TimeoutException if
+     * future doesn't complete in timeoutMillis
+     */
+    static <T> CompletableFuture<T> within(CompletableFuture<T> future, long timeoutMillis) {
+        if (future.isDone()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> timeout = SCHEDULER.schedule(() -> result.completeExceptionally(
+                new TimeoutException("Storage backend did not respond in " + timeoutMillis + "ms")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((value, ex) -> {
+            timeout.cancel(false);
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+}
@@ -1,37 +1,129 @@
 package io.github.ratelimit.storage;
 
 import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+import io.github.ratelimit.storage.codec.EntryCodec;
 import io.github.ratelimit.storage.command.EntryStorageCommand;
 import io.github.ratelimit.storage.command.StorageBackendCommandResult;
 
 import java.io.Serializable;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InMemoryStorageBackend<K extends Serializable> implements StorageBackend<K> {
 
     private final Map<K, List<RateLimitEntry>> cache;
+    private final TimeSource timeSource;
+    private final Object[] locks;
 
     public InMemoryStorageBackend() {
-        this.cache = new HashMap<>();
+        this(new HashMap<>());
+    }
+
+    public InMemoryStorageBackend(TimeSource timeSource) {
+        this(new HashMap<>(), timeSource);
     }
 
     public InMemoryStorageBackend(Map<K, List<RateLimitEntry>> cache) {
+        this(cache, SystemTimeSource.INSTANCE);
+    }
+
+    public InMemoryStorageBackend(Map<K, List<RateLimitEntry>> cache, TimeSource timeSource) {
         this.cache = Objects.requireNonNull(cache);
+        this.timeSource = Objects.requireNonNull(timeSource);
+        this.locks = null;
+    }
+
+    /**
+     * Thread-safe backend: commands and stores for the same key are serialized on one of numStripes locks,
+     * while different keys proceed in parallel. Commands returning the stored entries, such as GetEntries,
+     * return copies taken under the lock, see copyOf.
+     *
+     * @param numStripes number of locks, rounded up to a power of two
+     * @param timeSource
+     */
+    public InMemoryStorageBackend(int numStripes, TimeSource timeSource) {
+        if (numStripes <= 0) {
+            throw RateLimitExceptions.nonPositiveNumber(numStripes);
+        }
+        this.cache = new ConcurrentHashMap<>();
+        this.timeSource = Objects.requireNonNull(timeSource);
+        this.locks = new Object[stripesFor(numStripes)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return thread-safe backend with 4 lock stripes per available processor
+     */
+    public static <K extends Serializable> InMemoryStorageBackend<K> concurrent() {
+        return concurrent(SystemTimeSource.INSTANCE);
+    }
+
+    public static <K extends Serializable> InMemoryStorageBackend<K> concurrent(TimeSource timeSource) {
+        return new InMemoryStorageBackend<>(4 * Runtime.getRuntime().availableProcessors(), timeSource);
+    }
+
+    private static int stripesFor(int numStripes) {
+        int stripes = 1;
+        while (stripes < numStripes) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    private Object lockFor(K key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
     }
 
     public <T> StorageBackendCommandResult<T> execute(K key, EntryStorageCommand<T> command) {
+        if (locks == null) {
+            return executeUnsynchronized(key, command);
+        }
+        synchronized (lockFor(key)) {
+            StorageBackendCommandResult<T> result = executeUnsynchronized(key, command);
+            if (result.containsEntries() && result.getData() == cache.get(key)) {
+                @SuppressWarnings("unchecked")
+                T entries = (T) copyOf(cache.get(key));
+                return StorageBackendCommandResult.success(entries);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return List copies of entries, see EntryCodec.copyEntries, or a copy of the list sharing entries EntryCodec
+     * can't copy
+     */
+    static List<RateLimitEntry> copyOf(List<RateLimitEntry> entries) {
+        List<RateLimitEntry> copies = EntryCodec.copyEntries(entries);
+        return copies != null ? copies : new ArrayList<>(entries);
+    }
+
+    private <T> StorageBackendCommandResult<T> executeUnsynchronized(K key, EntryStorageCommand<T> command) {
+        Instant now = timeSource.now();
         List<RateLimitEntry> entries = cache.get(key);
-        if (entries == null) {
-            return StorageBackendCommandResult.entriesNotFound();
+        if (entries == null || entries.isEmpty()) {
+            List<RateLimitEntry> initialEntries = command.initialEntries(now);
+            if (initialEntries != null) {
+                entries = initialEntries;
+                cache.put(key, entries);
+            } else if (entries == null) {
+                return StorageBackendCommandResult.entriesNotFound();
+            }
         }
 
-        T result = command.execute(entries, Instant.now());
+        T result = command.execute(entries, now);
         return result != null ? StorageBackendCommandResult.success(result)
                 : StorageBackendCommandResult.entriesNotFound();
     }
@@ -42,8 +134,26 @@ public class InMemoryStorageBackend<K extends Serializable> implements StorageBa
     }
 
     @Override
-    public Future<Void> storeEntries(K key, List<RateLimitEntry> entries) {
-        cache.put(key, entries);
+    public CompletableFuture<Void> storeEntries(K key, List<RateLimitEntry> entries) {
+        if (locks == null) {
+            cache.put(key, entries);
+        } else {
+            synchronized (lockFor(key)) {
+                cache.put(key, entries);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeEntries(K key) {
+        if (locks == null) {
+            cache.remove(key);
+        } else {
+            synchronized (lockFor(key)) {
+                cache.remove(key);
+            }
+        }
         return CompletableFuture.completedFuture(null);
     }
 
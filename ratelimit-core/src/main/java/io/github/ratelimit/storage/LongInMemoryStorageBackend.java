@@ -0,0 +1,117 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thread-safe in-memory LongStorageBackend. Entries are kept in an open-addressing map with primitive long keys,
+ * so identifiers are neither boxed nor hashed as objects.
+ */
+public class LongInMemoryStorageBackend implements LongStorageBackend {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final TimeSource timeSource;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongInMemoryStorageBackend() {
+        this(SystemTimeSource.INSTANCE);
+    }
+
+    public LongInMemoryStorageBackend(TimeSource timeSource) {
+        this.timeSource = Objects.requireNonNull(timeSource);
+        this.keys = new long[DEFAULT_CAPACITY];
+        this.values = new Object[DEFAULT_CAPACITY];
+    }
+
+    public synchronized <T> StorageBackendCommandResult<T> execute(long key, EntryStorageCommand<T> command) {
+        Instant now = timeSource.now();
+        List<RateLimitEntry> entries = get(key);
+        if (entries == null || entries.isEmpty()) {
+            List<RateLimitEntry> initialEntries = command.initialEntries(now);
+            if (initialEntries != null) {
+                entries = initialEntries;
+                storeEntries(key, entries);
+            } else if (entries == null) {
+                return StorageBackendCommandResult.entriesNotFound();
+            }
+        }
+
+        T result = command.execute(entries, now);
+        return result != null ? StorageBackendCommandResult.success(result)
+                : StorageBackendCommandResult.entriesNotFound();
+    }
+
+    @Override
+    public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(long key, EntryStorageCommand<T> command) {
+        return CompletableFuture.completedFuture(execute(key, command));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> storeEntries(long key, List<RateLimitEntry> entries) {
+        Objects.requireNonNull(entries);
+        int index = indexOf(key);
+        if (values[index] == null) {
+            if (size + 1 > keys.length / 4 * 3) {
+                resize();
+                index = indexOf(key);
+            }
+            keys[index] = key;
+            size++;
+        }
+        values[index] = entries;
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * @return int number of identifiers with stored entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<RateLimitEntry> get(long key) {
+        return (List<RateLimitEntry>) values[indexOf(key)];
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+}
@@ -0,0 +1,51 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.GetEntries;
+import io.github.ratelimit.storage.command.GetRefilledEntries;
+import io.github.ratelimit.storage.command.GetUpdateEntries;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * StorageBackend keyed by primitive long identifiers. Boxed Long keys are delegated to the primitive methods.
+ */
+public interface LongStorageBackend extends StorageBackend<Long> {
+
+    <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(long key, EntryStorageCommand<T> command);
+
+    CompletableFuture<Void> storeEntries(long key, List<RateLimitEntry> entries);
+
+    @Override
+    default <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(Long key, EntryStorageCommand<T> command) {
+        return executeAsync(key.longValue(), command);
+    }
+
+    @Override
+    default CompletableFuture<Void> storeEntries(Long key, List<RateLimitEntry> entries) {
+        return storeEntries(key.longValue(), entries);
+    }
+
+    default CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>> getUpdateRateLimitEntries(long key) {
+        return executeAsync(key, new GetUpdateEntries());
+    }
+
+    default CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>> getRefilledRateLimitEntries(long key) {
+        return executeAsync(key, new GetRefilledEntries());
+    }
+
+    default CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>> getRateLimitEntries(long key) {
+        return executeAsync(key, new GetEntries());
+    }
+
+    default CompletableFuture<StorageBackendCommandResult<ConsumptionEntry>> conformsRateLimitsWithStatus(long key,
+                                                                                                         int requestWeight) {
+        return executeAsync(key, new ConformRateLimits(requestWeight));
+    }
+
+}
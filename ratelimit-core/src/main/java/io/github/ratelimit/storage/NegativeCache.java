@@ -0,0 +1,68 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.TimeSource;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded set of identifiers known to have no rate limit entries, each remembered for ttlNanos. When full, expired
+ * identifiers are dropped first, then arbitrary ones, an eighth of maxSize at a time.
+ */
+final class NegativeCache {
+
+    private final ConcurrentHashMap<String, Long> expiries;
+    private final long ttlNanos;
+    private final int maxSize;
+    private final TimeSource timeSource;
+
+    NegativeCache(long ttlNanos, int maxSize, TimeSource timeSource) {
+        this.expiries = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+        this.ttlNanos = ttlNanos;
+        this.maxSize = maxSize;
+        this.timeSource = timeSource;
+    }
+
+    boolean contains(String identifier) {
+        Long expiry = expiries.get(identifier);
+        if (expiry == null) {
+            return false;
+        }
+        if (timeSource.currentTimeNanos() - expiry >= 0L) {
+            expiries.remove(identifier, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    void add(String identifier) {
+        long nowNanos = timeSource.currentTimeNanos();
+        if (expiries.size() >= maxSize) {
+            evict(nowNanos);
+        }
+        expiries.put(identifier, nowNanos + ttlNanos);
+    }
+
+    void remove(String identifier) {
+        expiries.remove(identifier);
+    }
+
+    int size() {
+        return expiries.size();
+    }
+
+    private void evict(long nowNanos) {
+        int targetSize = maxSize - Math.max(1, maxSize / 8);
+        for (Iterator<Map.Entry<String, Long>> it = expiries.entrySet().iterator(); it.hasNext(); ) {
+            if (nowNanos - it.next().getValue() >= 0L) {
+                it.remove();
+            }
+        }
+        for (Iterator<String> it = expiries.keySet().iterator(); it.hasNext() && expiries.size() > targetSize; ) {
+            it.next();
+            it.remove();
+        }
+    }
+
+}
@@ -0,0 +1,603 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.algorithm.FixedWindowRecord;
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
+import io.github.ratelimit.algorithm.TokenBucketRecord;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.AbstractEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * StorageBackend which keeps rate limit state in direct ByteBuffers, so heap usage and GC time do not grow with
+ * the number of identifiers.
+ * <p>
+ * Every (identifier, policy) pair is a 16 byte slot (policy id, token count, epoch nanos of the last refill or
+ * window end) and the slots of an identifier are contiguous, followed by slots holding the identifier itself
+ * (length and chars). Identifiers are found through a linear probing index of 16 byte entries (64-bit identifier
+ * hash, first slot, number of slots) and compared in full once their hash matches. Policies are kept once in an
+ * on-heap policy table shared by all identifiers.
+ * <p>
+ * Only token bucket and fixed window entries are supported. ConformRateLimits is evaluated directly on the slots,
+ * other commands run on entries materialized from the slots. removeEntries frees the slots and the index entry of
+ * an identifier.
+ * <p>
+ * The index is a single ByteBuffer addressed with int offsets, so a backend holds at most MAX_KEYS identifiers;
+ * storing more fails with an IllegalArgumentException. Shard identifiers over several backends beyond that.
+ */
+public class OffHeapStorageBackend implements StorageBackend<String> {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+    private static final int DEFAULT_EXPECTED_KEYS = 1024;
+    private static final int MAX_INDEX_ENTRIES = 1 << 26;
+
+    /**
+     * Maximum number of identifiers, the load limit of the largest index addressable with int offsets.
+     */
+    public static final int MAX_KEYS = MAX_INDEX_ENTRIES / 4 * 3;
+
+    private final TimeSource timeSource;
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Object[] locks;
+
+    private final List<PolicyInfo> policyTable = new CopyOnWriteArrayList<>();
+    private final Map<PolicyInfo, Integer> policyIds = new HashMap<>();
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final Map<Integer, FreeList> freeRuns = new HashMap<>();
+    private int nextSlot;
+
+    private ByteBuffer index;
+    private int indexMask;
+    private int numKeys;
+
+    public OffHeapStorageBackend() {
+        this(DEFAULT_EXPECTED_KEYS);
+    }
+
+    public OffHeapStorageBackend(int expectedKeys) {
+        this(expectedKeys, SystemTimeSource.INSTANCE);
+    }
+
+    public OffHeapStorageBackend(int expectedKeys, TimeSource timeSource) {
+        if (expectedKeys <= 0) {
+            throw RateLimitExceptions.nonPositiveNumber(expectedKeys);
+        }
+        if (expectedKeys > MAX_KEYS) {
+            throw RateLimitExceptions.keyLimitExceeded(expectedKeys, MAX_KEYS);
+        }
+        this.timeSource = Objects.requireNonNull(timeSource);
+        this.locks = new Object[powerOfTwoAtLeast(4 * Runtime.getRuntime().availableProcessors())];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        allocateIndex(Math.min(powerOfTwoAtLeast(expectedKeys + expectedKeys / 3 + 1), MAX_INDEX_ENTRIES));
+    }
+
+    @Override
+    public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(String key, EntryStorageCommand<T> command) {
+        return CompletableFuture.completedFuture(execute(key, command));
+    }
+
+    public <T> StorageBackendCommandResult<T> execute(String key, EntryStorageCommand<T> command) {
+        long hash = hash(key);
+        long nowNanos = timeSource.currentTimeNanos();
+        StorageBackendCommandResult<T> result = executeStored(key, hash, command, nowNanos, true);
+        if (result != null) {
+            return result;
+        }
+        Instant now = Instant.ofEpochSecond(0L, nowNanos);
+        List<RateLimitEntry> initialEntries = command.initialEntries(now);
+        if (initialEntries == null) {
+            result = executeStored(key, hash, command, nowNanos, false);
+            return result != null ? result : StorageBackendCommandResult.entriesNotFound();
+        }
+
+        indexLock.writeLock().lock();
+        try {
+            result = executeStored(key, hash, command, nowNanos, true);
+            if (result != null) {
+                return result;
+            }
+            T data = command.execute(initialEntries, now);
+            storeEntries(key, initialEntries);
+            return data != null ? StorageBackendCommandResult.success(data)
+                    : StorageBackendCommandResult.entriesNotFound();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return StorageBackendCommandResult result of executing command on the stored entries, null if the key has none,
+     * or has an empty list of entries and emptyIsMissing
+     */
+    @SuppressWarnings("unchecked")
+    private <T> StorageBackendCommandResult<T> executeStored(String key, long hash, EntryStorageCommand<T> command,
+                                                             long nowNanos, boolean emptyIsMissing) {
+        indexLock.readLock().lock();
+        try {
+            int position = find(key, hash);
+            if (position < 0) {
+                return null;
+            }
+            int firstSlot = index.getInt(position + 8);
+            int numSlots = index.getInt(position + 12);
+            if (numSlots == 0 && emptyIsMissing) {
+                return null;
+            }
+
+            T result;
+            synchronized (locks[(int) (hash ^ (hash >>> 32)) & (locks.length - 1)]) {
+                if (command instanceof ConformRateLimits) {
+                    int requestWeight = ((ConformRateLimits) command).getRequestWeight();
+                    result = (T) conform(firstSlot, numSlots, requestWeight, nowNanos);
+                } else {
+                    List<RateLimitEntry> entries = readEntries(firstSlot, numSlots);
+                    result = command.execute(entries, Instant.ofEpochSecond(0L, nowNanos));
+                    if (command.didMutate(result)) {
+                        writeEntries(firstSlot, entries);
+                    }
+                }
+            }
+            return result != null ? StorageBackendCommandResult.success(result)
+                    : StorageBackendCommandResult.entriesNotFound();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> storeEntries(String key, List<RateLimitEntry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            RateLimitRecord record = entries.get(i).getRateLimitRecord();
+            if (!(record instanceof FixedWindowRecord || record instanceof MutableTokenBucketRecord
+                    || record instanceof TokenBucketRecord)) {
+                throw RateLimitExceptions.unsupportedTechnique();
+            }
+        }
+        long hash = hash(key);
+        indexLock.writeLock().lock();
+        try {
+            int position = find(key, hash);
+            if (position >= 0) {
+                int numSlots = index.getInt(position + 12);
+                if (numSlots != entries.size()) {
+                    release(index.getInt(position + 8), numSlots + keySlots(key));
+                    index.putInt(position + 8, allocateRun(key, entries.size()));
+                    index.putInt(position + 12, entries.size());
+                }
+            } else {
+                if (numKeys + 1 > MAX_KEYS) {
+                    throw RateLimitExceptions.keyLimitExceeded(numKeys + 1L, MAX_KEYS);
+                }
+                if (numKeys + 1 > (indexMask + 1) / 4 * 3) {
+                    resizeIndex();
+                }
+                position = insertionPoint(hash);
+                index.putLong(position, hash);
+                index.putInt(position + 8, allocateRun(key, entries.size()));
+                index.putInt(position + 12, entries.size());
+                numKeys++;
+            }
+            writeEntries(index.getInt(position + 8), entries);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Frees the slots and the index entry of key, shifting later entries of its probe sequence back so lookups
+     * don't need tombstones.
+     */
+    @Override
+    public CompletableFuture<Void> removeEntries(String key) {
+        long hash = hash(key);
+        indexLock.writeLock().lock();
+        try {
+            int position = find(key, hash);
+            if (position >= 0) {
+                release(index.getInt(position + 8), index.getInt(position + 12) + keySlots(key));
+                removeIndexEntry(position / INDEX_ENTRY_BYTES);
+                numKeys--;
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * @return int number of identifiers with stored entries
+     */
+    public int size() {
+        indexLock.readLock().lock();
+        try {
+            return numKeys;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return long number of bytes allocated off heap for the index and the slots
+     */
+    public long getAllocatedBytes() {
+        indexLock.readLock().lock();
+        try {
+            return (long) index.capacity() + (long) chunks.size() * CHUNK_SLOTS * SLOT_BYTES;
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    private ConsumptionEntry conform(int firstSlot, int numSlots, int requestWeight, long nowNanos) {
+        PolicyInfo violatedPolicy = null;
+        long violatedTokenCount = 0L;
+        long violatedNanosToConsumption = 0L;
+        long minRemainingTokens = Long.MAX_VALUE;
+
+        for (int i = 0; i < numSlots; i++) {
+            int slot = firstSlot + i;
+            ByteBuffer chunk = chunks.get(slot >>> CHUNK_SHIFT);
+            int offset = (slot & CHUNK_MASK) * SLOT_BYTES;
+            PolicyInfo policy = policyTable.get(chunk.getInt(offset));
+            long tokenCount = chunk.getInt(offset + 4);
+            long nanos = chunk.getLong(offset + 8);
+
+            if (policy.fixedWindow) {
+                if (nowNanos > nanos) {
+                    tokenCount = policy.capacity;
+                    nanos += policy.samplingPeriodNanos;
+                }
+            } else {
+                long numNewTokens = policy.distributeNewTokens(nowNanos - nanos);
+                if (numNewTokens > 0) {
+                    tokenCount = Math.min(tokenCount + numNewTokens, policy.capacity);
+                    nanos = nowNanos;
+                }
+            }
+            chunk.putInt(offset + 4, (int) tokenCount);
+            chunk.putLong(offset + 8, nanos);
+
+            if (tokenCount < requestWeight) {
+                if (policy.throwOnPolicyExceeds && policy.capacity < requestWeight) {
+                    throw RateLimitExceptions.tokenConsumptionsExcedsPolicy(requestWeight, policy.capacity);
+                }
+                long nanosToConsumption = policy.nanosToConsumption(requestWeight - tokenCount, nanos, nowNanos);
+                if (violatedPolicy == null || nanosToConsumption > violatedNanosToConsumption) {
+                    violatedPolicy = policy;
+                    violatedTokenCount = tokenCount;
+                    violatedNanosToConsumption = nanosToConsumption;
+                }
+            } else if (violatedPolicy == null && tokenCount - requestWeight < minRemainingTokens) {
+                minRemainingTokens = tokenCount - requestWeight;
+            }
+        }
+
+        if (violatedPolicy != null) {
+            return ConsumptionEntry.rejected(violatedTokenCount, violatedNanosToConsumption, violatedPolicy.policy);
+        }
+
+        for (int i = 0; i < numSlots; i++) {
+            int slot = firstSlot + i;
+            ByteBuffer chunk = chunks.get(slot >>> CHUNK_SHIFT);
+            int offset = (slot & CHUNK_MASK) * SLOT_BYTES;
+            chunk.putInt(offset + 4, chunk.getInt(offset + 4) - requestWeight);
+        }
+        return ConsumptionEntry.conformant(minRemainingTokens);
+    }
+
+    private List<RateLimitEntry> readEntries(int firstSlot, int numSlots) {
+        List<RateLimitEntry> entries = new ArrayList<>(numSlots);
+        for (int i = 0; i < numSlots; i++) {
+            int slot = firstSlot + i;
+            ByteBuffer chunk = chunks.get(slot >>> CHUNK_SHIFT);
+            int offset = (slot & CHUNK_MASK) * SLOT_BYTES;
+            PolicyInfo policy = policyTable.get(chunk.getInt(offset));
+            long tokenCount = chunk.getInt(offset + 4);
+            Instant timestamp = Instant.ofEpochSecond(0L, chunk.getLong(offset + 8));
+            RateLimitRecord record = policy.fixedWindow
+                    ? FixedWindowRecord.of(tokenCount, timestamp)
+                    : MutableTokenBucketRecord.of(tokenCount, timestamp);
+            entries.add(new NonBlockingEntry(record, policy.policy, policy.throwOnPolicyExceeds, timeSource));
+        }
+        return entries;
+    }
+
+    private void writeEntries(int firstSlot, List<RateLimitEntry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            RateLimitEntry entry = entries.get(i);
+            RefillPolicy refillPolicy = entry.getRefillPolicy();
+            RateLimitRecord record = entry.getRateLimitRecord();
+            boolean throwOnPolicyExceeds = entry instanceof AbstractEntry
+                    && ((AbstractEntry) entry).isThrowOnPolicyExceeds();
+
+            long nanos;
+            if (record instanceof FixedWindowRecord) {
+                nanos = toEpochNanos(((FixedWindowRecord) record).getWindowEnd());
+            } else if (record instanceof MutableTokenBucketRecord) {
+                nanos = ((MutableTokenBucketRecord) record).getLastTokenDistributedNanos();
+            } else if (record instanceof TokenBucketRecord) {
+                nanos = toEpochNanos(((TokenBucketRecord) record).getLastTokenDistributedTs());
+            } else {
+                throw RateLimitExceptions.unsupportedTechnique();
+            }
+            int policyId = policyIdFor(new PolicyInfo(refillPolicy, record instanceof FixedWindowRecord,
+                    throwOnPolicyExceeds));
+            long tokenCount = Math.max(0L, Math.min(record.getTokenCount(), refillPolicy.getCapacity()));
+
+            int slot = firstSlot + i;
+            ByteBuffer chunk = chunks.get(slot >>> CHUNK_SHIFT);
+            int offset = (slot & CHUNK_MASK) * SLOT_BYTES;
+            chunk.putInt(offset, policyId);
+            chunk.putInt(offset + 4, (int) tokenCount);
+            chunk.putLong(offset + 8, nanos);
+        }
+    }
+
+    private int policyIdFor(PolicyInfo policy) {
+        synchronized (policyIds) {
+            Integer policyId = policyIds.get(policy);
+            if (policyId == null) {
+                policyId = policyTable.size();
+                policyTable.add(policy);
+                policyIds.put(policy, policyId);
+            }
+            return policyId;
+        }
+    }
+
+    /**
+     * @return int first slot of a run of numSlots entry slots followed by the slots of key
+     */
+    private int allocateRun(String key, int numSlots) {
+        int firstSlot = allocate(numSlots + keySlots(key));
+        int slot = firstSlot + numSlots;
+        ByteBuffer chunk = chunks.get(slot >>> CHUNK_SHIFT);
+        int offset = (slot & CHUNK_MASK) * SLOT_BYTES;
+        chunk.putInt(offset, key.length());
+        for (int i = 0; i < key.length(); i++) {
+            chunk.putChar(offset + 4 + 2 * i, key.charAt(i));
+        }
+        return firstSlot;
+    }
+
+    private boolean keyEquals(int slot, String key) {
+        ByteBuffer chunk = chunks.get(slot >>> CHUNK_SHIFT);
+        int offset = (slot & CHUNK_MASK) * SLOT_BYTES;
+        if (chunk.getInt(offset) != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (chunk.getChar(offset + 4 + 2 * i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int keySlots(String key) {
+        return (4 + 2 * key.length() + SLOT_BYTES - 1) / SLOT_BYTES;
+    }
+
+    private int allocate(int numSlots) {
+        if (numSlots > CHUNK_SLOTS) {
+            throw RateLimitExceptions.capacityExceedsLimit(numSlots, CHUNK_SLOTS);
+        }
+        FreeList freeList = freeRuns.get(numSlots);
+        if (freeList != null && freeList.size > 0) {
+            return freeList.pop();
+        }
+        int chunkEnd = chunks.size() << CHUNK_SHIFT;
+        if (nextSlot + numSlots > chunkEnd) {
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_SLOTS * SLOT_BYTES));
+            nextSlot = chunkEnd;
+        }
+        int firstSlot = nextSlot;
+        nextSlot += numSlots;
+        return firstSlot;
+    }
+
+    private void release(int firstSlot, int numSlots) {
+        freeRuns.computeIfAbsent(numSlots, n -> new FreeList()).push(firstSlot);
+    }
+
+    private int find(String key, long hash) {
+        int position = (int) hash & indexMask;
+        while (true) {
+            int offset = position * INDEX_ENTRY_BYTES;
+            long storedHash = index.getLong(offset);
+            if (storedHash == 0L) {
+                return -1;
+            }
+            if (storedHash == hash && keyEquals(index.getInt(offset + 8) + index.getInt(offset + 12), key)) {
+                return offset;
+            }
+            position = (position + 1) & indexMask;
+        }
+    }
+
+    private void removeIndexEntry(int hole) {
+        int position = (hole + 1) & indexMask;
+        while (true) {
+            long hash = index.getLong(position * INDEX_ENTRY_BYTES);
+            if (hash == 0L) {
+                break;
+            }
+            int home = (int) hash & indexMask;
+            if (((position - home) & indexMask) >= ((position - hole) & indexMask)) {
+                index.putLong(hole * INDEX_ENTRY_BYTES, hash);
+                index.putInt(hole * INDEX_ENTRY_BYTES + 8, index.getInt(position * INDEX_ENTRY_BYTES + 8));
+                index.putInt(hole * INDEX_ENTRY_BYTES + 12, index.getInt(position * INDEX_ENTRY_BYTES + 12));
+                hole = position;
+            }
+            position = (position + 1) & indexMask;
+        }
+        index.putLong(hole * INDEX_ENTRY_BYTES, 0L);
+        index.putInt(hole * INDEX_ENTRY_BYTES + 8, 0);
+        index.putInt(hole * INDEX_ENTRY_BYTES + 12, 0);
+    }
+
+    private int insertionPoint(long hash) {
+        int position = (int) hash & indexMask;
+        while (index.getLong(position * INDEX_ENTRY_BYTES) != 0L) {
+            position = (position + 1) & indexMask;
+        }
+        return position * INDEX_ENTRY_BYTES;
+    }
+
+    private void allocateIndex(int numEntries) {
+        index = ByteBuffer.allocateDirect(numEntries * INDEX_ENTRY_BYTES);
+        indexMask = numEntries - 1;
+    }
+
+    private void resizeIndex() {
+        ByteBuffer oldIndex = index;
+        allocateIndex((indexMask + 1) * 2);
+        for (int position = 0; position < oldIndex.capacity(); position += INDEX_ENTRY_BYTES) {
+            long hash = oldIndex.getLong(position);
+            if (hash != 0L) {
+                int newPosition = insertionPoint(hash);
+                index.putLong(newPosition, hash);
+                index.putInt(newPosition + 8, oldIndex.getInt(position + 8));
+                index.putInt(newPosition + 12, oldIndex.getInt(position + 12));
+            }
+        }
+    }
+
+    /**
+     * @return long 64-bit hash of the identifier, never 0 as 0 marks an empty index entry
+     */
+    long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0L ? hash : 1L;
+    }
+
+    private static long toEpochNanos(Instant timestamp) {
+        return timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano();
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        int result = 1;
+        while (result < value) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    private static final class PolicyInfo {
+
+        private final RefillPolicy policy;
+        private final boolean fixedWindow;
+        private final boolean throwOnPolicyExceeds;
+        private final long capacity;
+        private final long samplingPeriodNanos;
+        private final long nanosBetweenRefills;
+
+        private PolicyInfo(RefillPolicy policy, boolean fixedWindow, boolean throwOnPolicyExceeds) {
+            this.policy = Objects.requireNonNull(policy);
+            this.fixedWindow = fixedWindow;
+            this.throwOnPolicyExceeds = throwOnPolicyExceeds;
+            this.capacity = policy.getCapacity();
+            this.samplingPeriodNanos = policy.getSamplingPeriod().toNanos();
+            this.nanosBetweenRefills = policy.getNanosBetweenRefills();
+        }
+
+        private long distributeNewTokens(long nanosElapsed) {
+            return SimpleRefillPolicy.distributeNewTokens(policy, nanosElapsed);
+        }
+
+        private long nanosToConsumption(long missingTokens, long nanos, long nowNanos) {
+            if (fixedWindow) {
+                return nanos - nowNanos;
+            }
+            if (nanosBetweenRefills == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            long nanosUntilNextToken = nanos + nanosBetweenRefills - nowNanos;
+            if (missingTokens == 1) {
+                return nanosUntilNextToken;
+            }
+            if (missingTokens - 1 > Long.MAX_VALUE / nanosBetweenRefills) {
+                return Long.MAX_VALUE;
+            }
+            long result = nanosUntilNextToken + (missingTokens - 1) * nanosBetweenRefills;
+            return result < nanosUntilNextToken ? Long.MAX_VALUE : result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PolicyInfo)) return false;
+
+            PolicyInfo that = (PolicyInfo) o;
+
+            if (fixedWindow != that.fixedWindow) return false;
+            if (throwOnPolicyExceeds != that.throwOnPolicyExceeds) return false;
+            return policy.equals(that.policy);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = policy.hashCode();
+            result = 31 * result + (fixedWindow ? 1 : 0);
+            result = 31 * result + (throwOnPolicyExceeds ? 1 : 0);
+            return result;
+        }
+    }
+
+    private static final class FreeList {
+
+        private int[] slots = new int[8];
+        private int size;
+
+        private void push(int slot) {
+            if (size == slots.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(slots, 0, grown, 0, size);
+                slots = grown;
+            }
+            slots[size++] = slot;
+        }
+
+        private int pop() {
+            return slots[--size];
+        }
+    }
+
+}
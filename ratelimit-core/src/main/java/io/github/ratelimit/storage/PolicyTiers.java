@@ -0,0 +1,208 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.storage.codec.EntryCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Policy templates of tiers, such as subscription plans, each compiled once into a Tier shared by every identifier
+ * in it.
+ * <p>
+ * Every tier carries a version stamp, the leading 64 bits of a SHA-256 digest of its template's algorithm, policy
+ * capacities and periods, and the class of policies EntryCodec can't represent, so nodes defining
+ * the same tier agree on it without coordination, while redefining a tier with other policies changes it.
+ * TieredEntryStorage keys entries by identifier, tier and stamp, so a changed plan is picked up with one define
+ * instead of rewriting the entries of every identifier in it. A tier remembers the stamps of all its previous
+ * definitions, and removed tiers are remembered until defined again, so TieredEntryStorage can remove an
+ * identifier's entries under every other tier and version, see staleKeysOf, when it creates the identifier's
+ * entries under its current tier and stamp. Backends need no expiry to reclaim them.
+ */
+public class PolicyTiers {
+
+    private final ConcurrentMap<String, Tier> tiers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Tier> removedTiers = new ConcurrentHashMap<>();
+
+    /**
+     * Defines tierId, replacing its previous template.
+     *
+     * @param tierId
+     * @param template policies identifiers in the tier start with
+     * @return PolicyTiers
+     */
+    public PolicyTiers define(String tierId, PolicyTemplate template) {
+        tiers.compute(tierId, (id, previous) -> new Tier(id, template,
+                previous != null ? previous : removedTiers.remove(id)));
+        return this;
+    }
+
+    public boolean remove(String tierId) {
+        Tier removed = tiers.remove(tierId);
+        if (removed == null) {
+            return false;
+        }
+        removedTiers.put(tierId, removed);
+        return true;
+    }
+
+    /**
+     * @param tier current tier of an identifier
+     * @return boolean whether identifiers of tier may have entries under other tiers or versions
+     */
+    public boolean hasStaleKeys(Tier tier) {
+        return tier.hasPreviousVersions() || tiers.size() > 1 || !removedTiers.isEmpty();
+    }
+
+    /**
+     * @param identifier
+     * @param tier       current tier of identifier
+     * @return List storage keys of identifier's entries in the previous versions of tier and in every version of
+     * the other defined or removed tiers
+     */
+    public List<String> staleKeysOf(String identifier, Tier tier) {
+        List<String> keys = new ArrayList<>(tier.previousKeysOf(identifier));
+        addKeysOfOtherTiers(keys, identifier, tier, tiers.values());
+        addKeysOfOtherTiers(keys, identifier, tier, removedTiers.values());
+        return keys;
+    }
+
+    private static void addKeysOfOtherTiers(List<String> keys, String identifier, Tier tier, Iterable<Tier> others) {
+        for (Tier other : others) {
+            if (!other.tierId.equals(tier.tierId)) {
+                keys.add(other.keyOf(identifier));
+                keys.addAll(other.previousKeysOf(identifier));
+            }
+        }
+    }
+
+    /**
+     * @param tierId
+     * @return Tier compiled tier, or null if tierId is not defined
+     */
+    public Tier get(String tierId) {
+        return tiers.get(tierId);
+    }
+
+    public static final class Tier {
+
+        private final String tierId;
+        private final PolicyTemplate template;
+        private final long stamp;
+        private final String keySuffix;
+        private final List<String> previousKeySuffixes;
+
+        private Tier(String tierId, PolicyTemplate template, Tier previous) {
+            this.tierId = Objects.requireNonNull(tierId);
+            this.template = Objects.requireNonNull(template);
+            this.stamp = stampOf(template);
+            this.keySuffix = keySuffixOf(tierId, stamp);
+            this.previousKeySuffixes = previousKeySuffixes(previous);
+        }
+
+        public String getTierId() {
+            return tierId;
+        }
+
+        public PolicyTemplate getTemplate() {
+            return template;
+        }
+
+        public long getStamp() {
+            return stamp;
+        }
+
+        /**
+         * Keys are the length-prefixed identifier and tier id followed by the 16 hex digits of the stamp, so no two
+         * (identifier, tier, stamp) triples share a key.
+         *
+         * @param identifier
+         * @return String storage key of identifier's entries in this version of the tier
+         */
+        public String keyOf(String identifier) {
+            return identifier.length() + ":" + identifier + keySuffix;
+        }
+
+        public boolean hasPreviousVersions() {
+            return !previousKeySuffixes.isEmpty();
+        }
+
+        /**
+         * @param identifier
+         * @return List storage keys of identifier's entries in the previous versions of the tier, latest first
+         */
+        public List<String> previousKeysOf(String identifier) {
+            if (previousKeySuffixes.isEmpty()) {
+                return Collections.emptyList();
+            }
+            String prefix = identifier.length() + ":" + identifier;
+            List<String> keys = new ArrayList<>(previousKeySuffixes.size());
+            for (int i = 0; i < previousKeySuffixes.size(); i++) {
+                keys.add(prefix + previousKeySuffixes.get(i));
+            }
+            return keys;
+        }
+
+        private List<String> previousKeySuffixes(Tier previous) {
+            if (previous == null) {
+                return Collections.emptyList();
+            }
+            if (previous.stamp == stamp) {
+                return previous.previousKeySuffixes;
+            }
+            List<String> suffixes = new ArrayList<>(previous.previousKeySuffixes.size() + 1);
+            suffixes.add(previous.keySuffix);
+            for (int i = 0; i < previous.previousKeySuffixes.size(); i++) {
+                if (!previous.previousKeySuffixes.get(i).equals(keySuffix)) {
+                    suffixes.add(previous.previousKeySuffixes.get(i));
+                }
+            }
+            return Collections.unmodifiableList(suffixes);
+        }
+
+        private static String keySuffixOf(String tierId, long stamp) {
+            String hexStamp = Long.toHexString(stamp);
+            StringBuilder suffix = new StringBuilder(tierId.length() + 24).append('@').append(tierId.length())
+                    .append(':').append(tierId).append('#');
+            for (int i = hexStamp.length(); i < 16; i++) {
+                suffix.append('0');
+            }
+            return suffix.append(hexStamp).toString();
+        }
+
+        private static long stampOf(PolicyTemplate template) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+            byte[] algorithm = template.getAlgorithm().name().getBytes(StandardCharsets.UTF_8);
+            List<RefillPolicy> policies = template.getPolicies();
+            ByteBuffer buffer = ByteBuffer.allocate(8 + algorithm.length + 12 * policies.size());
+            buffer.putInt(algorithm.length).put(algorithm).putInt(policies.size());
+            for (int i = 0; i < policies.size(); i++) {
+                buffer.putInt(policies.get(i).getCapacity());
+                buffer.putLong(policies.get(i).getSamplingPeriod().toNanos());
+            }
+            digest.update(buffer.array());
+            for (int i = 0; i < policies.size(); i++) {
+                if (!EntryCodec.supports(policies.get(i))) {
+                    digest.update(policies.get(i).getClass().getName().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        }
+
+    }
+
+}
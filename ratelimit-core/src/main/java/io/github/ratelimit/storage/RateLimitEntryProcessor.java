@@ -1,6 +1,8 @@
 package io.github.ratelimit.storage;
 
 import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
 import io.github.ratelimit.storage.command.EntryStorageCommand;
 import io.github.ratelimit.storage.command.StorageBackendCommandResult;
 
@@ -18,23 +20,53 @@ public class RateLimitEntryProcessor<K extends Serializable, T>
 
     private EntryStorageCommand<T> targetCommand;
 
+    /**
+     * Not serialized: processors executed on a remote node use that node's SystemTimeSource.
+     */
+    private transient TimeSource timeSource;
+
     public RateLimitEntryProcessor(EntryStorageCommand<T> targetCommand) {
+        this(targetCommand, SystemTimeSource.INSTANCE);
+    }
+
+    public RateLimitEntryProcessor(EntryStorageCommand<T> targetCommand, TimeSource timeSource) {
         this.targetCommand = targetCommand;
+        this.timeSource = timeSource;
+    }
+
+    public EntryStorageCommand<T> getTargetCommand() {
+        return targetCommand;
+    }
+
+    public TimeSource getTimeSource() {
+        return timeSource != null ? timeSource : SystemTimeSource.INSTANCE;
     }
 
     @Override
     public StorageBackendCommandResult<T> process(MutableEntry<K, List<RateLimitEntry>> mutableEntry, Object... rest)
             throws EntryProcessorException {
-        if (!mutableEntry.exists()) {
-            return StorageBackendCommandResult.entriesNotFound();
-        }
-        List<RateLimitEntry> entries = mutableEntry.getValue();
-        if (entries.isEmpty()) {
-            return StorageBackendCommandResult.entriesNotFound();
+        return process(mutableEntry, getTimeSource().now());
+    }
+
+    /**
+     * Executes the command at the given time instead of reading the time source, so the same command can be
+     * replayed on a replica with the primary's timestamp.
+     */
+    public StorageBackendCommandResult<T> process(MutableEntry<K, List<RateLimitEntry>> mutableEntry,
+                                                  Instant currentTime) {
+        List<RateLimitEntry> entries = mutableEntry.exists() ? mutableEntry.getValue() : null;
+        if (entries == null || entries.isEmpty()) {
+            List<RateLimitEntry> initialEntries = targetCommand.initialEntries(currentTime);
+            if (initialEntries == null) {
+                return StorageBackendCommandResult.entriesNotFound();
+            }
+            T result = targetCommand.execute(initialEntries, currentTime);
+            mutableEntry.setValue(initialEntries);
+            return StorageBackendCommandResult.success(result);
         }
-        T result = targetCommand.execute(entries, Instant.now());
+        T result = targetCommand.execute(entries, currentTime);
 
-        if (targetCommand.doesMutate()) {
+        if (targetCommand.didMutate(result)) {
             mutableEntry.setValue(entries);
         }
         return StorageBackendCommandResult.success(result);
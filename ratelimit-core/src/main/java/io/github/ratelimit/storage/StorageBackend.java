@@ -5,24 +5,71 @@ import io.github.ratelimit.core.impl.ConsumptionEntry;
 import io.github.ratelimit.storage.command.*;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Key-value store executing EntryStorageCommands. Results are CompletableFutures, so callers can either block on
+ * them or compose them without parking a thread.
+ */
 public interface StorageBackend<K extends Serializable> {
 
-    <T> Future<StorageBackendCommandResult<T>> executeAsync(K key, EntryStorageCommand<T> command);
+    <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(K key, EntryStorageCommand<T> command);
 
-    Future<Void> storeEntries(K key, List<RateLimitEntry> entries);
+    CompletableFuture<Void> storeEntries(K key, List<RateLimitEntry> entries);
 
-    default Future<StorageBackendCommandResult<List<RateLimitEntry>>> getUpdateRateLimitEntries(K key) {
+    /**
+     * Removes the entries of key. The default stores an empty list, which commands treat as missing entries,
+     * backends which can free the key override this.
+     *
+     * @param key to remove the entries of
+     * @return CompletableFuture<Void> completed once the entries are removed
+     */
+    default CompletableFuture<Void> removeEntries(K key) {
+        return storeEntries(key, Collections.emptyList());
+    }
+
+    /**
+     * Executes the same command on several keys. Backends which support it override this to execute all keys in one
+     * round trip per storage node, the default executes keys one by one.
+     *
+     * @param keys    to execute the command on
+     * @param command to execute
+     * @return CompletableFuture<Map<K, StorageBackendCommandResult<T>>> result by key
+     */
+    default <T> CompletableFuture<Map<K, StorageBackendCommandResult<T>>> executeAllAsync(
+            Set<K> keys, EntryStorageCommand<T> command) {
+        Map<K, CompletableFuture<StorageBackendCommandResult<T>>> futures = new LinkedHashMap<>(keys.size() * 2);
+        for (K key : keys) {
+            futures.put(key, executeAsync(key, command));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<K, StorageBackendCommandResult<T>> results = new LinkedHashMap<>(futures.size() * 2);
+            for (Map.Entry<K, CompletableFuture<StorageBackendCommandResult<T>>> future : futures.entrySet()) {
+                results.put(future.getKey(), future.getValue().join());
+            }
+            return results;
+        });
+    }
+
+    default CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>> getUpdateRateLimitEntries(K key) {
         return executeAsync(key, new GetUpdateEntries());
     }
 
-    default Future<StorageBackendCommandResult<List<RateLimitEntry>>> getRateLimitEntries(K key) {
+    default CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>> getRefilledRateLimitEntries(K key) {
+        return executeAsync(key, new GetRefilledEntries());
+    }
+
+    default CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>> getRateLimitEntries(K key) {
         return executeAsync(key, new GetEntries());
     }
 
-    default Future<StorageBackendCommandResult<ConsumptionEntry>> conformsRateLimitsWithStatus(K key, int requestWeight) {
+    default CompletableFuture<StorageBackendCommandResult<ConsumptionEntry>> conformsRateLimitsWithStatus(K key,
+                                                                                                     int requestWeight) {
         return executeAsync(key, new ConformRateLimits(requestWeight));
     }
 
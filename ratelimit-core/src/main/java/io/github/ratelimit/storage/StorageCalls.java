@@ -0,0 +1,53 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Future handling shared by the blocking distributed storages, whatever their key type.
+ */
+final class StorageCalls {
+
+    static final long STORAGE_TIMEOUT = Long.parseLong(System.getProperty("distributedStorageBackendTimeout", "500"));
+
+    @FunctionalInterface
+    interface FallbackStore {
+
+        void store() throws RateLimiterException;
+
+    }
+
+    private StorageCalls() {
+    }
+
+    /**
+     * @return T data of the command result, or the fallback once storeFallback stored the fallback entries of a key
+     * without entries
+     */
+    static <T> T resultOrFallback(Future<StorageBackendCommandResult<T>> futureResult, long timeoutMillis,
+                                  FallbackStore storeFallback, Supplier<? extends T> fallback) throws Exception {
+        StorageBackendCommandResult<T> commandResult = futureResult.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (!commandResult.containsEntries()) {
+            storeFallback.store();
+            return fallback.get();
+        }
+        return commandResult.getData();
+    }
+
+    /**
+     * Logs a failed call with RateLimitExceptions.logFailure.
+     *
+     * @return RateLimiterException for the caller to throw
+     */
+    static RateLimiterException failure(Logger logger, String message, Exception ex) {
+        RateLimitExceptions.logFailure(logger, message, ex);
+        return new RateLimiterException(ex.getMessage(), ex.getCause());
+    }
+
+}
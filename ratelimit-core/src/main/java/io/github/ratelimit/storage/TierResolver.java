@@ -0,0 +1,15 @@
+package io.github.ratelimit.storage;
+
+/**
+ * Resolves the tier, such as a subscription plan, whose policies limit an identifier.
+ */
+@FunctionalInterface
+public interface TierResolver {
+
+    /**
+     * @param identifier
+     * @return String id of the identifier's tier, or null if the identifier is not limited
+     */
+    String resolveTier(String identifier);
+
+}
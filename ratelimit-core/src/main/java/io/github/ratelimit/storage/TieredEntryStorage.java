@@ -0,0 +1,234 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.EntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.SystemTimeSource;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.ConformRateLimitsOrInitialize;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * EntryStorage for policies configured per tier, such as a subscription plan, rather than per identifier. The
+ * tier of an identifier is looked up with a TierResolver, wrap it in a CachingTierResolver to avoid a lookup per
+ * request, and its policies are taken from the compiled tiers in PolicyTiers.
+ * <p>
+ * Entries are stored under the identifier, tier and version stamp of the tier, see PolicyTiers.Tier.keyOf, and are
+ * created from the tier's template by the backend on the first conform, in the same execution. Once there are
+ * other tiers or versions, conforms first run without creating entries, and identifiers without entries under their
+ * current tier and version have their entries under the others removed, see PolicyTiers.staleKeysOf, while they are
+ * created, so neither plan changes nor redefinitions leave entries behind. Reads of identifiers
+ * without stored entries return fresh template entries without storing them. Identifiers without a defined tier
+ * are not limited: conforms conform and reads return no entries.
+ */
+public class TieredEntryStorage implements EntryStorage {
+
+    private static final Logger LOGGER = Logger.getLogger(TieredEntryStorage.class.getName());
+
+    private final StorageBackend<String> storageBackend;
+    private final TierResolver tierResolver;
+    private final PolicyTiers policyTiers;
+    private final TimeSource timeSource;
+
+    public TieredEntryStorage(StorageBackend<String> storageBackend, TierResolver tierResolver,
+                              PolicyTiers policyTiers) {
+        this(storageBackend, tierResolver, policyTiers, SystemTimeSource.INSTANCE);
+    }
+
+    public TieredEntryStorage(StorageBackend<String> storageBackend, TierResolver tierResolver,
+                              PolicyTiers policyTiers, TimeSource timeSource) {
+        this.storageBackend = Objects.requireNonNull(storageBackend);
+        this.tierResolver = Objects.requireNonNull(tierResolver);
+        this.policyTiers = Objects.requireNonNull(policyTiers);
+        this.timeSource = Objects.requireNonNull(timeSource);
+    }
+
+    @Override
+    public ConsumptionEntry conformRateLimits(String identifier, int requestWeight) throws RateLimiterException {
+        PolicyTiers.Tier tier = tierOf(identifier);
+        if (tier == null) {
+            return ConsumptionEntry.conformant(0L);
+        }
+        String key = tier.keyOf(identifier);
+        Future<Map<String, StorageBackendCommandResult<ConsumptionEntry>>> commandResult = conformAll(tier,
+                Collections.singletonMap(key, identifier), Collections.singleton(key), requestWeight);
+        try {
+            StorageBackendCommandResult<ConsumptionEntry> result = commandResult
+                    .get(getExecutionTimeout(), TimeUnit.MILLISECONDS).get(key);
+            return result.containsEntries() ? result.getData() : ConsumptionEntry.conformant(0L);
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformRateLimits for user: " + identifier, ex);
+        }
+    }
+
+    /**
+     * Identifiers of the same tier and request weight are conformed with one executeAllAsync.
+     */
+    @Override
+    public Map<String, ConsumptionEntry> conformRateLimitsBatch(Map<String, Integer> requestWeights)
+            throws RateLimiterException {
+        Map<String, String> identifiersByKey = new HashMap<>(requestWeights.size() * 2);
+        Map<PolicyTiers.Tier, Map<Integer, Set<String>>> keysByTier = new HashMap<>(4);
+        for (Map.Entry<String, Integer> requestWeight : requestWeights.entrySet()) {
+            PolicyTiers.Tier tier = tierOf(requestWeight.getKey());
+            if (tier == null) {
+                continue;
+            }
+            String key = tier.keyOf(requestWeight.getKey());
+            identifiersByKey.put(key, requestWeight.getKey());
+            keysByTier.computeIfAbsent(tier, t -> new HashMap<>(4))
+                    .computeIfAbsent(requestWeight.getValue(), weight -> new HashSet<>()).add(key);
+        }
+        List<CompletableFuture<Map<String, StorageBackendCommandResult<ConsumptionEntry>>>> futureResults =
+                new ArrayList<>();
+        for (Map.Entry<PolicyTiers.Tier, Map<Integer, Set<String>>> tierKeys : keysByTier.entrySet()) {
+            for (Map.Entry<Integer, Set<String>> keys : tierKeys.getValue().entrySet()) {
+                futureResults.add(conformAll(tierKeys.getKey(), identifiersByKey, keys.getValue(), keys.getKey()));
+            }
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getExecutionTimeout());
+            Map<String, ConsumptionEntry> consumptionsByIdentifier = new HashMap<>(requestWeights.size() * 2);
+            for (CompletableFuture<Map<String, StorageBackendCommandResult<ConsumptionEntry>>> futureResult
+                    : futureResults) {
+                long remaining = Math.max(0L, deadline - System.nanoTime());
+                for (Map.Entry<String, StorageBackendCommandResult<ConsumptionEntry>> result
+                        : futureResult.get(remaining, TimeUnit.NANOSECONDS).entrySet()) {
+                    if (result.getValue().containsEntries()) {
+                        consumptionsByIdentifier.put(identifiersByKey.get(result.getKey()), result.getValue().getData());
+                    }
+                }
+            }
+
+            Map<String, ConsumptionEntry> consumptions = new LinkedHashMap<>(requestWeights.size() * 2);
+            for (String identifier : requestWeights.keySet()) {
+                ConsumptionEntry consumption = consumptionsByIdentifier.get(identifier);
+                consumptions.put(identifier, consumption != null ? consumption : ConsumptionEntry.conformant(0L));
+            }
+            return consumptions;
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while conformRateLimitsBatch for users: " + requestWeights.keySet(), ex);
+        }
+    }
+
+    @Override
+    public List<RateLimitEntry> getCurrentEntries(String identifier) throws RateLimiterException {
+        return readEntries(identifier, storageBackend::getRateLimitEntries, "getCurrentEntries");
+    }
+
+    @Override
+    public List<RateLimitEntry> getUpdateEntries(String identifier) throws RateLimiterException {
+        return readEntries(identifier, storageBackend::getUpdateRateLimitEntries, "getUpdateEntries");
+    }
+
+    @Override
+    public List<RateLimitEntry> getRefilledEntries(String identifier) throws RateLimiterException {
+        return readEntries(identifier, storageBackend::getRefilledRateLimitEntries, "getRefilledEntries");
+    }
+
+    /**
+     * Stores entries under the identifier's current tier. Entries of identifiers without a tier are not stored, as
+     * they would never be read.
+     */
+    @Override
+    public void storeEntries(String identifier, List<RateLimitEntry> entries) throws RateLimiterException {
+        PolicyTiers.Tier tier = tierOf(identifier);
+        if (tier == null) {
+            return;
+        }
+        try {
+            storageBackend.storeEntries(tier.keyOf(identifier), entries)
+                    .get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while storingEntries for user: " + identifier, ex);
+        }
+    }
+
+    @Override
+    public long getExecutionTimeout() {
+        return StorageCalls.STORAGE_TIMEOUT;
+    }
+
+    /**
+     * Conforms keys of one tier and request weight, creating missing entries from the tier's template. When the
+     * identifiers may have entries under other tiers or versions, keys are first conformed without creating
+     * entries, and only keys without entries remove the identifier's stale entries and are created, one extra
+     * round trip per identifier, tier and version. Failed removals leave the stale entries to the backend's expiry.
+     */
+    private CompletableFuture<Map<String, StorageBackendCommandResult<ConsumptionEntry>>> conformAll(
+            PolicyTiers.Tier tier, Map<String, String> identifiersByKey, Set<String> keys, int requestWeight) {
+        ConformRateLimitsOrInitialize conformOrInitialize =
+                new ConformRateLimitsOrInitialize(requestWeight, tier.getTemplate());
+        if (!policyTiers.hasStaleKeys(tier)) {
+            return storageBackend.executeAllAsync(keys, conformOrInitialize);
+        }
+        return storageBackend.executeAllAsync(keys, new ConformRateLimits(requestWeight)).thenCompose(results -> {
+            Set<String> missingKeys = new HashSet<>();
+            for (Map.Entry<String, StorageBackendCommandResult<ConsumptionEntry>> result : results.entrySet()) {
+                if (!result.getValue().containsEntries()) {
+                    missingKeys.add(result.getKey());
+                }
+            }
+            if (missingKeys.isEmpty()) {
+                return CompletableFuture.completedFuture(results);
+            }
+            List<CompletableFuture<?>> pending = new ArrayList<>();
+            for (String key : missingKeys) {
+                for (String staleKey : policyTiers.staleKeysOf(identifiersByKey.get(key), tier)) {
+                    pending.add(storageBackend.removeEntries(staleKey).exceptionally(ex -> null));
+                }
+            }
+            CompletableFuture<Map<String, StorageBackendCommandResult<ConsumptionEntry>>> created =
+                    storageBackend.executeAllAsync(missingKeys, conformOrInitialize);
+            pending.add(created);
+            return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                Map<String, StorageBackendCommandResult<ConsumptionEntry>> merged = new HashMap<>(results);
+                merged.putAll(created.join());
+                return merged;
+            });
+        });
+    }
+
+    private List<RateLimitEntry> readEntries(String identifier,
+                                             Function<String, CompletableFuture<StorageBackendCommandResult<List<RateLimitEntry>>>> read,
+                                             String operation) throws RateLimiterException {
+        PolicyTiers.Tier tier = tierOf(identifier);
+        if (tier == null) {
+            return Collections.emptyList();
+        }
+        try {
+            StorageBackendCommandResult<List<RateLimitEntry>> result = read.apply(tier.keyOf(identifier))
+                    .get(getExecutionTimeout(), TimeUnit.MILLISECONDS);
+            return result.containsEntries() ? result.getData() : tier.getTemplate().createEntries(timeSource.now());
+        } catch (Exception ex) {
+            throw StorageCalls.failure(LOGGER,
+                    "Something went wrong while " + operation + " for user: " + identifier, ex);
+        }
+    }
+
+    private PolicyTiers.Tier tierOf(String identifier) {
+        String tierId = tierResolver.resolveTier(identifier);
+        return tierId == null ? null : policyTiers.get(tierId);
+    }
+
+}
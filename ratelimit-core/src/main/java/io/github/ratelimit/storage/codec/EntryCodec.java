@@ -0,0 +1,448 @@
+package io.github.ratelimit.storage.codec;
+
+import io.github.ratelimit.algorithm.FixedWindowRecord;
+import io.github.ratelimit.algorithm.GcraRecord;
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
+import io.github.ratelimit.algorithm.SlidingWindowCounterRecord;
+import io.github.ratelimit.algorithm.SlidingWindowLogRecord;
+import io.github.ratelimit.algorithm.TokenBucketRecord;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.AbstractEntry;
+import io.github.ratelimit.core.impl.BlockingEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.PolicyRegistry;
+import io.github.ratelimit.core.impl.RegisteredRefillPolicy;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary codec for entry lists and consumption results, meant to be plugged into storage backend
+ * serialization instead of the Externalizable forms.
+ * <p>
+ * Every message starts with a version byte. An entry is a tag byte (record type and flags), its policy and its
+ * record. Policies are written once per list and referenced by index afterwards. A RegisteredRefillPolicy of the
+ * default PolicyRegistry is written as its id and resolved against the default PolicyRegistry, a SimpleRefillPolicy,
+ * or a RegisteredRefillPolicy of another registry, as capacity and sampling period. Writing any other policy type
+ * throws, as its behaviour can't be represented.
+ * Token counts are varints and timestamps are zigzag varint deltas from the first timestamp of the list.
+ * <p>
+ * Entries are decoded as NonBlockingEntry and unregistered policies as SimpleRefillPolicy, check supports before
+ * writing entries of other types.
+ */
+public final class EntryCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int TOKEN_BUCKET = 1;
+    private static final int MUTABLE_TOKEN_BUCKET = 2;
+    private static final int FIXED_WINDOW = 3;
+    private static final int SLIDING_WINDOW_LOG = 4;
+    private static final int SLIDING_WINDOW_COUNTER = 5;
+    private static final int GCRA = 6;
+
+    private static final int TYPE_MASK = 0x0F;
+    private static final int THROW_ON_POLICY_EXCEEDS = 0x10;
+    private static final int POLICY_REFERENCE = 0x20;
+
+    private static final int CONFORMS = 0x01;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private EntryCodec() {
+    }
+
+    public static byte[] encodeEntries(List<RateLimitEntry> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 16 * entries.size());
+        try {
+            writeEntries(new DataOutputStream(bytes), entries);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<RateLimitEntry> decodeEntries(byte[] data) throws IOException {
+        return readEntries(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * @param record
+     * @return boolean whether record is decoded as a record of the same class
+     */
+    public static boolean supports(RateLimitRecord record) {
+        Class<?> recordClass = record.getClass();
+        return recordClass == MutableTokenBucketRecord.class || recordClass == TokenBucketRecord.class
+                || recordClass == FixedWindowRecord.class || recordClass == SlidingWindowLogRecord.class
+                || recordClass == SlidingWindowCounterRecord.class || recordClass == GcraRecord.class;
+    }
+
+    /**
+     * @param policy
+     * @return boolean whether policy is decoded with the same behaviour
+     */
+    public static boolean supports(RefillPolicy policy) {
+        return policy.getClass() == SimpleRefillPolicy.class || policy.getClass() == RegisteredRefillPolicy.class;
+    }
+
+    /**
+     * @param entries
+     * @return boolean whether entries are decoded as entries of the same class, records and policies
+     */
+    public static boolean supports(List<RateLimitEntry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            RateLimitEntry entry = entries.get(i);
+            if (entry.getClass() != NonBlockingEntry.class || !supports(entry.getRateLimitRecord())
+                    || !supports(entry.getRefillPolicy())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param consumptionEntry
+     * @return boolean whether the violated policy, if any, is decoded with the same behaviour
+     */
+    public static boolean supports(ConsumptionEntry consumptionEntry) {
+        return consumptionEntry.doesConform() || supports(consumptionEntry.getViolatedPolicy());
+    }
+
+    /**
+     * Copies entries, records through the codec, keeping the entry class, policy object and TimeSource of each.
+     *
+     * @param entries
+     * @return List mutable list of copies, null if a record is not supported, see supports, or an entry is neither
+     * a NonBlockingEntry nor a BlockingEntry
+     */
+    public static List<RateLimitEntry> copyEntries(List<RateLimitEntry> entries) {
+        List<RateLimitEntry> copies = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            RateLimitEntry copy = copyEntry(entries.get(i));
+            if (copy == null) {
+                return null;
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static RateLimitEntry copyEntry(RateLimitEntry entry) {
+        if (!supports(entry.getRateLimitRecord())) {
+            return null;
+        }
+        if (entry.getClass() == NonBlockingEntry.class) {
+            NonBlockingEntry nonBlockingEntry = (NonBlockingEntry) entry;
+            return new NonBlockingEntry(copyRecord(entry.getRateLimitRecord()), entry.getRefillPolicy(),
+                    nonBlockingEntry.isThrowOnPolicyExceeds(), nonBlockingEntry.getTimeSource());
+        } else if (entry.getClass() == BlockingEntry.class) {
+            BlockingEntry blockingEntry = (BlockingEntry) entry;
+            return new BlockingEntry(copyRecord(entry.getRateLimitRecord()), entry.getRefillPolicy(),
+                    blockingEntry.getBlockingStrategy(), blockingEntry.isThrowOnPolicyExceeds(),
+                    blockingEntry.getTimeSource());
+        }
+        return null;
+    }
+
+    private static RateLimitRecord copyRecord(RateLimitRecord record) {
+        int type = typeOf(record);
+        long baseNanos = timestampOf(record);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try {
+            writeRecord(new DataOutputStream(bytes), record, type, baseNanos);
+            return readRecord(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), type, baseNanos);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public static byte[] encodeConsumption(ConsumptionEntry consumptionEntry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try {
+            writeConsumption(new DataOutputStream(bytes), consumptionEntry);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ConsumptionEntry decodeConsumption(byte[] data) throws IOException {
+        return readConsumption(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    public static void writeEntries(DataOutput out, List<RateLimitEntry> entries) throws IOException {
+        out.writeByte(VERSION);
+        int numEntries = entries.size();
+        writeVarLong(out, numEntries);
+        if (numEntries == 0) {
+            return;
+        }
+        long baseNanos = timestampOf(entries.get(0).getRateLimitRecord());
+        out.writeLong(baseNanos);
+
+        List<RefillPolicy> policies = new ArrayList<>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            RateLimitEntry entry = entries.get(i);
+            RateLimitRecord record = entry.getRateLimitRecord();
+            RefillPolicy policy = entry.getRefillPolicy();
+
+            int tag = typeOf(record);
+            if (entry instanceof AbstractEntry && ((AbstractEntry) entry).isThrowOnPolicyExceeds()) {
+                tag |= THROW_ON_POLICY_EXCEEDS;
+            }
+            int policyIndex = policies.indexOf(policy);
+            if (policyIndex >= 0) {
+                out.writeByte(tag | POLICY_REFERENCE);
+                writeVarLong(out, policyIndex);
+            } else {
+                out.writeByte(tag);
+                writePolicy(out, policy);
+                policies.add(policy);
+            }
+            writeRecord(out, record, tag & TYPE_MASK, baseNanos);
+        }
+    }
+
+    public static List<RateLimitEntry> readEntries(DataInput in) throws IOException {
+        checkVersion(in.readByte());
+        int numEntries = (int) readVarLong(in);
+        List<RateLimitEntry> entries = new ArrayList<>(numEntries);
+        if (numEntries == 0) {
+            return entries;
+        }
+        long baseNanos = in.readLong();
+
+        List<RefillPolicy> policies = new ArrayList<>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            int tag = in.readUnsignedByte();
+            RefillPolicy policy;
+            if ((tag & POLICY_REFERENCE) != 0) {
+                int policyIndex = (int) readVarLong(in);
+                if (policyIndex >= policies.size()) {
+                    throw new StreamCorruptedException("Unknown policy reference: " + policyIndex);
+                }
+                policy = policies.get(policyIndex);
+            } else {
+                policy = readPolicy(in);
+                policies.add(policy);
+            }
+            RateLimitRecord record = readRecord(in, tag & TYPE_MASK, baseNanos);
+            entries.add(new NonBlockingEntry(record, policy, (tag & THROW_ON_POLICY_EXCEEDS) != 0));
+        }
+        return entries;
+    }
+
+    public static void writeConsumption(DataOutput out, ConsumptionEntry consumptionEntry) throws IOException {
+        out.writeByte(VERSION);
+        boolean conforms = consumptionEntry.doesConform();
+        out.writeByte(conforms ? CONFORMS : 0);
+        writeVarLong(out, consumptionEntry.getRemainingTokens());
+        writeSignedVarLong(out, consumptionEntry.getNanosUntilConsumption());
+        if (!conforms) {
+            writePolicy(out, consumptionEntry.getViolatedPolicy());
+        }
+    }
+
+    public static ConsumptionEntry readConsumption(DataInput in) throws IOException {
+        checkVersion(in.readByte());
+        boolean conforms = (in.readUnsignedByte() & CONFORMS) != 0;
+        long remainingTokens = readVarLong(in);
+        long nanosUntilConsumption = readSignedVarLong(in);
+        if (conforms) {
+            return ConsumptionEntry.conformant(remainingTokens);
+        }
+        return ConsumptionEntry.rejected(remainingTokens, nanosUntilConsumption, readPolicy(in));
+    }
+
+    private static void checkVersion(byte version) throws IOException {
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported codec version: " + version);
+        }
+    }
+
+    private static int typeOf(RateLimitRecord record) {
+        if (record instanceof MutableTokenBucketRecord) {
+            return MUTABLE_TOKEN_BUCKET;
+        } else if (record instanceof TokenBucketRecord) {
+            return TOKEN_BUCKET;
+        } else if (record instanceof FixedWindowRecord) {
+            return FIXED_WINDOW;
+        } else if (record instanceof SlidingWindowLogRecord) {
+            return SLIDING_WINDOW_LOG;
+        } else if (record instanceof SlidingWindowCounterRecord) {
+            return SLIDING_WINDOW_COUNTER;
+        } else if (record instanceof GcraRecord) {
+            return GCRA;
+        }
+        throw RateLimitExceptions.unsupportedTechnique();
+    }
+
+    private static long timestampOf(RateLimitRecord record) {
+        if (record instanceof MutableTokenBucketRecord) {
+            return ((MutableTokenBucketRecord) record).getLastTokenDistributedNanos();
+        } else if (record instanceof TokenBucketRecord) {
+            return toEpochNanos(((TokenBucketRecord) record).getLastTokenDistributedTs());
+        } else if (record instanceof FixedWindowRecord) {
+            return toEpochNanos(((FixedWindowRecord) record).getWindowEnd());
+        } else if (record instanceof SlidingWindowCounterRecord) {
+            return ((SlidingWindowCounterRecord) record).getWindowStartNanos();
+        } else if (record instanceof GcraRecord) {
+            return ((GcraRecord) record).getTheoreticalArrivalNanos();
+        }
+        return 0L;
+    }
+
+    private static void writeRecord(DataOutput out, RateLimitRecord record, int type, long baseNanos)
+            throws IOException {
+        switch (type) {
+            case TOKEN_BUCKET:
+            case MUTABLE_TOKEN_BUCKET:
+            case FIXED_WINDOW:
+                writeSignedVarLong(out, record.getTokenCount());
+                writeSignedVarLong(out, timestampOf(record) - baseNanos);
+                break;
+            case SLIDING_WINDOW_COUNTER:
+                SlidingWindowCounterRecord counterRecord = (SlidingWindowCounterRecord) record;
+                writeSignedVarLong(out, counterRecord.getTokenCount());
+                writeSignedVarLong(out, counterRecord.getWindowStartNanos() - baseNanos);
+                writeVarLong(out, counterRecord.getPreviousCount());
+                writeVarLong(out, counterRecord.getCurrentCount());
+                break;
+            case GCRA:
+                writeSignedVarLong(out, timestampOf(record) - baseNanos);
+                break;
+            case SLIDING_WINDOW_LOG:
+                SlidingWindowLogRecord logRecord = (SlidingWindowLogRecord) record;
+                Map<Instant, Long> requestMap = logRecord.getRequestMap();
+                writeVarLong(out, logRecord.getCapacity());
+                writeVarLong(out, requestMap.size());
+                long previousNanos = baseNanos;
+                for (Map.Entry<Instant, Long> request : requestMap.entrySet()) {
+                    long requestNanos = toEpochNanos(request.getKey());
+                    writeSignedVarLong(out, requestNanos - previousNanos);
+                    writeVarLong(out, request.getValue());
+                    previousNanos = requestNanos;
+                }
+                break;
+            default:
+                throw RateLimitExceptions.unsupportedTechnique();
+        }
+    }
+
+    private static RateLimitRecord readRecord(DataInput in, int type, long baseNanos) throws IOException {
+        switch (type) {
+            case TOKEN_BUCKET:
+                return TokenBucketRecord.of(readSignedVarLong(in), toInstant(baseNanos + readSignedVarLong(in)));
+            case MUTABLE_TOKEN_BUCKET:
+                return new MutableTokenBucketRecord(readSignedVarLong(in), baseNanos + readSignedVarLong(in));
+            case FIXED_WINDOW:
+                return FixedWindowRecord.of(readSignedVarLong(in), toInstant(baseNanos + readSignedVarLong(in)));
+            case SLIDING_WINDOW_COUNTER:
+                long tokenCount = readSignedVarLong(in);
+                long windowStartNanos = baseNanos + readSignedVarLong(in);
+                return SlidingWindowCounterRecord.withState(tokenCount, windowStartNanos, readVarLong(in),
+                        readVarLong(in));
+            case GCRA:
+                return GcraRecord.withTheoreticalArrival(baseNanos + readSignedVarLong(in));
+            case SLIDING_WINDOW_LOG:
+                long capacity = readVarLong(in);
+                int numRequests = (int) readVarLong(in);
+                Map<Instant, Long> requestMap = new LinkedHashMap<>();
+                long previousNanos = baseNanos;
+                for (int i = 0; i < numRequests; i++) {
+                    previousNanos += readSignedVarLong(in);
+                    requestMap.put(toInstant(previousNanos), readVarLong(in));
+                }
+                return SlidingWindowLogRecord.withRequestMap(requestMap, capacity);
+            default:
+                throw new StreamCorruptedException("Unknown record type: " + type);
+        }
+    }
+
+    /**
+     * Writes policy as its default registry id, or as capacity and sampling period.
+     *
+     * @throws IllegalArgumentException if policy is not supported, see supports
+     */
+    public static void writePolicy(DataOutput out, RefillPolicy policy) throws IOException {
+        if (policy instanceof RegisteredRefillPolicy && ((RegisteredRefillPolicy) policy).isInDefaultRegistry()) {
+            writeVarLong(out, ((long) ((RegisteredRefillPolicy) policy).getPolicyId() << 1) | 1L);
+            return;
+        }
+        if (!supports(policy)) {
+            throw RateLimitExceptions.unsupportedPolicy(policy);
+        }
+        writeVarLong(out, (long) policy.getCapacity() << 1);
+        writeVarLong(out, policy.getSamplingPeriod().toNanos());
+    }
+
+    public static RefillPolicy readPolicy(DataInput in) throws IOException {
+        long header = readVarLong(in);
+        if ((header & 1L) != 0L) {
+            int policyId = (int) (header >>> 1);
+            RegisteredRefillPolicy policy = PolicyRegistry.getDefault().get(policyId);
+            if (policy == null) {
+                throw new StreamCorruptedException("Policy id " + policyId + " is not registered on this node");
+            }
+            return policy;
+        }
+        int capacity = (int) (header >>> 1);
+        return SimpleRefillPolicy.withRefill(capacity, Duration.ofNanos(readVarLong(in)));
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long toEpochNanos(Instant timestamp) {
+        return timestamp.getEpochSecond() * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    private static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(0L, epochNanos);
+    }
+
+}
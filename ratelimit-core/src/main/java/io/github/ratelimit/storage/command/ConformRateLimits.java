@@ -20,33 +20,42 @@ public class ConformRateLimits implements EntryStorageCommand<ConsumptionEntry>
         this(1);
     }
 
+    public int getRequestWeight() {
+        return requestWeight;
+    }
+
     @Override
     public ConsumptionEntry execute(List<RateLimitEntry> entries, Instant currentTime) {
-        ConsumptionEntry conformanceConsumption = ConsumptionEntry.conformant(Long.MAX_VALUE);
-
-        for (RateLimitEntry entry : entries) {
-            entry = entry.updateInPlace(currentTime);
-            ConsumptionEntry consumptionEntry = entry.canConsumeAndReturnRemaining(requestWeight, currentTime);
-            if (!consumptionEntry.doesConform()) {
-                if (conformanceConsumption.doesConform()) {
-                    conformanceConsumption = consumptionEntry;
-                } else if (consumptionEntry.getNanosUntilConsumption() > conformanceConsumption
-                        .getNanosUntilConsumption()) {
-                    conformanceConsumption = consumptionEntry;
+        RateLimitEntry violatedEntry = null;
+        long violatedTokenCount = 0L;
+        long violatedNanosToConsumption = 0L;
+        long minRemainingTokens = Long.MAX_VALUE;
+
+        int numEntries = entries.size();
+        for (int i = 0; i < numEntries; i++) {
+            RateLimitEntry entry = entries.get(i).updateInPlace(currentTime);
+            long tokenCount = entry.getTokenCount();
+            if (!entry.canConsume(requestWeight)) {
+                long nanosToConsumption = entry.getNanosToConsumption(requestWeight - tokenCount, currentTime);
+                if (violatedEntry == null || nanosToConsumption > violatedNanosToConsumption) {
+                    violatedEntry = entry;
+                    violatedTokenCount = tokenCount;
+                    violatedNanosToConsumption = nanosToConsumption;
                 }
-            } else if (conformanceConsumption.doesConform()
-                    && consumptionEntry.getRemainingTokens() < conformanceConsumption.getRemainingTokens()) {
-                conformanceConsumption = consumptionEntry;
+            } else if (violatedEntry == null && tokenCount - requestWeight < minRemainingTokens) {
+                minRemainingTokens = tokenCount - requestWeight;
             }
         }
 
-        if (conformanceConsumption.doesConform()) {
-            for (RateLimitEntry entry : entries) {
-                entry.consumeInPlace(requestWeight);
-            }
+        if (violatedEntry != null) {
+            return ConsumptionEntry.rejected(violatedTokenCount, violatedNanosToConsumption,
+                    violatedEntry.getRefillPolicy());
         }
 
-        return conformanceConsumption;
+        for (int i = 0; i < numEntries; i++) {
+            entries.get(i).consumeInPlace(requestWeight);
+        }
+        return ConsumptionEntry.conformant(minRemainingTokens);
     }
 
     @Override
@@ -54,5 +63,13 @@ public class ConformRateLimits implements EntryStorageCommand<ConsumptionEntry>
         return true;
     }
 
+    /**
+     * Rejections only refill entries, so they are not written back.
+     */
+    @Override
+    public boolean didMutate(ConsumptionEntry result) {
+        return result.doesConform();
+    }
+
 }
 
@@ -0,0 +1,34 @@
+package io.github.ratelimit.storage.command;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * ConformRateLimits which creates the entries of an identifier from a policy template if it has none, in the
+ * same execution, so the first request of a new identifier costs a single round trip.
+ */
+public class ConformRateLimitsOrInitialize extends ConformRateLimits {
+
+    private static final long serialVersionUID = -2890717624540207861L;
+
+    private final PolicyTemplate template;
+
+    public ConformRateLimitsOrInitialize(int requestWeight, PolicyTemplate template) {
+        super(requestWeight);
+        this.template = Objects.requireNonNull(template);
+    }
+
+    public PolicyTemplate getTemplate() {
+        return template;
+    }
+
+    @Override
+    public List<RateLimitEntry> initialEntries(Instant currentTime) {
+        return template.createEntries(currentTime);
+    }
+
+}
@@ -0,0 +1,55 @@
+package io.github.ratelimit.storage.command;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conforms several requests of the same identifier in one execution, one after another in the order of the request
+ * weights, with the same outcome as executing ConformRateLimits once per request at the same time.
+ */
+public class ConformRateLimitsSequence implements EntryStorageCommand<List<ConsumptionEntry>> {
+
+    private static final long serialVersionUID = 3582213440651127960L;
+
+    private final int[] requestWeights;
+
+    public ConformRateLimitsSequence(int[] requestWeights) {
+        this.requestWeights = requestWeights.clone();
+    }
+
+    public int[] getRequestWeights() {
+        return requestWeights.clone();
+    }
+
+    @Override
+    public List<ConsumptionEntry> execute(List<RateLimitEntry> entries, Instant currentTime) {
+        List<ConsumptionEntry> consumptions = new ArrayList<>(requestWeights.length);
+        for (int requestWeight : requestWeights) {
+            consumptions.add(new ConformRateLimits(requestWeight).execute(entries, currentTime));
+        }
+        return consumptions;
+    }
+
+    @Override
+    public boolean doesMutate() {
+        return true;
+    }
+
+    /**
+     * Written back only if at least one request conformed.
+     */
+    @Override
+    public boolean didMutate(List<ConsumptionEntry> result) {
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i).doesConform()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
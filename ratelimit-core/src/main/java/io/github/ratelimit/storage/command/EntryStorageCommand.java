@@ -12,4 +12,27 @@ public interface EntryStorageCommand<T> extends Serializable {
 
     boolean doesMutate();
 
+    /**
+     * Backends skip writing entries back, and replicating them, when an execution left the stored state logically
+     * unchanged. Refilling alone doesn't count as a change, as it is computed again from the stored state on the
+     * next execution.
+     *
+     * @param result of the execution
+     * @return boolean whether the execution that produced result changed the stored state
+     */
+    default boolean didMutate(T result) {
+        return doesMutate();
+    }
+
+    /**
+     * Backends create these entries when the key has none, execute the command on them and store them, all within
+     * the same execution, so concurrent first executions for a key can't overwrite each other.
+     *
+     * @param currentTime time of the execution
+     * @return List entries to create the key with, or null to leave a missing key missing
+     */
+    default List<RateLimitEntry> initialEntries(Instant currentTime) {
+        return null;
+    }
+
 }
@@ -0,0 +1,36 @@
+package io.github.ratelimit.storage.command;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.storage.codec.EntryCodec;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Returns copies of the entries refilled to the current time, leaving stored entries untouched, so stats reads
+ * don't cost a write. Records are copied through EntryCodec, keeping the entry class, policy and TimeSource.
+ * Lists with records or entry classes the codec can't copy are refilled in place like GetUpdateEntries and
+ * returned as stored.
+ */
+public class GetRefilledEntries implements EntryStorageCommand<List<RateLimitEntry>> {
+
+    private static final long serialVersionUID = 2916375190834623618L;
+
+    @Override
+    public List<RateLimitEntry> execute(List<RateLimitEntry> entries, Instant currentTime) {
+        List<RateLimitEntry> refilled = EntryCodec.copyEntries(entries);
+        if (refilled == null) {
+            refilled = entries;
+        }
+        for (int i = 0; i < refilled.size(); i++) {
+            refilled.get(i).updateInPlace(currentTime);
+        }
+        return refilled;
+    }
+
+    @Override
+    public boolean doesMutate() {
+        return false;
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.github.ratelimit.algorithm.gcra;
+
+import io.github.ratelimit.algorithm.GcraRecord;
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+
+import static io.github.ratelimit.core.RateLimitTestConstants.*;
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RecordTest {
+
+    @Test
+    public void canUpdateRecordToFullCapacity() {
+        Instant now = Instant.now();
+        RateLimitRecord record = GcraRecord.of(3, REFILL_FIVE_PER_SECOND, now);
+        assertEquals(record.getTokenCount(), 3);
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(DURATION_ONE_SECOND));
+        assertEquals(record.getTokenCount(), REFILL_FIVE_PER_SECOND.getCapacity());
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofDays(1000)));
+        assertEquals(record.getTokenCount(), REFILL_FIVE_PER_SECOND.getCapacity());
+    }
+
+    @Test
+    public void refillsOneTokenPerEmissionInterval() {
+        Instant now = Instant.now();
+        RateLimitRecord record = GcraRecord.of(0, REFILL_FIVE_PER_SECOND, now);
+        assertEquals(record.getTokenCount(), 0);
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofMillis(199)));
+        assertEquals(record.getTokenCount(), 0);
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofMillis(200)));
+        assertEquals(record.getTokenCount(), 1);
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofMillis(600)));
+        assertEquals(record.getTokenCount(), 3);
+    }
+
+    @Test
+    public void shouldBeAbleToTryConsumeWholeTokenCount() {
+        long initialTokenCount = 3;
+        RateLimitRecord record = GcraRecord.from(initialTokenCount, REFILL_FIVE_PER_SECOND);
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_FIVE_PER_SECOND);
+        assertTrue(entry.tryConsume(initialTokenCount));
+        assertFalse(entry.tryConsume(1));
+    }
+
+    @Test
+    public void testTryConsumeDoesntConsumeTokensWhenFail() {
+        long initialTokenCount = 3;
+        RateLimitRecord record = GcraRecord.from(initialTokenCount, REFILL_FIVE_PER_SECOND);
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_FIVE_PER_SECOND);
+        assertFalse(entry.tryConsume(initialTokenCount + 1));
+        assertEquals(entry.getTokenCount(), initialTokenCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsWhenConsumptionExcedsPolicyLimits() {
+        RateLimitEntry entry = RateLimiting.schedulerBuilder().withRefillPolicy(REFILL_TEN_PER_SECOND)
+                .withAlgorithm(RateLimitAlgorithm.GCRA).withThrowOnPolicyExceds().build();
+        entry.tryConsumeAndReturnRemaining(20);
+    }
+
+    @Test
+    public void testConsumptionEntry() {
+        long initialTokenCount = 3;
+        RateLimitRecord record = GcraRecord.from(initialTokenCount, REFILL_TEN_PER_SECOND);
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_TEN_PER_SECOND);
+        ConsumptionEntry consumptionEntry = entry.tryConsumeAndReturnRemaining(initialTokenCount + 1);
+        assertFalse(consumptionEntry.doesConform());
+        entry = entry.updateInPlace(Instant.now().plus(Duration.ofNanos(consumptionEntry.getNanosUntilConsumption())));
+        consumptionEntry = entry.canConsumeAndReturnRemaining(initialTokenCount + 1, Instant.now());
+        assertTrue(consumptionEntry.doesConform());
+    }
+
+    @Test
+    public void banPolicyNeverConforms() {
+        RateLimitRecord record = GcraRecord.from(0, SimpleRefillPolicy.banPolicy());
+        RateLimitEntry entry = new NonBlockingEntry(record, SimpleRefillPolicy.banPolicy());
+        assertFalse(entry.tryConsume(1));
+        assertEquals(entry.getNanosToConsumption(1), Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        GcraRecord record = GcraRecord.from(3, REFILL_TEN_PER_SECOND);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(record);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(record, in.readObject());
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package io.github.ratelimit.algorithm.slidingwindowcounter;
+
+import io.github.ratelimit.algorithm.SlidingWindowCounterRecord;
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+
+import static io.github.ratelimit.core.RateLimitTestConstants.*;
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RecordTest {
+
+    @Test
+    public void canUpdateRecordToFullCapacity() {
+        Instant now = Instant.now();
+        RateLimitRecord record = SlidingWindowCounterRecord.of(3, REFILL_FIVE_PER_SECOND.getCapacity(), now);
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofSeconds(2)));
+        assertEquals(record.getTokenCount(), REFILL_FIVE_PER_SECOND.getCapacity());
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofDays(1000)));
+        assertEquals(record.getTokenCount(), REFILL_FIVE_PER_SECOND.getCapacity());
+    }
+
+    @Test
+    public void weightsPreviousWindowByOverlap() {
+        Instant now = Instant.now();
+        RateLimitRecord record = SlidingWindowCounterRecord.of(0, REFILL_TEN_PER_SECOND.getCapacity(), now);
+        record.updateWith(REFILL_TEN_PER_SECOND, now.plus(DURATION_ONE_SECOND));
+        assertEquals(record.getTokenCount(), 0);
+        record.updateWith(REFILL_TEN_PER_SECOND, now.plus(Duration.ofMillis(1500)));
+        assertEquals(record.getTokenCount(), 5);
+        record.updateWith(REFILL_TEN_PER_SECOND, now.plus(Duration.ofMillis(1900)));
+        assertEquals(record.getTokenCount(), 9);
+    }
+
+    @Test
+    public void shouldBeAbleToTryConsumeWholeTokenCount() {
+        long initialTokenCount = 3;
+        RateLimitRecord record = SlidingWindowCounterRecord.from(initialTokenCount, REFILL_FIVE_PER_SECOND.getCapacity());
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_FIVE_PER_SECOND);
+        assertTrue(entry.tryConsume(initialTokenCount));
+        assertFalse(entry.tryConsume(1));
+    }
+
+    @Test
+    public void testTryConsumeDoesntConsumeTokensWhenFail() {
+        long initialTokenCount = 3;
+        RateLimitRecord record = SlidingWindowCounterRecord.from(initialTokenCount, REFILL_FIVE_PER_SECOND.getCapacity());
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_FIVE_PER_SECOND);
+        assertFalse(entry.tryConsume(initialTokenCount + 1));
+        assertEquals(entry.getTokenCount(), initialTokenCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsWhenConsumptionExcedsPolicyLimits() {
+        RateLimitEntry entry = RateLimiting.schedulerBuilder().withRefillPolicy(REFILL_TEN_PER_SECOND)
+                .withAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW_COUNTER).withThrowOnPolicyExceds().build();
+        entry.tryConsumeAndReturnRemaining(20);
+    }
+
+    @Test
+    public void testConsumptionEntry() {
+        long initialTokenCount = 3;
+        RateLimitRecord record = SlidingWindowCounterRecord.from(initialTokenCount, REFILL_TEN_PER_SECOND.getCapacity());
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_TEN_PER_SECOND);
+        ConsumptionEntry consumptionEntry = entry.tryConsumeAndReturnRemaining(initialTokenCount + 1);
+        assertFalse(consumptionEntry.doesConform());
+        entry = entry.updateInPlace(Instant.now().plus(Duration.ofNanos(consumptionEntry.getNanosUntilConsumption() + 1)));
+        consumptionEntry = entry.tryConsumeAndReturnRemaining(initialTokenCount + 1);
+        assertTrue(consumptionEntry.doesConform());
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        RateLimitRecord record = SlidingWindowCounterRecord.from(4, REFILL_TEN_PER_SECOND.getCapacity());
+        record.consume(2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(record);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(record, in.readObject());
+        }
+    }
+
+    @Test
+    public void serializesCountsBeyondIntRange() throws IOException, ClassNotFoundException {
+        long count = Integer.MAX_VALUE + 10L;
+        RateLimitRecord record = SlidingWindowCounterRecord.withState(count, 123L, count, count + 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(record);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(record, in.readObject());
+        }
+    }
+
+}
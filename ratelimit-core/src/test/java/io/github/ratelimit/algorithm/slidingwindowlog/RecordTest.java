@@ -9,8 +9,15 @@ import io.github.ratelimit.core.impl.ConsumptionEntry;
 import io.github.ratelimit.core.impl.NonBlockingEntry;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static io.github.ratelimit.core.RateLimitTestConstants.*;
 import static junit.framework.TestCase.assertTrue;
@@ -77,4 +84,38 @@ public class RecordTest {
         assertEquals(consumptionEntry.getRemainingTokens(), REFILL_TEN_PER_SECOND.getCapacity() - (initialTokenCount + 1));
     }
 
+    @Test
+    public void evictsExpiredRequestsFromHead() {
+        Instant now = Instant.now();
+        Map<Instant, Long> requestMap = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            requestMap.put(now.plus(Duration.ofMillis(i * 100)), 1L);
+        }
+        SlidingWindowLogRecord record = SlidingWindowLogRecord.withRequestMap(requestMap, 30);
+        assertEquals(record.getTokenCount(), 10);
+
+        record.updateWith(REFILL_TEN_PER_SECOND, now.plus(Duration.ofMillis(1450)));
+        assertEquals(record.getTokenCount(), 15);
+        assertEquals(record.getRequestMap().size(), 15);
+
+        record.updateWith(REFILL_TEN_PER_SECOND, now.plus(Duration.ofSeconds(10)));
+        assertEquals(record.getTokenCount(), 30);
+        assertTrue(record.getRequestMap().isEmpty());
+    }
+
+    @Test
+    public void serializationKeepsRequestsWeight() throws IOException, ClassNotFoundException {
+        SlidingWindowLogRecord record = SlidingWindowLogRecord.of(2, REFILL_TEN_PER_SECOND.getCapacity());
+        record.consume(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(record);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            SlidingWindowLogRecord deserialized = (SlidingWindowLogRecord) in.readObject();
+            assertEquals(deserialized.getTokenCount(), record.getTokenCount());
+            assertEquals(deserialized.getRequestMap(), record.getRequestMap());
+        }
+    }
+
 }
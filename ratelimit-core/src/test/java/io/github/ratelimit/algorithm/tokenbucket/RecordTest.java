@@ -1,14 +1,22 @@
 package io.github.ratelimit.algorithm.tokenbucket;
 
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
 import io.github.ratelimit.algorithm.TokenBucketRecord;
 import io.github.ratelimit.core.RateLimitAlgorithm;
 import io.github.ratelimit.core.RateLimitEntry;
 import io.github.ratelimit.core.RateLimitRecord;
 import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.RefillPolicy;
 import io.github.ratelimit.core.impl.ConsumptionEntry;
 import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -86,4 +94,70 @@ public class RecordTest {
         assertNotEquals(TokenBucketRecord.of(6, Instant.now().plus(Duration.ofMillis(1))),
                 TokenBucketRecord.of(6, Instant.now()));
     }
+
+    @Test
+    public void mutableRecordRefillsToFullCapacity() {
+        Instant now = Instant.now();
+        RateLimitRecord record = MutableTokenBucketRecord.of(3, now);
+        assertSame(record, record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(DURATION_ONE_SECOND)));
+        assertEquals(record.getTokenCount(), REFILL_FIVE_PER_SECOND.getCapacity());
+        record.updateWith(REFILL_FIVE_PER_SECOND, now.plus(Duration.ofDays(1000)));
+        assertEquals(record.getTokenCount(), REFILL_FIVE_PER_SECOND.getCapacity());
+    }
+
+    @Test
+    public void mutableRecordMatchesImmutableRecord() {
+        Instant now = Instant.now();
+        RateLimitRecord immutable = TokenBucketRecord.of(0, now);
+        RateLimitRecord mutable = MutableTokenBucketRecord.of(0, now);
+        for (int i = 1; i <= 20; i++) {
+            Instant ts = now.plus(Duration.ofMillis(i * 73));
+            immutable = immutable.updateWith(REFILL_TEN_PER_SECOND, ts);
+            mutable.updateWith(REFILL_TEN_PER_SECOND, ts);
+            assertEquals(immutable.getTokenCount(), mutable.getTokenCount());
+            if (immutable.canConsume(2)) {
+                immutable = immutable.consume(2);
+                mutable.consume(2);
+            }
+        }
+    }
+
+    @Test
+    public void mutableRecordHonoursPolicyRefillOverrides() {
+        Instant now = Instant.now();
+        RefillPolicy oneAtATime = new SimpleRefillPolicy(5, Duration.ofSeconds(1)) {
+            @Override
+            public int distributeNewTokens(Duration timeElapsed) {
+                return 1;
+            }
+        };
+        RateLimitRecord mutable = MutableTokenBucketRecord.of(0, now);
+        RateLimitRecord immutable = TokenBucketRecord.of(0, now);
+        mutable.updateWith(oneAtATime, now.plus(DURATION_ONE_SECOND));
+        immutable = immutable.updateWith(oneAtATime, now.plus(DURATION_ONE_SECOND));
+        assertEquals(1, mutable.getTokenCount());
+        assertEquals(immutable.getTokenCount(), mutable.getTokenCount());
+    }
+
+    @Test
+    public void mutableRecordConsumesInPlace() {
+        RateLimitRecord record = MutableTokenBucketRecord.of(3, Instant.now());
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_FIVE_PER_SECOND);
+        assertTrue(entry.tryConsume(3));
+        assertFalse(entry.tryConsume(1));
+        assertSame(record, entry.getRateLimitRecord());
+        assertEquals(record.getTokenCount(), 0);
+    }
+
+    @Test
+    public void mutableRecordSerialization() throws IOException, ClassNotFoundException {
+        MutableTokenBucketRecord record = MutableTokenBucketRecord.of(4, Instant.now());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(record);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(record, in.readObject());
+        }
+    }
 }
@@ -0,0 +1,119 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.storage.codec.EntryCodec;
+import io.github.ratelimit.storage.command.GetRefilledEntries;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PolicyRegistryTest {
+
+    @Test
+    public void internsEqualPoliciesToOneInstance() {
+        PolicyRegistry registry = new PolicyRegistry();
+        RegisteredRefillPolicy first = registry.intern(SimpleRefillPolicy.perSecond(5));
+        RegisteredRefillPolicy second = registry.intern(new SimpleRefillPolicy(5, Duration.ofSeconds(1)));
+        RegisteredRefillPolicy other = registry.intern(SimpleRefillPolicy.perMinute(5));
+
+        assertSame(first, second);
+        assertSame(registry.intern(first), first);
+        assertEquals(first.getPolicyId(), 0);
+        assertEquals(other.getPolicyId(), 1);
+        assertSame(registry.get(1), other);
+        assertNull(registry.get(2));
+        assertEquals(first, SimpleRefillPolicy.perSecond(5));
+        assertEquals(SimpleRefillPolicy.perSecond(5), first);
+        assertEquals(first.getNanosBetweenRefills(), SimpleRefillPolicy.perSecond(5).getNanosBetweenRefills());
+    }
+
+    @Test
+    public void internSkipsExplicitlyRegisteredIds() {
+        PolicyRegistry registry = new PolicyRegistry();
+        registry.register(0, SimpleRefillPolicy.perHour(10));
+        assertEquals(registry.intern(SimpleRefillPolicy.perHour(20)).getPolicyId(), 1);
+        assertEquals(registry.intern(SimpleRefillPolicy.perHour(10)).getPolicyId(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsConflictingIds() {
+        PolicyRegistry registry = new PolicyRegistry();
+        registry.register(3, SimpleRefillPolicy.perSecond(1));
+        registry.register(3, SimpleRefillPolicy.perSecond(2));
+    }
+
+    @Test
+    public void copiesPoliciesBetweenRegistries() {
+        PolicyRegistry registry = new PolicyRegistry();
+        registry.register(7, SimpleRefillPolicy.perDay(100));
+        registry.intern(SimpleRefillPolicy.perSecond(3));
+
+        PolicyRegistry replica = new PolicyRegistry();
+        replica.registerAll(registry.getPolicies());
+        assertEquals(replica.getPolicies(), registry.getPolicies());
+        assertEquals(replica.get(7), SimpleRefillPolicy.perDay(100));
+    }
+
+    @Test
+    public void serializesPolicyId() throws IOException, ClassNotFoundException {
+        RegisteredRefillPolicy policy = PolicyRegistry.getDefault().intern(SimpleRefillPolicy.withRefill(17,
+                Duration.ofSeconds(17)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(policy);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(in.readObject(), policy);
+        }
+    }
+
+    @Test
+    public void entriesShareRegisteredPolicy() throws IOException {
+        EntryBuilder builder = RateLimiting.entryBuilder().withPolicyRegistry(PolicyRegistry.getDefault())
+                .withRefillPolicy(SimpleRefillPolicy.withRefill(19, Duration.ofSeconds(19)));
+        List<RateLimitEntry> entries = Arrays.asList(builder.build(), builder.build());
+        RefillPolicy policy = entries.get(0).getRefillPolicy();
+        assertTrue(policy instanceof RegisteredRefillPolicy);
+        assertSame(entries.get(1).getRefillPolicy(), policy);
+
+        List<RateLimitEntry> decoded = EntryCodec.decodeEntries(EntryCodec.encodeEntries(entries));
+        assertSame(decoded.get(0).getRefillPolicy(), policy);
+        assertSame(decoded.get(1).getRefillPolicy(), policy);
+    }
+
+    @Test
+    public void nonDefaultRegistryPoliciesSurviveSerialization() throws Exception {
+        PolicyRegistry registry = new PolicyRegistry();
+        RegisteredRefillPolicy policy = registry.register(4000, SimpleRefillPolicy.withRefill(23, Duration.ofSeconds(23)));
+        PolicyRegistry.getDefault().register(4000, SimpleRefillPolicy.perDay(1));
+        RateLimitEntry entry = RateLimiting.entryBuilder().withPolicyRegistry(registry).withRefillPolicy(policy)
+                .filled().build();
+
+        List<RateLimitEntry> refilled = new GetRefilledEntries().execute(Arrays.asList(entry), SystemTimeSource.INSTANCE.now());
+        assertEquals(SimpleRefillPolicy.withRefill(23, Duration.ofSeconds(23)), refilled.get(0).getRefillPolicy());
+        assertEquals(23, refilled.get(0).getTokenCount());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(policy);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(SimpleRefillPolicy.withRefill(23, Duration.ofSeconds(23)), in.readObject());
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.github.ratelimit.core.impl;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitRecord;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.TimeSource;
+import org.junit.Test;
+
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Duration;
+import java.time.Instant;
+
+import static io.github.ratelimit.core.RateLimitTestConstants.*;
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class TimeSourceTest {
+
+    @Test
+    public void manualTimeSourceOnlyMovesWhenAdvanced() {
+        Instant start = Instant.now();
+        ManualTimeSource timeSource = new ManualTimeSource(start);
+        assertEquals(timeSource.now(), start);
+        timeSource.advance(DURATION_HALF_SECOND);
+        assertEquals(timeSource.now(), start.plus(DURATION_HALF_SECOND));
+    }
+
+    @Test
+    public void monotonicTimeSourceNeverGoesBackwards() {
+        TimeSource timeSource = new MonotonicTimeSource();
+        long previous = timeSource.currentTimeNanos();
+        for (int i = 0; i < 1000; i++) {
+            long current = timeSource.currentTimeNanos();
+            assertTrue(current >= previous);
+            previous = current;
+        }
+    }
+
+    @Test
+    public void cachedTimeSourceFollowsDelegate() throws InterruptedException {
+        ManualTimeSource delegate = new ManualTimeSource();
+        try (CachedTimeSource timeSource = new CachedTimeSource(delegate, Duration.ofMillis(1))) {
+            long initial = timeSource.currentTimeNanos();
+            delegate.advance(DURATION_ONE_SECOND);
+            Thread.sleep(50);
+            assertEquals(timeSource.currentTimeNanos(), initial + DURATION_ONE_SECOND.toNanos());
+        }
+    }
+
+    @Test
+    public void entryUsesConfiguredTimeSource() {
+        ManualTimeSource timeSource = new ManualTimeSource();
+        RateLimitEntry entry = RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET).withRefillPolicy(REFILL_FIVE_PER_SECOND).build();
+        assertFalse(entry.tryConsume(1));
+        assertEquals(entry.getNanosToConsumption(1), Duration.ofMillis(200).toNanos());
+        timeSource.advance(Duration.ofMillis(200));
+        assertTrue(entry.tryConsume(1));
+        assertFalse(entry.tryConsume(1));
+    }
+
+    @Test
+    public void recordsImplementingOnlyTheUntimedHookStillWork() {
+        AbstractRecord record = new AbstractRecord() {
+            @Override
+            protected long getNanosToConsumptionImpl(RefillPolicy policy, long missingTokens) {
+                return 42L * missingTokens;
+            }
+
+            @Override
+            public RateLimitRecord updateWith(RefillPolicy refillPolicy, Instant timestamp) {
+                return this;
+            }
+
+            @Override
+            public long getTokenCount() {
+                return 0L;
+            }
+
+            @Override
+            public RateLimitRecord consume(long tokens) {
+                return this;
+            }
+
+            @Override
+            public boolean canConsume(long tokens) {
+                return false;
+            }
+
+            @Override
+            public void writeExternal(ObjectOutput out) {
+            }
+
+            @Override
+            public void readExternal(ObjectInput in) {
+            }
+        };
+        RateLimitEntry entry = new NonBlockingEntry(record, REFILL_FIVE_PER_SECOND, false, new ManualTimeSource());
+        assertEquals(entry.getNanosToConsumption(2), 84L);
+        assertEquals(record.getNanosToConsumption(REFILL_FIVE_PER_SECOND, 1, false), 42L);
+    }
+
+}
@@ -0,0 +1,181 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiter;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AtomicEntryStorageTest {
+
+    private static final String USER_ONE_POLICY = "u1";
+    private static final String MULTIPLE_USER_POLICY = "u2";
+    private static final String FIXED_WINDOW_POLICY = "u3";
+
+    private ManualTimeSource timeSource;
+    private AtomicEntryStorage storage;
+    private RateLimiter rateLimiter;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        storage = new AtomicEntryStorage(timeSource);
+        rateLimiter = RateLimiting.withStorage(storage);
+        EntryBuilder builder = RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET);
+        storage.storeEntries(USER_ONE_POLICY,
+                Collections.singletonList(builder.withRefillPolicy(SimpleRefillPolicy.perSecond(5)).build()));
+        storage.storeEntries(MULTIPLE_USER_POLICY, Arrays.asList(
+                builder.withRefillPolicy(SimpleRefillPolicy.perSecond(5)).filled().build(),
+                builder.withRefillPolicy(SimpleRefillPolicy.perMinute(10)).filled().build()));
+        storage.storeEntries(FIXED_WINDOW_POLICY, Collections.singletonList(RateLimiting.entryBuilder()
+                .withTimeSource(timeSource).withAlgorithm(RateLimitAlgorithm.FIXED_WINDOW)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(3)).filled().build()));
+    }
+
+    @Test
+    public void conformsOnUserWithNoEntries() throws RateLimiterException {
+        assertTrue(rateLimiter.conformsRateLimits("test"));
+        assertTrue(storage.getCurrentEntries("test").isEmpty());
+    }
+
+    @Test
+    public void consumesFromFallbackEntriesOnFirstRequest() throws RateLimiterException {
+        AtomicEntryStorage fallbackStorage = new AtomicEntryStorage(timeSource) {
+            @Override
+            protected List<RateLimitEntry> getFallbackEntries(String identifier) {
+                return Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(2)).filled().build());
+            }
+        };
+        assertTrue(fallbackStorage.conformRateLimits("test", 1).doesConform());
+        assertTrue(fallbackStorage.conformRateLimits("test", 1).doesConform());
+        assertFalse(fallbackStorage.conformRateLimits("test", 1).doesConform());
+    }
+
+    @Test
+    public void refilledEntriesLeaveStoredStateUntouched() {
+        timeSource.advance(Duration.ofMillis(400));
+        assertEquals(storage.getRefilledEntries(USER_ONE_POLICY).get(0).getTokenCount(), 2);
+        assertEquals(storage.getCurrentEntries(USER_ONE_POLICY).get(0).getTokenCount(), 0);
+    }
+
+    @Test
+    public void refillsTokenBucket() throws RateLimiterException {
+        assertFalse(rateLimiter.conformsRateLimits(USER_ONE_POLICY));
+        ConsumptionEntry rejected = rateLimiter.conformRateLimitsWithConsumption(USER_ONE_POLICY);
+        assertEquals(rejected.getNanosUntilConsumption(), Duration.ofMillis(200).toNanos());
+
+        timeSource.advance(Duration.ofMillis(200));
+        assertTrue(rateLimiter.conformsRateLimits(USER_ONE_POLICY));
+        assertFalse(rateLimiter.conformsRateLimits(USER_ONE_POLICY));
+
+        timeSource.advance(Duration.ofSeconds(10));
+        assertEquals(rateLimiter.getTokenCounts(USER_ONE_POLICY).get("PT1S"), Long.valueOf(5));
+    }
+
+    @Test
+    public void multiplePolicy_shouldConform_untillAllConforms() throws RateLimiterException {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.conformsRateLimits(MULTIPLE_USER_POLICY));
+        }
+        ConsumptionEntry rejected = rateLimiter.conformRateLimitsWithConsumption(MULTIPLE_USER_POLICY);
+        assertFalse(rejected.doesConform());
+        assertEquals(rejected.getViolatedPolicy(), SimpleRefillPolicy.perSecond(5));
+
+        timeSource.advance(Duration.ofSeconds(1));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.conformsRateLimits(MULTIPLE_USER_POLICY));
+        }
+        timeSource.advance(Duration.ofSeconds(1));
+        rejected = rateLimiter.conformRateLimitsWithConsumption(MULTIPLE_USER_POLICY);
+        assertFalse(rejected.doesConform());
+        assertEquals(rejected.getViolatedPolicy(), SimpleRefillPolicy.perMinute(10));
+    }
+
+    @Test
+    public void fixedWindowResetsAtWindowEnd() throws RateLimiterException {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.conformsRateLimits(FIXED_WINDOW_POLICY));
+        }
+        ConsumptionEntry rejected = rateLimiter.conformRateLimitsWithConsumption(FIXED_WINDOW_POLICY);
+        assertFalse(rejected.doesConform());
+        assertEquals(rejected.getNanosUntilConsumption(), Duration.ofSeconds(1).toNanos());
+
+        timeSource.advance(Duration.ofMillis(1001));
+        assertTrue(rateLimiter.conformsRateLimits(FIXED_WINDOW_POLICY));
+    }
+
+    @Test
+    public void storedEntriesRoundTrip() throws RateLimiterException {
+        RateLimitEntry entry = storage.getCurrentEntries(MULTIPLE_USER_POLICY).get(1);
+        assertEquals(entry.getTokenCount(), 10);
+        assertEquals(entry.getRefillPolicy(), SimpleRefillPolicy.perMinute(10));
+    }
+
+    @Test
+    public void concurrentConsumptionNeverExceedsCapacity() throws InterruptedException {
+        storage.storeEntries(USER_ONE_POLICY, Arrays.asList(
+                RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(10000)).filled().build(),
+                RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(5000)).filled().build()));
+        int numThreads = 8;
+        AtomicInteger conformed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    if (storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform()) {
+                        conformed.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(conformed.get(), 5000);
+    }
+
+    @Test
+    public void concurrentConsumptionWithinCapacityIsNeverRejected() throws InterruptedException {
+        storage.storeEntries(USER_ONE_POLICY, Arrays.asList(
+                RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(2000)).filled().build(),
+                RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(1000)).filled().build()));
+        int numThreads = 8;
+        AtomicInteger conformed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 125; i++) {
+                    if (storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform()) {
+                        conformed.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(1000, conformed.get());
+    }
+
+}
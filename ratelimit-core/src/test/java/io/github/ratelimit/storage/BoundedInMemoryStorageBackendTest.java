@@ -0,0 +1,136 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.GetEntries;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BoundedInMemoryStorageBackendTest {
+
+    private ManualTimeSource timeSource;
+    private BoundedInMemoryStorageBackend<String> backend;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        backend = new BoundedInMemoryStorageBackend<>(4, Duration.ofMillis(100), timeSource);
+    }
+
+    private List<RateLimitEntry> perSecond(int capacity) {
+        return Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(capacity)).filled().build());
+    }
+
+    private boolean contains(String key) {
+        return backend.execute(key, new GetEntries()).containsEntries();
+    }
+
+    @Test
+    public void evictsKeysOnceRefilledToCapacity() {
+        backend.storeEntries("u1", perSecond(10));
+        backend.storeEntries("u2", perSecond(10));
+        assertTrue(backend.execute("u1", new ConformRateLimits(10)).getData().doesConform());
+
+        timeSource.advance(Duration.ofMillis(500));
+        for (int i = 0; i < 4; i++) {
+            contains("u3");
+        }
+        assertTrue(contains("u1"));
+        assertFalse(contains("u2"));
+
+        timeSource.advance(Duration.ofMillis(600));
+        for (int i = 0; i < 4; i++) {
+            contains("u3");
+        }
+        assertFalse(contains("u1"));
+        assertEquals(backend.size(), 0);
+    }
+
+    @Test
+    public void keepsFreshEntriesForMinIdleTime() {
+        backend.storeEntries("u1", perSecond(10));
+        for (int i = 0; i < 4; i++) {
+            contains("u3");
+        }
+        assertTrue(contains("u1"));
+    }
+
+    @Test
+    public void capsNumberOfKeysPreferringIdleOnes() {
+        for (int i = 0; i < 4; i++) {
+            backend.storeEntries("u" + i, perSecond(10));
+        }
+        for (int i = 1; i < 4; i++) {
+            backend.execute("u" + i, new ConformRateLimits(5));
+        }
+        timeSource.advance(Duration.ofMillis(150));
+        backend.execute("u0", new GetEntries());
+
+        timeSource.advance(Duration.ofMillis(50));
+        backend.storeEntries("u4", perSecond(10));
+        assertEquals(backend.size(), 4);
+        assertFalse(contains("u0"));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(contains("u" + i));
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyAccessedWhenNoKeyIsIdle() {
+        for (int i = 0; i < 4; i++) {
+            backend.storeEntries("u" + i, perSecond(10));
+            backend.execute("u" + i, new ConformRateLimits(5));
+            timeSource.advance(Duration.ofMillis(10));
+        }
+        backend.storeEntries("u4", perSecond(10));
+        assertEquals(backend.size(), 4);
+        assertFalse(contains("u0"));
+        assertTrue(contains("u4"));
+    }
+
+    @Test
+    public void conformsAcrossThreads() throws RateLimiterException, InterruptedException {
+        backend.storeEntries("u1", Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perHour(1000)).filled().build()));
+        Thread[] threads = new Thread[4];
+        int[] conformed = new int[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (backend.execute("u1", new ConformRateLimits(1)).getData().doesConform()) {
+                        conformed[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += conformed[t];
+        }
+        assertEquals(total, 1000);
+    }
+
+    @Test
+    public void returnsCopiesOfStoredEntries() {
+        backend.storeEntries("u1", perSecond(10));
+        backend.execute("u1", new GetEntries()).getData().get(0).consumeInPlace(10);
+        assertEquals(10L, backend.execute("u1", new GetEntries()).getData().get(0).getTokenCount());
+    }
+
+}
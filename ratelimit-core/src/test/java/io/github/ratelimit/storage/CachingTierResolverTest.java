@@ -0,0 +1,75 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CachingTierResolverTest {
+
+    private ManualTimeSource timeSource;
+    private Map<String, String> plans;
+    private AtomicInteger lookups;
+    private CachingTierResolver tierResolver;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        plans = new HashMap<>();
+        plans.put("u1", "free");
+        lookups = new AtomicInteger();
+        tierResolver = new CachingTierResolver(identifier -> {
+            lookups.incrementAndGet();
+            return plans.get(identifier);
+        }, Duration.ofSeconds(1), 16, timeSource);
+    }
+
+    @Test
+    public void remembersTiersForTtl() {
+        assertEquals("free", tierResolver.resolveTier("u1"));
+        plans.put("u1", "pro");
+        assertEquals("free", tierResolver.resolveTier("u1"));
+        assertEquals(1, lookups.get());
+
+        timeSource.advance(Duration.ofSeconds(1));
+        assertEquals("pro", tierResolver.resolveTier("u1"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void remembersIdentifiersWithoutTier() {
+        assertNull(tierResolver.resolveTier("anonymous"));
+        assertNull(tierResolver.resolveTier("anonymous"));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void invalidatePicksUpPlanChange() {
+        tierResolver.resolveTier("u1");
+        plans.put("u1", "pro");
+        tierResolver.invalidate("u1");
+        assertEquals("pro", tierResolver.resolveTier("u1"));
+    }
+
+    @Test
+    public void staysWithinMaxSize() {
+        for (int i = 0; i < 100; i++) {
+            tierResolver.resolveTier("u" + i);
+        }
+        assertTrue(tierResolver.size() <= 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveTtl() {
+        new CachingTierResolver(identifier -> null, Duration.ZERO, 16);
+    }
+
+}
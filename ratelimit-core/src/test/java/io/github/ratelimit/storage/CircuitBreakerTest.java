@@ -0,0 +1,74 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private ManualTimeSource timeSource;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        circuitBreaker = new CircuitBreaker(3, Duration.ofSeconds(5), timeSource);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveThreshold() {
+        new CircuitBreaker(0, Duration.ofSeconds(5), timeSource);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void letsSingleProbeThroughAfterOpenDuration() {
+        openBreaker();
+        timeSource.advance(Duration.ofSeconds(5));
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void reopensWhenProbeFails() {
+        openBreaker();
+        timeSource.advance(Duration.ofSeconds(5));
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        timeSource.advance(Duration.ofSeconds(4));
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoalescingEntryStorageTest {
+
+    private static final String USER_ONE_POLICY = "u1";
+
+    private ManualTimeSource timeSource;
+    private AtomicInteger trips;
+    private volatile boolean failing;
+    private CoalescingEntryStorage storage;
+
+    @Before
+    public void setup() throws RateLimiterException {
+        timeSource = new ManualTimeSource();
+        trips = new AtomicInteger();
+        storage = new CoalescingEntryStorage(new DistributedEntryStorage(new InMemoryStorageBackend<>(timeSource)) {
+            @Override
+            public List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights)
+                    throws RateLimiterException {
+                trips.incrementAndGet();
+                if (failing) {
+                    throw new IllegalStateException("Storage backend is down");
+                }
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.conformRateLimitsSequence(identifier, requestWeights);
+            }
+        }, 16);
+        List<RateLimitEntry> entries = Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perHour(1000)).filled().build());
+        storage.storeEntries(USER_ONE_POLICY, entries);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveBatchSize() {
+        new CoalescingEntryStorage(storage, 0);
+    }
+
+    @Test
+    public void coalescesConcurrentConformsOfOneIdentifier() throws InterruptedException {
+        int numThreads = 16;
+        int requestsPerThread = 100;
+        AtomicInteger conformed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < requestsPerThread; i++) {
+                    try {
+                        if (storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform()) {
+                            conformed.incrementAndGet();
+                        }
+                    } catch (RateLimiterException ex) {
+                        errors.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(0, errors.get());
+        assertEquals(1000, conformed.get());
+        assertTrue("trips: " + trips.get(), trips.get() < numThreads * requestsPerThread / 2);
+    }
+
+    @Test
+    public void failsEveryCallerOfFailedTrip() throws InterruptedException {
+        failing = true;
+        int numThreads = 8;
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            new Thread(() -> {
+                try {
+                    storage.conformRateLimits(USER_ONE_POLICY, 1);
+                } catch (RateLimiterException ex) {
+                    failures.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(numThreads, failures.get());
+    }
+
+    @Test
+    public void releasesEveryCallerWhenSenderThrowsError() throws InterruptedException {
+        CoalescingEntryStorage erroringStorage = new CoalescingEntryStorage(
+                new DistributedEntryStorage(new InMemoryStorageBackend<>(timeSource)) {
+                    @Override
+                    public List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights) {
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new StackOverflowError();
+                    }
+                });
+        int numThreads = 8;
+        AtomicInteger released = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            new Thread(() -> {
+                try {
+                    erroringStorage.conformRateLimits(USER_ONE_POLICY, 1);
+                } catch (RateLimiterException | StackOverflowError ex) {
+                    released.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(numThreads, released.get());
+    }
+
+    @Test
+    public void failsQueuedCallersAfterExecutionTimeout() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CoalescingEntryStorage slowStorage = new CoalescingEntryStorage(
+                new DistributedEntryStorage(new InMemoryStorageBackend<>(timeSource)) {
+                    @Override
+                    public List<ConsumptionEntry> conformRateLimitsSequence(String identifier, int[] requestWeights)
+                            throws RateLimiterException {
+                        sending.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return super.conformRateLimitsSequence(identifier, requestWeights);
+                    }
+
+                    @Override
+                    public long getExecutionTimeout() {
+                        return 20L;
+                    }
+                });
+        Thread leader = new Thread(() -> {
+            try {
+                slowStorage.conformRateLimits(USER_ONE_POLICY, 1);
+            } catch (RateLimiterException ignored) {
+            }
+        });
+        leader.start();
+        sending.await();
+
+        long start = System.nanoTime();
+        try {
+            slowStorage.conformRateLimits(USER_ONE_POLICY, 1);
+            fail();
+        } catch (RateLimiterException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        leader.join();
+    }
+
+}
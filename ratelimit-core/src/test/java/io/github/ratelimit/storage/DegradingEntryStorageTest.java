@@ -0,0 +1,187 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.EntryStorage;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DegradingEntryStorageTest {
+
+    private static final String USER_ONE_POLICY = "u1";
+
+    private ManualTimeSource timeSource;
+    private AtomicInteger calls;
+    private CircuitBreakingStorageBackend<String> backend;
+    private EntryStorage distributedStorage;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        calls = new AtomicInteger();
+        StorageBackend<String> pendingBackend = new StorageBackend<String>() {
+            @Override
+            public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(String key,
+                                                                                      EntryStorageCommand<T> command) {
+                calls.incrementAndGet();
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public CompletableFuture<Void> storeEntries(String key, List<RateLimitEntry> entries) {
+                calls.incrementAndGet();
+                return new CompletableFuture<>();
+            }
+        };
+        backend = new CircuitBreakingStorageBackend<>(pendingBackend,
+                new CircuitBreaker(2, Duration.ofSeconds(30), timeSource), Duration.ofMillis(10));
+        distributedStorage = new DistributedEntryStorage(backend);
+    }
+
+    @Test
+    public void failsOpen() throws Exception {
+        ConsumptionEntry consumption = DegradingEntryStorage.failOpen(distributedStorage)
+                .conformRateLimits(USER_ONE_POLICY, 1);
+        assertTrue(consumption.doesConform());
+    }
+
+    @Test
+    public void failsClosed() throws Exception {
+        ConsumptionEntry consumption = DegradingEntryStorage.failClosed(distributedStorage)
+                .conformRateLimits(USER_ONE_POLICY, 1);
+        assertFalse(consumption.doesConform());
+    }
+
+    @Test
+    public void skipsBackendOnceBreakerIsOpen() throws Exception {
+        EntryStorage storage = DegradingEntryStorage.failOpen(distributedStorage);
+        storage.conformRateLimits(USER_ONE_POLICY, 1);
+        storage.conformRateLimits(USER_ONE_POLICY, 1);
+        assertEquals(CircuitBreaker.State.OPEN, backend.getCircuitBreaker().getState());
+        assertEquals(2, calls.get());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+        }
+        assertEquals(2, calls.get());
+        assertTrue(System.nanoTime() - start < Duration.ofMillis(500).toNanos());
+    }
+
+    @Test
+    public void limitsLocallyToFractionOfPolicies() throws Exception {
+        List<RefillPolicy> policies = Collections.singletonList(SimpleRefillPolicy.perHour(100));
+        EntryStorage storage = new DegradingEntryStorage(distributedStorage, DegradationMode.LOCAL_LIMIT,
+                identifier -> policies, 0.1d, timeSource);
+        int conformed = 0;
+        for (int i = 0; i < 50; i++) {
+            if (storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform()) {
+                conformed++;
+            }
+        }
+        assertEquals(10, conformed);
+    }
+
+    @Test
+    public void clearsLocalLimitsOnceDelegateStaysRecovered() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        InMemoryStorageBackend<String> healthyBackend = new InMemoryStorageBackend<>(timeSource);
+        StorageBackend<String> flakyBackend = new StorageBackend<String>() {
+            @Override
+            public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(String key,
+                                                                                      EntryStorageCommand<T> command) {
+                if (down.get()) {
+                    CompletableFuture<StorageBackendCommandResult<T>> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(RateLimitExceptions.backendUnavailable());
+                    return failed;
+                }
+                return healthyBackend.executeAsync(key, command);
+            }
+
+            @Override
+            public CompletableFuture<Void> storeEntries(String key, List<RateLimitEntry> entries) {
+                return healthyBackend.storeEntries(key, entries);
+            }
+        };
+        List<RefillPolicy> policies = Collections.singletonList(SimpleRefillPolicy.perHour(10));
+        EntryStorage storage = new DegradingEntryStorage(new DistributedEntryStorage(flakyBackend),
+                DegradationMode.LOCAL_LIMIT, identifier -> policies, 0.1d, timeSource);
+        assertTrue(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+        assertFalse(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+
+        down.set(false);
+        assertTrue(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+        down.set(true);
+        assertFalse(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+
+        down.set(false);
+        assertTrue(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+        timeSource.advance(DegradingEntryStorage.DEFAULT_RECOVERY_PERIOD);
+        assertTrue(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+        down.set(true);
+        assertTrue(storage.conformRateLimits(USER_ONE_POLICY, 1).doesConform());
+    }
+
+    @Test
+    public void doesNotLogBreakerRejectionsAsSevere() throws Exception {
+        EntryStorage storage = DegradingEntryStorage.failOpen(distributedStorage);
+        storage.conformRateLimits(USER_ONE_POLICY, 1);
+        storage.conformRateLimits(USER_ONE_POLICY, 1);
+        assertEquals(CircuitBreaker.State.OPEN, backend.getCircuitBreaker().getState());
+
+        List<Level> levels = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                levels.add(record.getLevel());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(DistributedEntryStorage.class.getName());
+        logger.addHandler(handler);
+        try {
+            for (int i = 0; i < 10; i++) {
+                storage.conformRateLimits(USER_ONE_POLICY, 1);
+            }
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertFalse(levels.contains(Level.SEVERE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidFraction() {
+        new DegradingEntryStorage(distributedStorage, DegradationMode.LOCAL_LIMIT,
+                identifier -> Collections.emptyList(), 1.5d, timeSource);
+    }
+
+}
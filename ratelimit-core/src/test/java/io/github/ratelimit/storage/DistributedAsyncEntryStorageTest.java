@@ -0,0 +1,95 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.AsyncRateLimiter;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.AsyncRateLimiterImpl;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DistributedAsyncEntryStorageTest {
+
+    private ManualTimeSource timeSource;
+    private InMemoryStorageBackend<String> backend;
+    private AsyncRateLimiter rateLimiter;
+
+    @Before
+    public void setup() throws Exception {
+        timeSource = new ManualTimeSource();
+        backend = new InMemoryStorageBackend<>(timeSource);
+        rateLimiter = AsyncRateLimiterImpl.withStorage(new DistributedAsyncEntryStorage(backend));
+        rateLimiter.getStorage().storeEntries("u1", Collections.singletonList(RateLimiting.entryBuilder()
+                .withTimeSource(timeSource).withRefillPolicy(SimpleRefillPolicy.perHour(3)).filled().build()))
+                .toCompletableFuture().get();
+    }
+
+    @Test
+    public void conformsWithoutBlocking() throws Exception {
+        ConsumptionEntry consumption = rateLimiter.conformRateLimitsWithConsumption("u1", 2).toCompletableFuture().get();
+        assertTrue(consumption.doesConform());
+        assertEquals(1, consumption.getRemainingTokens());
+        assertFalse(rateLimiter.conformsRateLimits("u1", 2).toCompletableFuture().get());
+        assertEquals(Long.valueOf(1), rateLimiter.getTokenCounts("u1").toCompletableFuture().get().values()
+                .iterator().next());
+    }
+
+    @Test
+    public void unknownIdentifierConformsAndStoresFallbackEntries() throws Exception {
+        ConsumptionEntry consumption = rateLimiter.conformRateLimitsWithConsumption("unknown").toCompletableFuture()
+                .get();
+        assertTrue(consumption.doesConform());
+        assertEquals(0, consumption.getRemainingTokens());
+        assertTrue(backend.getRateLimitEntries("unknown").get().containsEntries());
+    }
+
+    @Test
+    public void timesOutWithRateLimiterException() throws Exception {
+        DistributedAsyncEntryStorage storage = new DistributedAsyncEntryStorage(new PendingStorageBackend()) {
+            @Override
+            public long getExecutionTimeout() {
+                return 20;
+            }
+        };
+        CompletableFuture<ConsumptionEntry> consumption = storage.conformRateLimits("u1", 1).toCompletableFuture();
+        try {
+            consumption.get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RateLimiterException);
+            assertTrue(ex.getCause().getCause() instanceof TimeoutException);
+        }
+    }
+
+    private static final class PendingStorageBackend implements StorageBackend<String> {
+
+        @Override
+        public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(String key,
+                                                                                  EntryStorageCommand<T> command) {
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public CompletableFuture<Void> storeEntries(String key, List<RateLimitEntry> entries) {
+            return new CompletableFuture<>();
+        }
+
+    }
+
+}
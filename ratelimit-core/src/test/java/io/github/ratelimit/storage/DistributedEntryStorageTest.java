@@ -0,0 +1,240 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DistributedEntryStorageTest {
+
+    private ManualTimeSource timeSource;
+    private InMemoryStorageBackend<String> backend;
+    private DistributedEntryStorage storage;
+
+    @Before
+    public void setup() throws RateLimiterException {
+        timeSource = new ManualTimeSource();
+        backend = new InMemoryStorageBackend<>(timeSource);
+        storage = new DistributedEntryStorage(backend);
+        storage.storeEntries("u1", newEntries(10));
+        storage.storeEntries("u2", newEntries(10));
+        storage.storeEntries("u3", newEntries(3));
+    }
+
+    @Test
+    public void conformsBatchWithMixedWeights() throws RateLimiterException {
+        Map<String, Integer> requestWeights = new LinkedHashMap<>();
+        requestWeights.put("u3", 5);
+        requestWeights.put("u1", 1);
+        requestWeights.put("u2", 4);
+
+        Map<String, ConsumptionEntry> consumptions = storage.conformRateLimitsBatch(requestWeights);
+        assertEquals(new ArrayList<>(requestWeights.keySet()), new ArrayList<>(consumptions.keySet()));
+        assertFalse(consumptions.get("u3").doesConform());
+        assertTrue(consumptions.get("u1").doesConform());
+        assertEquals(9, consumptions.get("u1").getRemainingTokens());
+        assertTrue(consumptions.get("u2").doesConform());
+        assertEquals(6, consumptions.get("u2").getRemainingTokens());
+
+        assertEquals(storage.conformRateLimits("u2", 6).getRemainingTokens(), 0);
+    }
+
+    @Test
+    public void unknownIdentifiersConformAndStoreFallbackEntries() throws Exception {
+        Map<String, Integer> requestWeights = new LinkedHashMap<>();
+        requestWeights.put("unknown", 1);
+        requestWeights.put("u1", 1);
+
+        Map<String, ConsumptionEntry> consumptions = storage.conformRateLimitsBatch(requestWeights);
+        assertTrue(consumptions.get("unknown").doesConform());
+        assertEquals(0, consumptions.get("unknown").getRemainingTokens());
+        assertTrue(backend.getRateLimitEntries("unknown").get().containsEntries());
+    }
+
+    @Test
+    public void storesFallbackEntriesOfABatchAtOnce() throws Exception {
+        List<CompletableFuture<Void>> stores = new ArrayList<>();
+        InMemoryStorageBackend<String> slowStoreBackend = new InMemoryStorageBackend<String>(timeSource) {
+            @Override
+            public synchronized CompletableFuture<Void> storeEntries(String key, List<RateLimitEntry> entries) {
+                CompletableFuture<Void> store = super.storeEntries(key, entries);
+                CompletableFuture<Void> pending = new CompletableFuture<>();
+                stores.add(pending);
+                if (stores.size() == 3) {
+                    stores.forEach(stored -> stored.complete(null));
+                }
+                return store.thenCompose(stored -> pending);
+            }
+        };
+        DistributedEntryStorage batchStorage = new DistributedEntryStorage(slowStoreBackend);
+        Map<String, Integer> requestWeights = new LinkedHashMap<>();
+        requestWeights.put("unknown1", 1);
+        requestWeights.put("unknown2", 1);
+        requestWeights.put("unknown3", 1);
+
+        Map<String, ConsumptionEntry> consumptions = batchStorage.conformRateLimitsBatch(requestWeights);
+        assertEquals(3, consumptions.size());
+        assertEquals(3, stores.size());
+    }
+
+    @Test
+    public void emptyBatchReturnsEmptyResult() throws RateLimiterException {
+        assertTrue(storage.conformRateLimitsBatch(Collections.emptyMap()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveBatchWindow() {
+        DistributedEntryStorage.withMicroBatching(backend, Duration.ZERO, 16);
+    }
+
+    @Test
+    public void microBatchesConformsOfDifferentIdentifiers() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        InMemoryStorageBackend<String> countingBackend = new InMemoryStorageBackend<String>(16, timeSource) {
+            @Override
+            public <T> CompletableFuture<Map<String, StorageBackendCommandResult<T>>> executeAllAsync(
+                    Set<String> keys, EntryStorageCommand<T> command) {
+                batches.incrementAndGet();
+                return super.executeAllAsync(keys, command);
+            }
+        };
+        DistributedEntryStorage batching = DistributedEntryStorage.withMicroBatching(countingBackend,
+                Duration.ofMillis(1), 8);
+        int numThreads = 8;
+        int requestsPerThread = 50;
+        for (int t = 0; t < numThreads; t++) {
+            batching.storeEntries("user" + t, newEntries(requestsPerThread - 10));
+        }
+
+        AtomicInteger conformed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            String identifier = "user" + t;
+            new Thread(() -> {
+                for (int i = 0; i < requestsPerThread; i++) {
+                    try {
+                        if (batching.conformRateLimits(identifier, 1).doesConform()) {
+                            conformed.incrementAndGet();
+                        }
+                    } catch (RateLimiterException ex) {
+                        errors.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(0, errors.get());
+        assertEquals(numThreads * (requestsPerThread - 10), conformed.get());
+        assertTrue("batches: " + batches.get(), batches.get() < numThreads * requestsPerThread);
+    }
+
+    @Test
+    public void microBatchingStoresFallbackEntries() throws Exception {
+        DistributedEntryStorage batching = DistributedEntryStorage.withMicroBatching(backend,
+                Duration.ofNanos(200_000), 4);
+        ConsumptionEntry consumption = batching.conformRateLimits("unknown", 1);
+        assertTrue(consumption.doesConform());
+        assertEquals(0, consumption.getRemainingTokens());
+        assertTrue(backend.getRateLimitEntries("unknown").get().containsEntries());
+        assertEquals(9, batching.conformRateLimits("u1", 1).getRemainingTokens());
+    }
+
+    @Test
+    public void negativeCacheAnswersUnconfiguredIdentifiersLocally() throws Exception {
+        AtomicInteger commands = new AtomicInteger();
+        InMemoryStorageBackend<String> countingBackend = new InMemoryStorageBackend<String>(timeSource) {
+            @Override
+            public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(String key,
+                                                                                      EntryStorageCommand<T> command) {
+                commands.incrementAndGet();
+                return super.executeAsync(key, command);
+            }
+        };
+        DistributedEntryStorage cached = DistributedEntryStorage.builder(countingBackend)
+                .withNegativeCache(Duration.ofSeconds(10), 100).withTimeSource(timeSource).build();
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cached.conformRateLimits("anonymous", 1).doesConform());
+        }
+        assertTrue(cached.getRefilledEntries("anonymous").isEmpty());
+        assertEquals(1, commands.get());
+
+        timeSource.advance(Duration.ofSeconds(10));
+        cached.conformRateLimits("anonymous", 1);
+        assertEquals(2, commands.get());
+
+        cached.storeEntries("anonymous", newEntries(2));
+        assertEquals(1, cached.conformRateLimits("anonymous", 1).getRemainingTokens());
+        assertEquals(3, commands.get());
+    }
+
+    @Test
+    public void initializesNewIdentifierFromTemplateInOneExecution() throws Exception {
+        AtomicInteger operations = new AtomicInteger();
+        InMemoryStorageBackend<String> countingBackend = new InMemoryStorageBackend<String>(timeSource) {
+            @Override
+            public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(String key,
+                                                                                      EntryStorageCommand<T> command) {
+                operations.incrementAndGet();
+                return super.executeAsync(key, command);
+            }
+
+            @Override
+            public CompletableFuture<Void> storeEntries(String key, List<RateLimitEntry> entries) {
+                operations.incrementAndGet();
+                return super.storeEntries(key, entries);
+            }
+        };
+        DistributedEntryStorage templated = new DistributedEntryStorage(countingBackend);
+        PolicyTemplate template = PolicyTemplate.of(SimpleRefillPolicy.perHour(3));
+
+        assertEquals(2, templated.conformRateLimits("new", 1, template).getRemainingTokens());
+        assertEquals(1, operations.get());
+        assertEquals(1, templated.conformRateLimits("new", 1, template).getRemainingTokens());
+        assertEquals(0, templated.conformRateLimits("new", 1).getRemainingTokens());
+        assertFalse(templated.conformRateLimits("new", 1, template).doesConform());
+        assertEquals(4, operations.get());
+    }
+
+    @Test
+    public void templateReplacesStoredFallbackOfUnknownIdentifier() throws Exception {
+        assertTrue(storage.conformRateLimits("unknown", 1).doesConform());
+        assertTrue(backend.getRateLimitEntries("unknown").get().getData().isEmpty());
+
+        PolicyTemplate template = PolicyTemplate.of(SimpleRefillPolicy.perHour(2));
+        assertEquals(1, storage.conformRateLimits("unknown", 1, template).getRemainingTokens());
+        assertEquals(0, storage.conformRateLimits("unknown", 1, template).getRemainingTokens());
+        assertFalse(storage.conformRateLimits("unknown", 1, template).doesConform());
+        assertEquals(1, backend.getRateLimitEntries("unknown").get().getData().size());
+    }
+
+    private List<RateLimitEntry> newEntries(int capacity) {
+        return Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perHour(capacity)).filled().build());
+    }
+
+}
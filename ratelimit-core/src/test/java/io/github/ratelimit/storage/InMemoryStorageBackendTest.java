@@ -0,0 +1,80 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.GetEntries;
+import io.github.ratelimit.storage.command.GetUpdateEntries;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class InMemoryStorageBackendTest {
+
+    private static final String USER_ONE_POLICY = "u1";
+
+    private ManualTimeSource timeSource;
+    private InMemoryStorageBackend<String> backend;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        backend = new InMemoryStorageBackend<>(16, timeSource);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveStripes() {
+        new InMemoryStorageBackend<String>(0, timeSource);
+    }
+
+    @Test
+    public void concurrentConsumptionNeverExceedsCapacity() throws InterruptedException, RateLimiterException {
+        List<RateLimitEntry> entries = Arrays.asList(
+                RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(10000)).filled().build(),
+                RateLimiting.entryBuilder().withTimeSource(timeSource)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(5000)).filled().build());
+        backend.storeEntries(USER_ONE_POLICY, entries);
+        int numThreads = 8;
+        AtomicInteger conformed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    if (backend.execute(USER_ONE_POLICY, new ConformRateLimits(1))
+                            .getData().doesConform()) {
+                        conformed.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertEquals(conformed.get(), 5000);
+        assertEquals(new DistributedEntryStorage(backend).getCurrentEntries(USER_ONE_POLICY).get(1).getTokenCount(), 0L);
+    }
+
+    @Test
+    public void returnsCopiesOfStoredEntries() {
+        backend.storeEntries(USER_ONE_POLICY, Collections.singletonList(RateLimiting.entryBuilder()
+                .withTimeSource(timeSource).withRefillPolicy(SimpleRefillPolicy.perHour(10)).filled().build()));
+        List<RateLimitEntry> entries = backend.execute(USER_ONE_POLICY, new GetEntries()).getData();
+        entries.get(0).consumeInPlace(10);
+
+        List<RateLimitEntry> updated = backend.execute(USER_ONE_POLICY, new GetUpdateEntries()).getData();
+        assertNotSame(entries, updated);
+        assertEquals(10L, updated.get(0).getTokenCount());
+    }
+
+}
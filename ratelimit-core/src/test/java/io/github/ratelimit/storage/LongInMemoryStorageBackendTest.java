@@ -0,0 +1,79 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.LongRateLimiter;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LongInMemoryStorageBackendTest {
+
+    private ManualTimeSource timeSource;
+    private LongInMemoryStorageBackend backend;
+    private LongRateLimiter rateLimiter;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        backend = new LongInMemoryStorageBackend(timeSource);
+        rateLimiter = RateLimiting.withStorage(new DistributedLongEntryStorage(backend));
+    }
+
+    private List<RateLimitEntry> perSecond(int capacity) {
+        return Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(capacity)).filled().build());
+    }
+
+    @Test
+    public void conformsOnUserWithNoEntries() throws RateLimiterException {
+        assertTrue(rateLimiter.conformsRateLimits(42L));
+    }
+
+    @Test
+    public void conformsUntilEmptyAndRefills() throws RateLimiterException {
+        backend.storeEntries(7L, perSecond(2));
+        assertTrue(rateLimiter.conformsRateLimits(7L));
+        assertTrue(rateLimiter.conformsRateLimits(7L));
+        ConsumptionEntry rejected = rateLimiter.conformRateLimitsWithConsumption(7L);
+        assertFalse(rejected.doesConform());
+        assertEquals(rejected.getNanosUntilConsumption(), Duration.ofMillis(500).toNanos());
+
+        timeSource.advance(Duration.ofSeconds(1));
+        assertEquals(rateLimiter.getTokenCounts(7L).get("PT1S"), Long.valueOf(2));
+    }
+
+    @Test
+    public void keepsIdentifiersApartAcrossResizes() throws ExecutionException, InterruptedException {
+        for (long id = 0; id < 1000; id++) {
+            backend.storeEntries(id * 1024, perSecond((int) (id % 10) + 1));
+        }
+        assertEquals(backend.size(), 1000);
+        for (long id = 0; id < 1000; id++) {
+            List<RateLimitEntry> entries = backend.getRateLimitEntries(id * 1024).get().getData();
+            assertEquals(entries.get(0).getRefillPolicy().getCapacity(), (int) (id % 10) + 1);
+        }
+        assertFalse(backend.getRateLimitEntries(1L).get().containsEntries());
+    }
+
+    @Test
+    public void boxedKeysDelegateToPrimitiveKeys() throws ExecutionException, InterruptedException {
+        StorageBackend<Long> boxed = backend;
+        boxed.storeEntries(Long.MIN_VALUE, perSecond(3));
+        assertTrue(backend.getRateLimitEntries(Long.MIN_VALUE).get().containsEntries());
+        assertTrue(boxed.getRateLimitEntries(Long.MIN_VALUE).get().containsEntries());
+    }
+
+}
@@ -0,0 +1,49 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NegativeCacheTest {
+
+    private ManualTimeSource timeSource;
+    private NegativeCache negativeCache;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        negativeCache = new NegativeCache(Duration.ofSeconds(1).toNanos(), 16, timeSource);
+    }
+
+    @Test
+    public void expiresAfterTtl() {
+        negativeCache.add("u1");
+        assertTrue(negativeCache.contains("u1"));
+        timeSource.advance(Duration.ofMillis(999));
+        assertTrue(negativeCache.contains("u1"));
+        timeSource.advance(Duration.ofMillis(1));
+        assertFalse(negativeCache.contains("u1"));
+    }
+
+    @Test
+    public void removesIdentifier() {
+        negativeCache.add("u1");
+        negativeCache.remove("u1");
+        assertFalse(negativeCache.contains("u1"));
+    }
+
+    @Test
+    public void staysBounded() {
+        for (int i = 0; i < 1000; i++) {
+            negativeCache.add("u" + i);
+            assertTrue(negativeCache.size() <= 16);
+        }
+        assertTrue(negativeCache.contains("u999"));
+    }
+
+}
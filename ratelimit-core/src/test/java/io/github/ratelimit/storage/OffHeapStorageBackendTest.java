@@ -0,0 +1,173 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.GetEntries;
+import io.github.ratelimit.storage.command.GetUpdateEntries;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class OffHeapStorageBackendTest {
+
+    private ManualTimeSource timeSource;
+    private OffHeapStorageBackend backend;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        backend = new OffHeapStorageBackend(16, timeSource);
+    }
+
+    private List<RateLimitEntry> entries() {
+        EntryBuilder builder = RateLimiting.entryBuilder().withTimeSource(timeSource);
+        return Arrays.asList(
+                builder.withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET)
+                        .withRefillPolicy(SimpleRefillPolicy.perSecond(5)).filled().build(),
+                builder.withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET)
+                        .withRefillPolicy(SimpleRefillPolicy.perMinute(40)).filled().build(),
+                builder.withAlgorithm(RateLimitAlgorithm.FIXED_WINDOW)
+                        .withRefillPolicy(SimpleRefillPolicy.withRefill(12, Duration.ofSeconds(3))).filled().build());
+    }
+
+    @Test
+    public void conformsLikeInMemoryBackend() {
+        InMemoryStorageBackend<String> reference = new InMemoryStorageBackend<>(timeSource);
+        for (int i = 0; i < 50; i++) {
+            backend.storeEntries("u" + i, entries());
+            reference.storeEntries("u" + i, entries());
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            String key = "u" + random.nextInt(50);
+            int weight = 1 + random.nextInt(3);
+            ConsumptionEntry expected = reference.execute(key, new ConformRateLimits(weight)).getData();
+            ConsumptionEntry actual = backend.execute(key, new ConformRateLimits(weight)).getData();
+            assertEquals(actual.doesConform(), expected.doesConform());
+            assertEquals(actual.getRemainingTokens(), expected.getRemainingTokens());
+            assertEquals(actual.getNanosUntilConsumption(), expected.getNanosUntilConsumption());
+            assertEquals(actual.getViolatedPolicy(), expected.getViolatedPolicy());
+            timeSource.advance(Duration.ofMillis(random.nextInt(40)));
+        }
+    }
+
+    @Test
+    public void returnsNotFoundForUnknownKey() {
+        assertFalse(backend.execute("unknown", new ConformRateLimits(1)).containsEntries());
+        assertFalse(backend.execute("unknown", new GetEntries()).containsEntries());
+    }
+
+    @Test
+    public void materializesEntriesForOtherCommands() {
+        backend.storeEntries("u1", entries());
+        backend.execute("u1", new ConformRateLimits(5));
+        List<RateLimitEntry> stored = backend.execute("u1", new GetEntries()).getData();
+        assertEquals(stored.size(), 3);
+        assertEquals(stored.get(0).getTokenCount(), 0L);
+        assertEquals(stored.get(1).getTokenCount(), 35L);
+        assertEquals(stored.get(2).getTokenCount(), 7L);
+        assertEquals(stored.get(1).getRefillPolicy(), SimpleRefillPolicy.perMinute(40));
+
+        timeSource.advance(Duration.ofMillis(400));
+        List<RateLimitEntry> updated = backend.execute("u1", new GetUpdateEntries()).getData();
+        assertEquals(updated.get(0).getTokenCount(), 2L);
+        assertEquals(backend.execute("u1", new GetEntries()).getData().get(0).getTokenCount(), 2L);
+    }
+
+    @Test
+    public void replacesEntriesOfExistingKey() {
+        backend.storeEntries("u1", entries());
+        backend.storeEntries("u1", Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(1)).filled().build()));
+        assertEquals(backend.size(), 1);
+        assertTrue(backend.execute("u1", new ConformRateLimits(1)).getData().doesConform());
+        assertFalse(backend.execute("u1", new ConformRateLimits(1)).getData().doesConform());
+    }
+
+    @Test
+    public void growsIndexBeyondExpectedKeys() {
+        for (int i = 0; i < 5000; i++) {
+            backend.storeEntries("u" + i, entries());
+        }
+        assertEquals(backend.size(), 5000);
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(backend.execute("u" + i, new ConformRateLimits(5)).getData().doesConform());
+        }
+    }
+
+    @Test
+    public void keepsIdentifiersWithCollidingHashesApart() {
+        OffHeapStorageBackend collidingBackend = new OffHeapStorageBackend(16, timeSource) {
+            @Override
+            long hash(String key) {
+                return 1L + key.length() % 2;
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            collidingBackend.storeEntries("u" + i, entries());
+            collidingBackend.execute("u" + i, new ConformRateLimits(1 + i % 5));
+        }
+        for (int i = 0; i < 100; i += 2) {
+            collidingBackend.removeEntries("u" + i);
+        }
+
+        assertEquals(collidingBackend.size(), 50);
+        for (int i = 0; i < 100; i++) {
+            if (i % 2 == 0) {
+                assertFalse(collidingBackend.execute("u" + i, new GetEntries()).containsEntries());
+            } else {
+                assertEquals(collidingBackend.execute("u" + i, new GetEntries()).getData().get(0).getTokenCount(),
+                        5L - (1 + i % 5));
+            }
+        }
+    }
+
+    @Test
+    public void removesEntriesAndReusesTheirSlots() {
+        for (int i = 0; i < 100; i++) {
+            backend.storeEntries("u" + i, entries());
+        }
+        long allocatedBytes = backend.getAllocatedBytes();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                backend.removeEntries("u" + i);
+            }
+            assertEquals(backend.size(), 0);
+            for (int i = 0; i < 100; i++) {
+                backend.storeEntries("u" + i, entries());
+            }
+        }
+        assertEquals(backend.size(), 100);
+        assertEquals(backend.getAllocatedBytes(), allocatedBytes);
+        assertTrue(backend.execute("u42", new ConformRateLimits(5)).getData().doesConform());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMoreExpectedKeysThanIndexCanAddress() {
+        new OffHeapStorageBackend(OffHeapStorageBackend.MAX_KEYS + 1, timeSource);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnsupportedAlgorithm() {
+        backend.storeEntries("u1", Collections.singletonList(RateLimiting.entryBuilder()
+                .withAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(1)).build()));
+    }
+
+}
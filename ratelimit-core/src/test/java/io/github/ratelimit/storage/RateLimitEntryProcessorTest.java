@@ -0,0 +1,117 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.ConformRateLimitsOrInitialize;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.cache.processor.MutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitEntryProcessorTest {
+
+    private ManualTimeSource timeSource;
+    private CountingEntry mutableEntry;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        mutableEntry = new CountingEntry(new ArrayList<>(Collections.singletonList(RateLimiting.entryBuilder()
+                .withTimeSource(timeSource).withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(2)).filled().build())));
+    }
+
+    @Test
+    public void writesConformantConsumptions() {
+        StorageBackendCommandResult<ConsumptionEntry> result = conform();
+        assertTrue(result.getData().doesConform());
+        assertEquals(1, mutableEntry.writes);
+    }
+
+    @Test
+    public void skipsWriteOnRejection() {
+        conform();
+        conform();
+        StorageBackendCommandResult<ConsumptionEntry> result = conform();
+        assertFalse(result.getData().doesConform());
+        assertEquals(2, mutableEntry.writes);
+    }
+
+    @Test
+    public void initializesMissingEntryInSameExecution() {
+        CountingEntry missingEntry = new CountingEntry(null);
+        RateLimitEntryProcessor<String, ConsumptionEntry> processor = new RateLimitEntryProcessor<>(
+                new ConformRateLimitsOrInitialize(1, PolicyTemplate.of(SimpleRefillPolicy.perSecond(2))), timeSource);
+
+        StorageBackendCommandResult<ConsumptionEntry> result = processor.process(missingEntry);
+        assertTrue(result.getData().doesConform());
+        assertEquals(1, result.getData().getRemainingTokens());
+        assertEquals(1, missingEntry.writes);
+        assertEquals(1, missingEntry.getValue().get(0).getTokenCount());
+
+        assertFalse(new RateLimitEntryProcessor<String, ConsumptionEntry>(new ConformRateLimits(1), timeSource)
+                .process(new CountingEntry(null)).containsEntries());
+    }
+
+    private StorageBackendCommandResult<ConsumptionEntry> conform() {
+        return new RateLimitEntryProcessor<String, ConsumptionEntry>(new ConformRateLimits(1), timeSource)
+                .process(mutableEntry);
+    }
+
+    private static final class CountingEntry implements MutableEntry<String, List<RateLimitEntry>> {
+
+        private List<RateLimitEntry> value;
+        private int writes;
+
+        private CountingEntry(List<RateLimitEntry> value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean exists() {
+            return value != null;
+        }
+
+        @Override
+        public void remove() {
+            value = null;
+        }
+
+        @Override
+        public void setValue(List<RateLimitEntry> value) {
+            this.value = value;
+            writes++;
+        }
+
+        @Override
+        public String getKey() {
+            return "u1";
+        }
+
+        @Override
+        public List<RateLimitEntry> getValue() {
+            return value;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+package io.github.ratelimit.storage;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TieredEntryStorageTest {
+
+    private ManualTimeSource timeSource;
+    private Map<String, String> plans;
+    private PolicyTiers policyTiers;
+    private InMemoryStorageBackend<String> backend;
+    private TieredEntryStorage storage;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        plans = new HashMap<>();
+        plans.put("u1", "free");
+        plans.put("u2", "pro");
+        policyTiers = new PolicyTiers()
+                .define("free", PolicyTemplate.of(SimpleRefillPolicy.perHour(2)))
+                .define("pro", PolicyTemplate.of(SimpleRefillPolicy.perHour(100)));
+        backend = new InMemoryStorageBackend<>(timeSource);
+        storage = new TieredEntryStorage(backend, plans::get, policyTiers, timeSource);
+    }
+
+    @Test
+    public void createsEntriesOnFirstConsumptionOnly() throws Exception {
+        List<RateLimitEntry> entries = storage.getRefilledEntries("u1");
+        assertEquals(2, entries.get(0).getTokenCount());
+        String key = policyTiers.get("free").keyOf("u1");
+        assertFalse(backend.getRateLimitEntries(key).get().containsEntries());
+
+        assertEquals(1, storage.conformRateLimits("u1", 1).getRemainingTokens());
+        assertEquals(0, storage.conformRateLimits("u1", 1).getRemainingTokens());
+        assertFalse(storage.conformRateLimits("u1", 1).doesConform());
+        assertTrue(backend.getRateLimitEntries(key).get().containsEntries());
+        assertEquals(0, storage.getCurrentEntries("u1").get(0).getTokenCount());
+    }
+
+    @Test
+    public void startsOverOnPlanChange() throws RateLimiterException {
+        storage.conformRateLimits("u1", 2);
+        assertFalse(storage.conformRateLimits("u1", 1).doesConform());
+
+        plans.put("u1", "pro");
+        assertEquals(99, storage.conformRateLimits("u1", 1).getRemainingTokens());
+    }
+
+    @Test
+    public void removesEntriesOfPreviousTierOnPlanChange() throws Exception {
+        storage.conformRateLimits("u1", 1);
+        String freeKey = policyTiers.get("free").keyOf("u1");
+        assertTrue(backend.getRateLimitEntries(freeKey).get().containsEntries());
+
+        plans.put("u1", "pro");
+        assertEquals(99, storage.conformRateLimits("u1", 1).getRemainingTokens());
+        assertFalse(backend.getRateLimitEntries(freeKey).get().containsEntries());
+
+        policyTiers.remove("pro");
+        plans.put("u1", "free");
+        String proKey = policyTiers.staleKeysOf("u1", policyTiers.get("free")).get(0);
+        assertTrue(backend.getRateLimitEntries(proKey).get().containsEntries());
+        assertEquals(1, storage.conformRateLimits("u1", 1).getRemainingTokens());
+        assertFalse(backend.getRateLimitEntries(proKey).get().containsEntries());
+    }
+
+    @Test
+    public void removesEntriesOfEveryPreviousVersion() throws Exception {
+        storage.conformRateLimits("u1", 1);
+        String firstKey = policyTiers.get("free").keyOf("u1");
+        for (int capacity = 3; capacity < 20; capacity++) {
+            policyTiers.define("free", PolicyTemplate.of(SimpleRefillPolicy.perHour(capacity)));
+        }
+        assertTrue(policyTiers.get("free").previousKeysOf("u1").contains(firstKey));
+        assertEquals(18, storage.conformRateLimits("u1", 1).getRemainingTokens());
+        assertFalse(backend.getRateLimitEntries(firstKey).get().containsEntries());
+    }
+
+    @Test
+    public void startsOverOnTierRedefinition() throws RateLimiterException {
+        long stamp = policyTiers.get("free").getStamp();
+        storage.conformRateLimits("u1", 2);
+        assertFalse(storage.conformRateLimits("u1", 1).doesConform());
+
+        policyTiers.define("free", PolicyTemplate.of(SimpleRefillPolicy.perHour(5)));
+        assertNotEquals(stamp, policyTiers.get("free").getStamp());
+        assertEquals(4, storage.conformRateLimits("u1", 1).getRemainingTokens());
+
+        policyTiers.define("free", PolicyTemplate.of(SimpleRefillPolicy.perHour(5)));
+        assertEquals(3, storage.conformRateLimits("u1", 1).getRemainingTokens());
+    }
+
+    @Test
+    public void removesEntriesOfPreviousVersionsOnRedefinition() throws Exception {
+        storage.conformRateLimits("u1", 1);
+        String previousKey = policyTiers.get("free").keyOf("u1");
+        policyTiers.define("free", PolicyTemplate.of(SimpleRefillPolicy.perHour(5)));
+        assertEquals(policyTiers.get("free").previousKeysOf("u1"), Collections.singletonList(previousKey));
+
+        Map<String, Integer> requestWeights = new LinkedHashMap<>();
+        requestWeights.put("u1", 1);
+        requestWeights.put("u4", 1);
+        plans.put("u4", "free");
+        assertEquals(4, storage.conformRateLimitsBatch(requestWeights).get("u1").getRemainingTokens());
+        assertFalse(backend.getRateLimitEntries(previousKey).get().containsEntries());
+        assertEquals(3, storage.conformRateLimits("u1", 1).getRemainingTokens());
+        assertEquals(3, storage.conformRateLimits("u4", 1).getRemainingTokens());
+    }
+
+    @Test
+    public void stampsAndKeysDoNotCollide() {
+        PolicyTiers tiers = new PolicyTiers()
+                .define("a", PolicyTemplate.of(SimpleRefillPolicy.withRefill(2, Duration.ofHours(1))))
+                .define("b", PolicyTemplate.of(SimpleRefillPolicy.withRefill(3, Duration.ofHours(1).minusNanos(31))))
+                .define("pro", PolicyTemplate.of(SimpleRefillPolicy.perHour(2)))
+                .define("free@pro", PolicyTemplate.of(SimpleRefillPolicy.perHour(2)));
+        assertNotEquals(tiers.get("a").getStamp(), tiers.get("b").getStamp());
+        assertEquals(tiers.get("pro").getStamp(), tiers.get("free@pro").getStamp());
+        assertNotEquals(tiers.get("free@pro").keyOf("u1"), tiers.get("pro").keyOf("u1@free"));
+    }
+
+    @Test
+    public void identifiersWithoutTierAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(storage.conformRateLimits("anonymous", 1).doesConform());
+        }
+        assertTrue(storage.getRefilledEntries("anonymous").isEmpty());
+        plans.put("u3", "enterprise");
+        assertTrue(storage.conformRateLimits("u3", 1).doesConform());
+        assertTrue(storage.getCurrentEntries("u3").isEmpty());
+    }
+
+    @Test
+    public void conformsBatchAcrossTiers() throws RateLimiterException {
+        Map<String, Integer> requestWeights = new LinkedHashMap<>();
+        requestWeights.put("u2", 10);
+        requestWeights.put("anonymous", 1);
+        requestWeights.put("u1", 3);
+
+        Map<String, ConsumptionEntry> consumptions = storage.conformRateLimitsBatch(requestWeights);
+        assertEquals(new ArrayList<>(requestWeights.keySet()), new ArrayList<>(consumptions.keySet()));
+        assertEquals(90, consumptions.get("u2").getRemainingTokens());
+        assertTrue(consumptions.get("anonymous").doesConform());
+        assertFalse(consumptions.get("u1").doesConform());
+        assertEquals(89, storage.conformRateLimits("u2", 1).getRemainingTokens());
+    }
+
+}
@@ -0,0 +1,169 @@
+package io.github.ratelimit.storage.codec;
+
+import io.github.ratelimit.algorithm.FixedWindowRecord;
+import io.github.ratelimit.algorithm.GcraRecord;
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
+import io.github.ratelimit.algorithm.SlidingWindowCounterRecord;
+import io.github.ratelimit.algorithm.SlidingWindowLogRecord;
+import io.github.ratelimit.algorithm.TokenBucketRecord;
+import io.github.ratelimit.core.BlockingStrategy;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.AbstractEntry;
+import io.github.ratelimit.core.impl.BlockingEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EntryCodecTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_500_000_000L, 123_456_789L);
+
+    private List<RateLimitEntry> allRecordTypes() {
+        RefillPolicy perSecond = SimpleRefillPolicy.perSecond(5);
+        RefillPolicy perMinute = SimpleRefillPolicy.perMinute(100);
+        SlidingWindowLogRecord logRecord = SlidingWindowLogRecord.of(7L, 10L, NOW);
+        logRecord.updateWith(perSecond, NOW.plusMillis(20));
+        logRecord.consume(1L);
+        return Arrays.asList(
+                new NonBlockingEntry(TokenBucketRecord.of(3L, NOW), perSecond),
+                new NonBlockingEntry(MutableTokenBucketRecord.of(80L, NOW.minusMillis(5)), perMinute, true),
+                new NonBlockingEntry(FixedWindowRecord.of(2L, NOW.plusSeconds(1)), perSecond),
+                new NonBlockingEntry(logRecord, perSecond),
+                new NonBlockingEntry(SlidingWindowCounterRecord.of(40L, 100L, NOW), perMinute),
+                new NonBlockingEntry(GcraRecord.of(4L, perSecond, NOW), perSecond));
+    }
+
+    @Test
+    public void roundTripsEveryRecordType() throws IOException {
+        List<RateLimitEntry> entries = allRecordTypes();
+        List<RateLimitEntry> decoded = EntryCodec.decodeEntries(EntryCodec.encodeEntries(entries));
+
+        assertEquals(decoded.size(), entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            RateLimitEntry expected = entries.get(i);
+            RateLimitEntry actual = decoded.get(i);
+            assertEquals(actual.getRefillPolicy(), expected.getRefillPolicy());
+            assertEquals(actual.getRateLimitRecord().getClass(), expected.getRateLimitRecord().getClass());
+            if (!(expected.getRateLimitRecord() instanceof GcraRecord)) {
+                assertEquals(actual.getTokenCount(), expected.getTokenCount());
+            }
+        }
+        assertEquals(decoded.get(0).getRateLimitRecord(), entries.get(0).getRateLimitRecord());
+        assertEquals(decoded.get(1).getRateLimitRecord(), entries.get(1).getRateLimitRecord());
+        assertEquals(decoded.get(2).getRateLimitRecord(), entries.get(2).getRateLimitRecord());
+        assertEquals(((SlidingWindowLogRecord) decoded.get(3).getRateLimitRecord()).getRequestMap(),
+                ((SlidingWindowLogRecord) entries.get(3).getRateLimitRecord()).getRequestMap());
+        assertEquals(decoded.get(4).getRateLimitRecord(), entries.get(4).getRateLimitRecord());
+        assertEquals(decoded.get(5).getRateLimitRecord(), entries.get(5).getRateLimitRecord());
+        assertTrue(((NonBlockingEntry) decoded.get(1)).isThrowOnPolicyExceeds());
+        assertFalse(((NonBlockingEntry) decoded.get(0)).isThrowOnPolicyExceeds());
+    }
+
+    @Test
+    public void roundTripsEmptyList() throws IOException {
+        assertTrue(EntryCodec.decodeEntries(EntryCodec.encodeEntries(Collections.emptyList())).isEmpty());
+    }
+
+    @Test
+    public void roundTripsConsumptionEntries() throws IOException {
+        ConsumptionEntry conformant = EntryCodec.decodeConsumption(
+                EntryCodec.encodeConsumption(ConsumptionEntry.conformant(42L)));
+        assertTrue(conformant.doesConform());
+        assertEquals(conformant.getRemainingTokens(), 42L);
+
+        ConsumptionEntry rejected = EntryCodec.decodeConsumption(EntryCodec.encodeConsumption(
+                ConsumptionEntry.rejected(0L, Long.MAX_VALUE, SimpleRefillPolicy.banPolicy())));
+        assertFalse(rejected.doesConform());
+        assertEquals(rejected.getNanosUntilConsumption(), Long.MAX_VALUE);
+        assertEquals(rejected.getViolatedPolicy(), SimpleRefillPolicy.banPolicy());
+        assertTrue(EntryCodec.encodeConsumption(ConsumptionEntry.conformant(3L)).length <= 4);
+    }
+
+    @Test
+    public void isSmallerThanExternalizableForm() throws IOException {
+        List<RateLimitEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            entries.add(new NonBlockingEntry(MutableTokenBucketRecord.of(i, NOW.plusMillis(i)),
+                    SimpleRefillPolicy.perSecond(10)));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(entries);
+        }
+        int encodedSize = EntryCodec.encodeEntries(entries).length;
+        assertTrue(encodedSize * 10 < bytes.size());
+        assertTrue(encodedSize <= 40);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPoliciesItCanNotRepresent() {
+        RefillPolicy custom = new SimpleRefillPolicy(5, Duration.ofSeconds(1)) {
+            @Override
+            public int distributeNewTokens(Duration timeElapsed) {
+                return 0;
+            }
+        };
+        List<RateLimitEntry> entries = Collections.singletonList(
+                new NonBlockingEntry(TokenBucketRecord.of(3L, NOW), custom));
+        assertFalse(EntryCodec.supports(entries));
+        EntryCodec.encodeEntries(entries);
+    }
+
+    @Test
+    public void copiesKeepEntryClassPolicyAndTimeSource() {
+        ManualTimeSource timeSource = new ManualTimeSource();
+        RefillPolicy policy = SimpleRefillPolicy.perSecond(5);
+        List<RateLimitEntry> entries = Arrays.asList(
+                new BlockingEntry(MutableTokenBucketRecord.of(3L, NOW), policy, BlockingStrategy.SLEEPING, true,
+                        timeSource),
+                new NonBlockingEntry(GcraRecord.of(4L, policy, NOW), policy, false, timeSource));
+        List<RateLimitEntry> copies = EntryCodec.copyEntries(entries);
+
+        assertEquals(copies.size(), entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            AbstractEntry copy = (AbstractEntry) copies.get(i);
+            assertEquals(copy.getClass(), entries.get(i).getClass());
+            assertTrue(copy.getRefillPolicy() == policy);
+            assertTrue(copy.getTimeSource() == timeSource);
+            assertTrue(copy.getRateLimitRecord() != entries.get(i).getRateLimitRecord());
+            assertEquals(copy.getRateLimitRecord(), entries.get(i).getRateLimitRecord());
+        }
+        assertTrue(((BlockingEntry) copies.get(0)).getBlockingStrategy() == BlockingStrategy.SLEEPING);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void rejectsUnknownVersion() throws IOException {
+        byte[] encoded = EntryCodec.encodeEntries(allRecordTypes());
+        encoded[0] = (byte) (EntryCodec.VERSION + 1);
+        EntryCodec.decodeEntries(encoded);
+    }
+
+    @Test
+    public void encodesVarLongsAtBoundaries() throws IOException {
+        for (long value : new long[]{0L, 1L, -1L, 127L, 128L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            ConsumptionEntry decoded = EntryCodec.decodeConsumption(EntryCodec.encodeConsumption(
+                    ConsumptionEntry.rejected(Math.abs(value), value, SimpleRefillPolicy.withRefill(
+                            Integer.MAX_VALUE, Duration.ofNanos(Math.max(1L, Math.abs(value)))))));
+            assertEquals(decoded.getNanosUntilConsumption(), value);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package io.github.ratelimit.storage.command;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.PolicyRegistry;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.core.impl.RegisteredRefillPolicy;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.BoundedInMemoryStorageBackend;
+import io.github.ratelimit.storage.InMemoryStorageBackend;
+import io.github.ratelimit.storage.LongInMemoryStorageBackend;
+import io.github.ratelimit.storage.OffHeapStorageBackend;
+import io.github.ratelimit.storage.StorageBackend;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConformRateLimitsOrInitializeTest {
+
+    private static final String USER_ONE = "u1";
+
+    private final ManualTimeSource timeSource = new ManualTimeSource();
+    private final PolicyTemplate template = PolicyTemplate.of(SimpleRefillPolicy.perSecond(2),
+            SimpleRefillPolicy.perHour(100));
+
+    @Test
+    public void createsFilledEntriesAtExecutionTime() {
+        List<RateLimitEntry> entries = new ConformRateLimitsOrInitialize(1, template)
+                .initialEntries(timeSource.now());
+        assertEquals(2, entries.size());
+        assertEquals(2, entries.get(0).getTokenCount());
+        assertEquals(100, entries.get(1).getTokenCount());
+        assertNull(new ConformRateLimits(1).initialEntries(timeSource.now()));
+    }
+
+    @Test
+    public void createsEntriesWithTheTemplatesPolicyInstances() {
+        RegisteredRefillPolicy registered = PolicyRegistry.getDefault().intern(SimpleRefillPolicy.perMinute(7));
+        List<RateLimitEntry> entries = new ConformRateLimitsOrInitialize(1, PolicyTemplate.of(registered))
+                .initialEntries(timeSource.now());
+        assertSame(registered, entries.get(0).getRefillPolicy());
+    }
+
+    @Test
+    public void initializesInMemoryBackend() throws Exception {
+        assertInitializes(new InMemoryStorageBackend<>(timeSource));
+    }
+
+    @Test
+    public void initializesBoundedInMemoryBackend() throws Exception {
+        assertInitializes(new BoundedInMemoryStorageBackend<>(16, timeSource));
+    }
+
+    @Test
+    public void initializesOffHeapBackend() throws Exception {
+        assertInitializes(new OffHeapStorageBackend(16, timeSource));
+    }
+
+    @Test
+    public void initializesLongInMemoryBackend() throws Exception {
+        LongInMemoryStorageBackend backend = new LongInMemoryStorageBackend(timeSource);
+        ConformRateLimitsOrInitialize command = new ConformRateLimitsOrInitialize(1, template);
+        assertEquals(1, backend.execute(1L, command).getData().getRemainingTokens());
+        assertEquals(0, backend.execute(1L, command).getData().getRemainingTokens());
+        assertFalse(backend.execute(1L, command).getData().doesConform());
+        assertEquals(1, backend.size());
+    }
+
+    @Test
+    public void initializesStoredEmptyEntries() throws Exception {
+        List<StorageBackend<String>> backends = Arrays.asList(new InMemoryStorageBackend<>(timeSource),
+                InMemoryStorageBackend.concurrent(timeSource), new BoundedInMemoryStorageBackend<>(16, timeSource),
+                new OffHeapStorageBackend(16, timeSource));
+        for (StorageBackend<String> backend : backends) {
+            backend.storeEntries(USER_ONE, Collections.emptyList()).get();
+            assertTrue(backend.executeAsync(USER_ONE, new ConformRateLimits(1)).get().containsEntries());
+            assertInitializes(backend);
+        }
+
+        LongInMemoryStorageBackend longBackend = new LongInMemoryStorageBackend(timeSource);
+        longBackend.storeEntries(1L, Collections.emptyList());
+        ConformRateLimitsOrInitialize command = new ConformRateLimitsOrInitialize(1, template);
+        assertEquals(1, longBackend.execute(1L, command).getData().getRemainingTokens());
+        assertEquals(2, longBackend.getRateLimitEntries(1L).get().getData().size());
+    }
+
+    @Test
+    public void leavesMissingKeyMissingForOtherCommands() throws Exception {
+        InMemoryStorageBackend<String> backend = new InMemoryStorageBackend<>(timeSource);
+        assertFalse(backend.execute(USER_ONE, new ConformRateLimits(1)).containsEntries());
+        assertFalse(backend.getRateLimitEntries(USER_ONE).get().containsEntries());
+    }
+
+    private void assertInitializes(StorageBackend<String> backend) throws Exception {
+        ConformRateLimitsOrInitialize command = new ConformRateLimitsOrInitialize(1, template);
+        ConsumptionEntry first = backend.executeAsync(USER_ONE, command).get().getData();
+        assertTrue(first.doesConform());
+        assertEquals(1, first.getRemainingTokens());
+        assertEquals(0, backend.executeAsync(USER_ONE, command).get().getData().getRemainingTokens());
+        assertFalse(backend.executeAsync(USER_ONE, command).get().getData().doesConform());
+
+        timeSource.advance(Duration.ofSeconds(1));
+        assertTrue(backend.executeAsync(USER_ONE, command).get().getData().doesConform());
+        List<RateLimitEntry> entries = backend.getRateLimitEntries(USER_ONE).get().getData();
+        assertEquals(2, entries.size());
+        assertEquals(97, entries.get(1).getTokenCount());
+    }
+
+}
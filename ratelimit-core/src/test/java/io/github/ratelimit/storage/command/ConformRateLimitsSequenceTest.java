@@ -0,0 +1,70 @@
+package io.github.ratelimit.storage.command;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConformRateLimitsSequenceTest {
+
+    private final ManualTimeSource timeSource = new ManualTimeSource();
+
+    @Test
+    public void consumesRequestsInOrder() {
+        List<RateLimitEntry> entries = newEntries(4);
+        Instant now = timeSource.now();
+        ConformRateLimitsSequence command = new ConformRateLimitsSequence(new int[]{2, 5, 1});
+
+        List<ConsumptionEntry> consumptions = command.execute(entries, now);
+        assertEquals(3, consumptions.size());
+        assertTrue(consumptions.get(0).doesConform());
+        assertEquals(2, consumptions.get(0).getRemainingTokens());
+        assertFalse(consumptions.get(1).doesConform());
+        assertTrue(consumptions.get(2).doesConform());
+        assertEquals(1, consumptions.get(2).getRemainingTokens());
+        assertTrue(command.didMutate(consumptions));
+    }
+
+    @Test
+    public void matchesSingleConforms() {
+        List<RateLimitEntry> sequenceEntries = newEntries(10);
+        List<RateLimitEntry> singleEntries = newEntries(10);
+        Instant now = timeSource.now();
+        int[] requestWeights = {3, 3, 3, 3, 1};
+
+        List<ConsumptionEntry> singles = new ArrayList<>();
+        for (int requestWeight : requestWeights) {
+            singles.add(new ConformRateLimits(requestWeight).execute(singleEntries, now));
+        }
+        List<ConsumptionEntry> sequence = new ConformRateLimitsSequence(requestWeights).execute(sequenceEntries, now);
+        for (int i = 0; i < requestWeights.length; i++) {
+            assertEquals(singles.get(i).doesConform(), sequence.get(i).doesConform());
+            assertEquals(singles.get(i).getRemainingTokens(), sequence.get(i).getRemainingTokens());
+        }
+    }
+
+    @Test
+    public void rejectionsOnlyAreNotWrittenBack() {
+        List<RateLimitEntry> entries = newEntries(1);
+        Instant now = timeSource.now();
+        ConformRateLimitsSequence command = new ConformRateLimitsSequence(new int[]{2, 2});
+        assertFalse(command.didMutate(command.execute(entries, now)));
+    }
+
+    private List<RateLimitEntry> newEntries(int capacity) {
+        return Collections.singletonList(RateLimiting.entryBuilder().withTimeSource(timeSource)
+                .withRefillPolicy(SimpleRefillPolicy.perHour(capacity)).filled().build());
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.ratelimit.storage.command;
+
+import io.github.ratelimit.algorithm.MutableTokenBucketRecord;
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiter;
+import io.github.ratelimit.core.RateLimiterException;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.NonBlockingEntry;
+import io.github.ratelimit.core.impl.RateLimiterImpl;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.DistributedEntryStorage;
+import io.github.ratelimit.storage.InMemoryStorageBackend;
+import io.github.ratelimit.storage.codec.EntryCodec;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class GetRefilledEntriesTest {
+
+    private static final String USER_ONE_POLICY = "u1";
+
+    private ManualTimeSource timeSource;
+    private InMemoryStorageBackend<String> backend;
+    private RateLimiter rateLimiter;
+
+    @Before
+    public void setup() {
+        timeSource = new ManualTimeSource();
+        backend = new InMemoryStorageBackend<>(timeSource);
+        rateLimiter = new RateLimiterImpl(new DistributedEntryStorage(backend));
+
+        EntryBuilder builder = RateLimiting.entryBuilder().withTimeSource(timeSource);
+        List<RateLimitEntry> entries = Arrays.asList(
+                builder.withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET)
+                        .withRefillPolicy(SimpleRefillPolicy.perSecond(10)).build(),
+                builder.withAlgorithm(RateLimitAlgorithm.FIXED_WINDOW)
+                        .withRefillPolicy(SimpleRefillPolicy.perMinute(20)).build(),
+                builder.withAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(30)).filled().build(),
+                builder.withAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW_COUNTER)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(40)).filled().build(),
+                builder.withAlgorithm(RateLimitAlgorithm.GCRA)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(50)).filled().build());
+        backend.storeEntries(USER_ONE_POLICY, entries);
+    }
+
+    @Test
+    public void doesNotMutate() {
+        assertFalse(new GetRefilledEntries().doesMutate());
+    }
+
+    @Test
+    public void matchesUpdatedEntriesWithoutChangingStoredState() {
+        backend.execute(USER_ONE_POLICY, new ConformRateLimits(1));
+        timeSource.advance(Duration.ofMillis(450));
+        byte[] stored = EntryCodec.encodeEntries(backend.execute(USER_ONE_POLICY, new GetEntries()).getData());
+
+        List<RateLimitEntry> refilled = backend.execute(USER_ONE_POLICY, new GetRefilledEntries()).getData();
+        assertEquals(Arrays.toString(stored),
+                Arrays.toString(EntryCodec.encodeEntries(backend.execute(USER_ONE_POLICY, new GetEntries()).getData())));
+
+        List<RateLimitEntry> updated = backend.execute(USER_ONE_POLICY, new GetUpdateEntries()).getData();
+        assertEquals(updated.size(), refilled.size());
+        for (int i = 0; i < updated.size(); i++) {
+            assertEquals(updated.get(i).getTokenCount(), refilled.get(i).getTokenCount());
+        }
+    }
+
+    @Test
+    public void statsReadRefilledCountsWithoutWriting() throws RateLimiterException {
+        timeSource.advance(Duration.ofMillis(300));
+        assertEquals(Long.valueOf(3), rateLimiter.getTokenCounts(USER_ONE_POLICY).get("PT1S"));
+        assertEquals(Long.valueOf(7), rateLimiter.getMissingTokenCounts(USER_ONE_POLICY).get("PT1S"));
+        assertEquals(0L, backend.execute(USER_ONE_POLICY, new GetEntries()).getData().get(0).getTokenCount());
+    }
+
+    @Test
+    public void keepsCustomPolicies() {
+        RefillPolicy policy = new RefillPolicy() {
+            @Override
+            public int getCapacity() {
+                return 10;
+            }
+
+            @Override
+            public Duration getSamplingPeriod() {
+                return Duration.ofSeconds(1);
+            }
+        };
+        backend.storeEntries("custom", Collections.singletonList(
+                new NonBlockingEntry(MutableTokenBucketRecord.of(0L, timeSource.now()), policy)));
+        timeSource.advance(Duration.ofMillis(500));
+
+        RateLimitEntry refilled = backend.execute("custom", new GetRefilledEntries()).getData().get(0);
+        assertSame(policy, refilled.getRefillPolicy());
+        assertEquals(5L, refilled.getTokenCount());
+        assertEquals(0L, backend.execute("custom", new GetEntries()).getData().get(0).getTokenCount());
+    }
+
+    @Test
+    public void refillsCustomRecordsInPlace() {
+        MutableTokenBucketRecord record = new MutableTokenBucketRecord(0L, timeSource.currentTimeNanos()) {
+        };
+        backend.storeEntries("custom", Collections.singletonList(
+                new NonBlockingEntry(record, SimpleRefillPolicy.perSecond(10))));
+        timeSource.advance(Duration.ofMillis(500));
+
+        RateLimitEntry refilled = backend.execute("custom", new GetRefilledEntries()).getData().get(0);
+        assertSame(record, refilled.getRateLimitRecord());
+        assertEquals(5L, refilled.getTokenCount());
+    }
+
+}
@@ -0,0 +1,81 @@
+package io.github.meemaw.ratelimit.examples;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.codec.EntryCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares serialized size and round trip throughput of EntryCodec with the Externalizable path used by
+ * ObjectOutputStream, for a typical three policy entry list and a rejected ConsumptionEntry.
+ * <p>
+ * Usage: CodecComparison [iterations]
+ */
+public class CodecComparison {
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        EntryBuilder builder = RateLimiting.entryBuilder().withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET);
+        List<RateLimitEntry> entries = new ArrayList<>(Arrays.asList(
+                builder.withRefillPolicy(SimpleRefillPolicy.perSecond(10)).filled().build(),
+                builder.withRefillPolicy(SimpleRefillPolicy.perMinute(100)).filled().build(),
+                builder.withRefillPolicy(SimpleRefillPolicy.perHour(1000)).filled().build()));
+        ConsumptionEntry rejected = ConsumptionEntry.rejected(0L, 100_000_000L, SimpleRefillPolicy.perSecond(10));
+
+        System.out.println("payload\t\texternalizable bytes\tcodec bytes");
+        System.out.println("entries\t\t" + serialize(entries).length + "\t\t\t" + EntryCodec.encodeEntries(entries).length);
+        System.out.println("consumption\t" + serialize(rejected).length + "\t\t\t"
+                + EntryCodec.encodeConsumption(rejected).length);
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                deserialize(serialize(entries));
+            }
+            long externalizableNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                EntryCodec.decodeEntries(EntryCodec.encodeEntries(entries));
+            }
+            long codecNanos = System.nanoTime() - start;
+
+            if (warmup == 1) {
+                System.out.println();
+                System.out.println("entries round trips/s: externalizable " + perSecond(iterations, externalizableNanos)
+                        + ", codec " + perSecond(iterations, codecNanos));
+            }
+        }
+    }
+
+    private static long perSecond(int iterations, long nanos) {
+        return iterations * 1_000_000_000L / Math.max(1L, nanos);
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        }
+    }
+}
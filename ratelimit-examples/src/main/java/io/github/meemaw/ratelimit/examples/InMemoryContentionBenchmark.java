@@ -0,0 +1,68 @@
+package io.github.meemaw.ratelimit.examples;
+
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.InMemoryStorageBackend;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures conformRateLimits throughput of InMemoryStorageBackend against thread count, comparing the
+ * unsynchronized HashMap mode with the striped lock mode. The unsynchronized numbers are only an upper bound,
+ * as concurrent updates of the same key race and lose consumptions.
+ * <p>
+ * Usage: InMemoryContentionBenchmark [numKeys] [secondsPerRun]
+ */
+public class InMemoryContentionBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int numKeys = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+
+        System.out.println("threads\tunsynchronized ops/s\tstriped ops/s");
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            long unsynchronized = run(new InMemoryStorageBackend<>(new HashMap<>()), threads, numKeys, seconds);
+            long striped = run(InMemoryStorageBackend.concurrent(), threads, numKeys, seconds);
+            System.out.println(threads + "\t" + unsynchronized + "\t" + striped);
+        }
+    }
+
+    private static long run(InMemoryStorageBackend<String> backend, int numThreads, int numKeys, int seconds)
+            throws InterruptedException {
+        String[] keys = new String[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = "user" + i;
+            RateLimitEntry entry = RateLimiting.entryBuilder()
+                    .withRefillPolicy(SimpleRefillPolicy.perSecond(Integer.MAX_VALUE / 2)).filled().build();
+            backend.storeEntries(keys[i], Collections.singletonList(entry));
+        }
+
+        ConformRateLimits command = new ConformRateLimits(1);
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(numThreads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int t = 0; t < numThreads; t++) {
+            int offset = t;
+            new Thread(() -> {
+                long count = 0L;
+                int index = offset % numKeys;
+                while (System.nanoTime() < deadline) {
+                    backend.execute(keys[index], command);
+                    index = index + 1 == numKeys ? 0 : index + 1;
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        return operations.sum() / seconds;
+    }
+}
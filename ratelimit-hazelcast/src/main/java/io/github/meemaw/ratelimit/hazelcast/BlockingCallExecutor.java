@@ -0,0 +1,38 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daemon threads running blocking Hazelcast calls which have no asynchronous variant, such as
+ * IMap.executeOnKeys, so callers get an incomplete future bounded by their own timeout instead of being parked
+ * until the cluster responds. Calls beyond the queue capacity are rejected instead of piling up while the cluster
+ * is slow.
+ */
+final class BlockingCallExecutor {
+
+    private static final int QUEUE_CAPACITY = Integer.getInteger("ratelimit.hazelcast.blockingCallQueue", 1024);
+
+    static final Executor INSTANCE = newExecutor();
+
+    private BlockingCallExecutor() {
+    }
+
+    private static Executor newExecutor() {
+        int threads = Integer.getInteger("ratelimit.hazelcast.blockingCallThreads",
+                4 * Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "ratelimit-hazelcast-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
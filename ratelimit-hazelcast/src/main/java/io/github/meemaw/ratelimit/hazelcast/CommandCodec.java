@@ -0,0 +1,140 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RefillPolicy;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.storage.codec.EntryCodec;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.ConformRateLimitsOrInitialize;
+import io.github.ratelimit.storage.command.ConformRateLimitsSequence;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.GetEntries;
+import io.github.ratelimit.storage.command.GetRefilledEntries;
+import io.github.ratelimit.storage.command.GetUpdateEntries;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes built-in commands as a type byte and their arguments, other commands with the configured serialization.
+ * Templates with policies EntryCodec can't represent are written with the configured serialization too.
+ */
+final class CommandCodec {
+
+    private static final byte CONFORM_RATE_LIMITS = 1;
+    private static final byte GET_ENTRIES = 2;
+    private static final byte GET_UPDATE_ENTRIES = 3;
+    private static final byte OBJECT = 4;
+    private static final byte GET_REFILLED_ENTRIES = 5;
+    private static final byte CONFORM_RATE_LIMITS_SEQUENCE = 6;
+    private static final byte CONFORM_RATE_LIMITS_OR_INITIALIZE = 7;
+
+    private CommandCodec() {
+    }
+
+    /**
+     * @return boolean whether the command is one of the built-in commands, whose result depends only on the
+     * entries and the time it is executed at
+     */
+    static boolean isBuiltIn(EntryStorageCommand<?> command) {
+        return typeOf(command) != OBJECT;
+    }
+
+    static void writeCommand(ObjectDataOutput out, EntryStorageCommand<?> command) throws IOException {
+        byte type = typeOf(command);
+        out.writeByte(type);
+        switch (type) {
+            case CONFORM_RATE_LIMITS:
+                out.writeInt(((ConformRateLimits) command).getRequestWeight());
+                break;
+            case CONFORM_RATE_LIMITS_SEQUENCE:
+                out.writeIntArray(((ConformRateLimitsSequence) command).getRequestWeights());
+                break;
+            case CONFORM_RATE_LIMITS_OR_INITIALIZE:
+                ConformRateLimitsOrInitialize conform = (ConformRateLimitsOrInitialize) command;
+                out.writeInt(conform.getRequestWeight());
+                writeTemplate(out, conform.getTemplate());
+                break;
+            case OBJECT:
+                out.writeObject(command);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> EntryStorageCommand<T> readCommand(ObjectDataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case CONFORM_RATE_LIMITS:
+                return (EntryStorageCommand<T>) new ConformRateLimits(in.readInt());
+            case CONFORM_RATE_LIMITS_SEQUENCE:
+                return (EntryStorageCommand<T>) new ConformRateLimitsSequence(in.readIntArray());
+            case CONFORM_RATE_LIMITS_OR_INITIALIZE:
+                return (EntryStorageCommand<T>) new ConformRateLimitsOrInitialize(in.readInt(), readTemplate(in));
+            case GET_ENTRIES:
+                return (EntryStorageCommand<T>) new GetEntries();
+            case GET_UPDATE_ENTRIES:
+                return (EntryStorageCommand<T>) new GetUpdateEntries();
+            case GET_REFILLED_ENTRIES:
+                return (EntryStorageCommand<T>) new GetRefilledEntries();
+            case OBJECT:
+                return in.readObject();
+            default:
+                throw new IOException("Unknown command type: " + type);
+        }
+    }
+
+    private static byte typeOf(EntryStorageCommand<?> command) {
+        Class<?> commandClass = command.getClass();
+        if (commandClass == ConformRateLimits.class) {
+            return CONFORM_RATE_LIMITS;
+        } else if (commandClass == ConformRateLimitsOrInitialize.class) {
+            return supports(((ConformRateLimitsOrInitialize) command).getTemplate())
+                    ? CONFORM_RATE_LIMITS_OR_INITIALIZE : OBJECT;
+        } else if (commandClass == ConformRateLimitsSequence.class) {
+            return CONFORM_RATE_LIMITS_SEQUENCE;
+        } else if (commandClass == GetEntries.class) {
+            return GET_ENTRIES;
+        } else if (commandClass == GetUpdateEntries.class) {
+            return GET_UPDATE_ENTRIES;
+        } else if (commandClass == GetRefilledEntries.class) {
+            return GET_REFILLED_ENTRIES;
+        }
+        return OBJECT;
+    }
+
+    private static boolean supports(PolicyTemplate template) {
+        List<RefillPolicy> policies = template.getPolicies();
+        for (int i = 0; i < policies.size(); i++) {
+            if (!EntryCodec.supports(policies.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeTemplate(ObjectDataOutput out, PolicyTemplate template) throws IOException {
+        out.writeByte(template.getAlgorithm().ordinal());
+        List<RefillPolicy> policies = template.getPolicies();
+        out.writeInt(policies.size());
+        for (int i = 0; i < policies.size(); i++) {
+            EntryCodec.writePolicy(out, policies.get(i));
+        }
+    }
+
+    private static PolicyTemplate readTemplate(ObjectDataInput in) throws IOException {
+        RateLimitAlgorithm algorithm = RateLimitAlgorithm.values()[in.readByte()];
+        int numPolicies = in.readInt();
+        List<RefillPolicy> policies = new ArrayList<>(numPolicies);
+        for (int i = 0; i < numPolicies; i++) {
+            policies.add(EntryCodec.readPolicy(in));
+        }
+        return new PolicyTemplate(policies, algorithm);
+    }
+
+}
@@ -0,0 +1,152 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.storage.codec.EntryCodec;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StorageBackendCommandResult as returned from a member. ConsumptionEntry and entry list data are written with
+ * EntryCodec, any other data, or data EntryCodec can't represent, falls back to the configured serialization.
+ */
+public final class HazelcastCommandResult<T> implements IdentifiedDataSerializable {
+
+    private static final byte NOT_FOUND = 0;
+    private static final byte NULL_DATA = 1;
+    private static final byte CONSUMPTION = 2;
+    private static final byte ENTRIES = 3;
+    private static final byte OBJECT = 4;
+    private static final byte CONSUMPTIONS = 5;
+
+    private StorageBackendCommandResult<T> result;
+
+    public HazelcastCommandResult() {
+    }
+
+    public HazelcastCommandResult(StorageBackendCommandResult<T> result) {
+        this.result = result;
+    }
+
+    public StorageBackendCommandResult<T> getResult() {
+        return result;
+    }
+
+    /**
+     * @return Map<K, StorageBackendCommandResult<T>> unwrapped results of executeOnKeys, keys without a response
+     * are reported as not found
+     */
+    @SuppressWarnings("unchecked")
+    static <K, T> Map<K, StorageBackendCommandResult<T>> unwrapAll(Set<K> keys, Map<K, Object> responses) {
+        Map<K, StorageBackendCommandResult<T>> results = new LinkedHashMap<>(keys.size() * 2);
+        for (K key : keys) {
+            HazelcastCommandResult<T> response = (HazelcastCommandResult<T>) responses.get(key);
+            results.put(key, response != null ? response.getResult() : StorageBackendCommandResult.entriesNotFound());
+        }
+        return results;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return RateLimitDataSerializableFactory.COMMAND_RESULT;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void writeData(ObjectDataOutput out) throws IOException {
+        if (!result.containsEntries()) {
+            out.writeByte(NOT_FOUND);
+            return;
+        }
+        T data = result.getData();
+        if (data == null) {
+            out.writeByte(NULL_DATA);
+        } else if (data instanceof ConsumptionEntry && EntryCodec.supports((ConsumptionEntry) data)) {
+            out.writeByte(CONSUMPTION);
+            EntryCodec.writeConsumption(out, (ConsumptionEntry) data);
+        } else if (isListOf(data, RateLimitEntry.class) && EntryCodec.supports((List<RateLimitEntry>) data)) {
+            out.writeByte(ENTRIES);
+            EntryCodec.writeEntries(out, (List<RateLimitEntry>) data);
+        } else if (isListOf(data, ConsumptionEntry.class) && supportsAll((List<ConsumptionEntry>) data)) {
+            out.writeByte(CONSUMPTIONS);
+            List<ConsumptionEntry> consumptions = (List<ConsumptionEntry>) data;
+            out.writeInt(consumptions.size());
+            for (int i = 0; i < consumptions.size(); i++) {
+                EntryCodec.writeConsumption(out, consumptions.get(i));
+            }
+        } else {
+            out.writeByte(OBJECT);
+            out.writeObject(data);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readData(ObjectDataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NOT_FOUND:
+                result = StorageBackendCommandResult.entriesNotFound();
+                break;
+            case NULL_DATA:
+                result = StorageBackendCommandResult.success(null);
+                break;
+            case CONSUMPTION:
+                result = StorageBackendCommandResult.success((T) EntryCodec.readConsumption(in));
+                break;
+            case ENTRIES:
+                result = StorageBackendCommandResult.success((T) EntryCodec.readEntries(in));
+                break;
+            case OBJECT:
+                result = StorageBackendCommandResult.success(in.readObject());
+                break;
+            case CONSUMPTIONS:
+                int size = in.readInt();
+                List<ConsumptionEntry> consumptions = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    consumptions.add(EntryCodec.readConsumption(in));
+                }
+                result = StorageBackendCommandResult.success((T) consumptions);
+                break;
+            default:
+                throw new IOException("Unknown result type: " + type);
+        }
+    }
+
+    private static boolean supportsAll(List<ConsumptionEntry> consumptions) {
+        for (int i = 0; i < consumptions.size(); i++) {
+            if (!EntryCodec.supports(consumptions.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isListOf(Object data, Class<?> elementClass) {
+        if (!(data instanceof List)) {
+            return false;
+        }
+        List<?> list = (List<?>) data;
+        for (int i = 0; i < list.size(); i++) {
+            if (!elementClass.isInstance(list.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.storage.LongStorageBackend;
+import io.github.ratelimit.storage.RateLimitEntryProcessor;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * HazelcastStorage variant keyed by long identifiers, which are serialized as 8 bytes instead of a String.
+ */
+public final class HazelcastLongStorage implements LongStorageBackend {
+
+    private final IMap<Long, List<RateLimitEntry>> rateLimitCache;
+    private final Executor batchExecutor;
+
+    private final static String RATELIMIT_IDENTIFIER = System.getProperty("ratelimit.map.ids.limits", "ratelimit.map.ids.limits");
+
+    public HazelcastLongStorage(HazelcastInstance hzInstance) {
+        this(hzInstance, BlockingCallExecutor.INSTANCE);
+    }
+
+    /**
+     * @param hzInstance
+     * @param batchExecutor runs the blocking executeOnKeys calls of executeAllAsync
+     */
+    public HazelcastLongStorage(HazelcastInstance hzInstance, Executor batchExecutor) {
+        this.rateLimitCache = Objects.requireNonNull(hzInstance).getMap(RATELIMIT_IDENTIFIER);
+        this.batchExecutor = Objects.requireNonNull(batchExecutor);
+    }
+
+    @Override
+    public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(long key, EntryStorageCommand<T> command) {
+        RateLimitEntryProcessor<Long, T> entryProcessor = new RateLimitEntryProcessor<>(command);
+        CompletableFuture<StorageBackendCommandResult<T>> future = new CompletableFuture<>();
+        rateLimitCache.submitToKey(key, HazelcastRateLimitEntryProcessor.of(entryProcessor), new
+                ExecutionCallback<HazelcastCommandResult<T>>() {
+                    @Override
+                    public void onResponse(HazelcastCommandResult<T> response) {
+                        future.complete(response.getResult());
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                });
+        return future;
+    }
+
+    /**
+     * Executes all keys with one executeOnKeys call, which sends one operation per partition owner. The call blocks,
+     * so it runs on a BlockingCallExecutor thread and the returned future completes once the cluster responds.
+     */
+    @Override
+    public <T> CompletableFuture<Map<Long, StorageBackendCommandResult<T>>> executeAllAsync(
+            Set<Long> keys, EntryStorageCommand<T> command) {
+        CompletableFuture<Map<Long, StorageBackendCommandResult<T>>> future = new CompletableFuture<>();
+        try {
+            batchExecutor.execute(() -> {
+                try {
+                    Map<Long, Object> responses = rateLimitCache.executeOnKeys(keys,
+                            HazelcastRateLimitEntryProcessor.of(new RateLimitEntryProcessor<Long, T>(command)));
+                    future.complete(HazelcastCommandResult.unwrapAll(keys, responses));
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> storeEntries(long key, List<RateLimitEntry> entries) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rateLimitCache.setAsync(key, new RateLimitEntryList(entries)).andThen(new ExecutionCallback<Void>() {
+            @Override
+            public void onResponse(Void response) {
+                future.complete(null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+}
@@ -29,7 +29,7 @@ public final class HazelcastMutableEntry<K extends Serializable> implements Muta
 
     @Override
     public void setValue(List<RateLimitEntry> value) {
-        entry.setValue(value);
+        entry.setValue(value == null || value instanceof RateLimitEntryList ? value : new RateLimitEntryList(value));
         this.modified = true;
     }
 
@@ -2,38 +2,105 @@ package io.github.meemaw.ratelimit.hazelcast;
 
 import com.hazelcast.map.EntryBackupProcessor;
 import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 import io.github.ratelimit.core.RateLimitEntry;
 import io.github.ratelimit.storage.RateLimitEntryProcessor;
 import io.github.ratelimit.storage.command.StorageBackendCommandResult;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public final class HazelcastRateLimitEntryProcessor<K extends Serializable, T> implements EntryProcessor<K, List<RateLimitEntry>> {
+/**
+ * Adapts RateLimitEntryProcessor to a Hazelcast EntryProcessor. Built-in commands are written as a type byte
+ * and their arguments, other commands fall back to the configured serialization.
+ * <p>
+ * Backups of built-in commands replay the command at the primary's timestamp, other commands copy the whole state.
+ * Hazelcast asks for the backup processor once per partition of a multi-key operation, so both are kept per key.
+ * Executions which don't change the stored state, such as rejections, are neither written nor backed up. Replays
+ * assume the map uses BINARY in-memory format, so entries refilled by an unwritten execution are discarded.
+ */
+public final class HazelcastRateLimitEntryProcessor<K extends Serializable, T>
+        implements EntryProcessor<K, List<RateLimitEntry>>, IdentifiedDataSerializable {
 
     private static final long serialVersionUID = -725516689492141419L;
 
-    private final RateLimitEntryProcessor<K, T> entryProcessor;
-    private EntryBackupProcessor<K, List<RateLimitEntry>> backupProcessor;
+    private RateLimitEntryProcessor<K, T> entryProcessor;
+    private final transient Map<K, Long> replayedEpochNanos = new ConcurrentHashMap<>();
+    private final transient Map<K, List<RateLimitEntry>> copiedStates = new ConcurrentHashMap<>();
+
+    public HazelcastRateLimitEntryProcessor() {
+    }
 
     public HazelcastRateLimitEntryProcessor(RateLimitEntryProcessor<K, T> entryProcessor) {
         this.entryProcessor = entryProcessor;
     }
 
+    /**
+     * @return EntryProcessor read-only processor for non-mutating commands, regular processor otherwise
+     */
+    public static <K extends Serializable, T> EntryProcessor<K, List<RateLimitEntry>> of(
+            RateLimitEntryProcessor<K, T> entryProcessor) {
+        if (entryProcessor.getTargetCommand().doesMutate()) {
+            return new HazelcastRateLimitEntryProcessor<>(entryProcessor);
+        }
+        return new ReadOnlyRateLimitEntryProcessor<>(entryProcessor);
+    }
+
     @Override
     public EntryBackupProcessor<K, List<RateLimitEntry>> getBackupProcessor() {
-        return backupProcessor;
+        if (!replayedEpochNanos.isEmpty()) {
+            return new ReplayBackupProcessor<>(entryProcessor.getTargetCommand(), new HashMap<>(replayedEpochNanos));
+        }
+        if (!copiedStates.isEmpty()) {
+            return new SimpleBackupProcessor<>(new HashMap<>(copiedStates));
+        }
+        return null;
     }
 
     @Override
     public Object process(Map.Entry<K, List<RateLimitEntry>> mapEntry) {
         HazelcastMutableEntry<K> entryAdapter = new HazelcastMutableEntry<>(mapEntry);
-        StorageBackendCommandResult<T> result = entryProcessor.process(entryAdapter);
+        Instant now = entryProcessor.getTimeSource().now();
+        StorageBackendCommandResult<T> result = entryProcessor.process(entryAdapter, now);
         if (entryAdapter.isModified()) {
-            backupProcessor = new SimpleBackupProcessor<>(mapEntry.getValue());
+            recordBackup(mapEntry, now);
         }
-        return result;
+        return new HazelcastCommandResult<>(result);
+    }
+
+    private void recordBackup(Map.Entry<K, List<RateLimitEntry>> mapEntry, Instant now) {
+        if (CommandCodec.isBuiltIn(entryProcessor.getTargetCommand())) {
+            replayedEpochNanos.put(mapEntry.getKey(), ReplayBackupProcessor.epochNanos(now));
+        } else {
+            copiedStates.put(mapEntry.getKey(), mapEntry.getValue());
+        }
+    }
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return RateLimitDataSerializableFactory.ENTRY_PROCESSOR;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        CommandCodec.writeCommand(out, entryProcessor.getTargetCommand());
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        entryProcessor = new RateLimitEntryProcessor<>(CommandCodec.<T>readCommand(in));
     }
 
 }
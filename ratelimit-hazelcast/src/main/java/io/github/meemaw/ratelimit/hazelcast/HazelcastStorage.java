@@ -11,18 +11,31 @@ import io.github.ratelimit.storage.command.EntryStorageCommand;
 import io.github.ratelimit.storage.command.StorageBackendCommandResult;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public final class HazelcastStorage implements StorageBackend<String> {
 
     private final IMap<String, List<RateLimitEntry>> rateLimitCache;
+    private final Executor batchExecutor;
 
     private final static String RATELIMIT_IDENTIFIER = System.getProperty("ratelimit.map.users.limits", "ratelimit.map.users.limits");
 
     public HazelcastStorage(HazelcastInstance hzInstance) {
+        this(hzInstance, BlockingCallExecutor.INSTANCE);
+    }
+
+    /**
+     * @param hzInstance
+     * @param batchExecutor runs the blocking executeOnKeys calls of executeAllAsync
+     */
+    public HazelcastStorage(HazelcastInstance hzInstance, Executor batchExecutor) {
         this.rateLimitCache = Objects.requireNonNull(hzInstance).getMap(RATELIMIT_IDENTIFIER);
+        this.batchExecutor = Objects.requireNonNull(batchExecutor);
     }
 
     @Override
@@ -31,25 +44,78 @@ public final class HazelcastStorage implements StorageBackend<String> {
         return invokeAsync(key, entryProcessor);
     }
 
+    /**
+     * Executes all keys with one executeOnKeys call, which sends one operation per partition owner. The call blocks,
+     * so it runs on a BlockingCallExecutor thread and the returned future completes once the cluster responds.
+     */
     @Override
-    public Future<Void> storeEntries(final String key, final List<RateLimitEntry> entries) {
-        return rateLimitCache.setAsync(key, entries);
+    public <T> CompletableFuture<Map<String, StorageBackendCommandResult<T>>> executeAllAsync(
+            Set<String> keys, EntryStorageCommand<T> command) {
+        CompletableFuture<Map<String, StorageBackendCommandResult<T>>> future = new CompletableFuture<>();
+        try {
+            batchExecutor.execute(() -> {
+                try {
+                    Map<String, Object> responses = rateLimitCache.executeOnKeys(keys,
+                            adoptEntryProcessor(new RateLimitEntryProcessor<>(command)));
+                    future.complete(HazelcastCommandResult.unwrapAll(keys, responses));
+                } catch (RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> storeEntries(final String key, final List<RateLimitEntry> entries) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rateLimitCache.setAsync(key, new RateLimitEntryList(entries)).andThen(new ExecutionCallback<Void>() {
+            @Override
+            public void onResponse(Void response) {
+                future.complete(null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Void> removeEntries(String key) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        rateLimitCache.removeAsync(key).andThen(new ExecutionCallback<List<RateLimitEntry>>() {
+            @Override
+            public void onResponse(List<RateLimitEntry> response) {
+                future.complete(null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
     }
 
     private <T> EntryProcessor<String, ?> adoptEntryProcessor(
             RateLimitEntryProcessor<String, T>
                     entryProcessor) {
-        return new HazelcastRateLimitEntryProcessor<>(entryProcessor);
+        return HazelcastRateLimitEntryProcessor.of(entryProcessor);
     }
 
     private <T> CompletableFuture<StorageBackendCommandResult<T>> invokeAsync(String key, RateLimitEntryProcessor<String, T>
             entryProcessor) {
         CompletableFuture<StorageBackendCommandResult<T>> future = new CompletableFuture<>();
         rateLimitCache.submitToKey(key, adoptEntryProcessor(entryProcessor), new
-                ExecutionCallback<StorageBackendCommandResult<T>>() {
+                ExecutionCallback<HazelcastCommandResult<T>>() {
                     @Override
-                    public void onResponse(StorageBackendCommandResult<T> response) {
-                        future.complete(response);
+                    public void onResponse(HazelcastCommandResult<T> response) {
+                        future.complete(response.getResult());
                     }
 
                     @Override
@@ -0,0 +1,64 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.nio.serialization.DataSerializableFactory;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+/**
+ * Creates the IdentifiedDataSerializable types shipped between members by HazelcastStorage and HazelcastLongStorage,
+ * so entry processors, backups, results and stored entries are resolved by id instead of by class name.
+ * <p>
+ * The factory is registered automatically by RateLimitDataSerializerHook on every member and client with this
+ * module on its classpath. Registering it again, with {@link #register(Config)} or under {@link #FACTORY_ID} in the
+ * serialization config, is only needed where META-INF/services is not loaded, e.g. in shaded jars.
+ */
+public final class RateLimitDataSerializableFactory implements DataSerializableFactory {
+
+    public static final int FACTORY_ID = Integer.getInteger("ratelimit.hazelcast.factoryId", 1029);
+
+    public static final int ENTRY_PROCESSOR = 1;
+    public static final int BACKUP_PROCESSOR = 2;
+    public static final int COMMAND_RESULT = 3;
+    public static final int ENTRY_LIST = 4;
+    public static final int REPLAY_BACKUP_PROCESSOR = 5;
+    public static final int READ_ONLY_ENTRY_PROCESSOR = 6;
+
+    public static Config register(Config config) {
+        config.getSerializationConfig().addDataSerializableFactory(FACTORY_ID, new RateLimitDataSerializableFactory());
+        return config;
+    }
+
+    /**
+     * All instances are equal, so explicit registrations next to the hook's are accepted by Hazelcast.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof RateLimitDataSerializableFactory;
+    }
+
+    @Override
+    public int hashCode() {
+        return FACTORY_ID;
+    }
+
+    @Override
+    public IdentifiedDataSerializable create(int typeId) {
+        switch (typeId) {
+            case ENTRY_PROCESSOR:
+                return new HazelcastRateLimitEntryProcessor<>();
+            case BACKUP_PROCESSOR:
+                return new SimpleBackupProcessor<>();
+            case COMMAND_RESULT:
+                return new HazelcastCommandResult<>();
+            case ENTRY_LIST:
+                return new RateLimitEntryList();
+            case REPLAY_BACKUP_PROCESSOR:
+                return new ReplayBackupProcessor<>();
+            case READ_ONLY_ENTRY_PROCESSOR:
+                return new ReadOnlyRateLimitEntryProcessor<>();
+            default:
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.internal.serialization.DataSerializerHook;
+import com.hazelcast.nio.serialization.DataSerializableFactory;
+
+/**
+ * Registers RateLimitDataSerializableFactory on every member and client which has this module on its classpath,
+ * through META-INF/services/com.hazelcast.DataSerializerHook.
+ */
+public final class RateLimitDataSerializerHook implements DataSerializerHook {
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public DataSerializableFactory createFactory() {
+        return new RateLimitDataSerializableFactory();
+    }
+
+}
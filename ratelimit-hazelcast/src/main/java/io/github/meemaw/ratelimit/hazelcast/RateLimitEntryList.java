@@ -0,0 +1,77 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.storage.codec.EntryCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry list stored as IMap value, written with EntryCodec instead of one Java serialized object per entry. Lists
+ * with entries, records or policies EntryCodec can't represent, see EntryCodec.supports, fall back to the
+ * configured serialization.
+ */
+public final class RateLimitEntryList extends ArrayList<RateLimitEntry> implements IdentifiedDataSerializable {
+
+    private static final long serialVersionUID = 6092914378231985114L;
+
+    private static final byte CODEC = 0;
+    private static final byte OBJECT = 1;
+
+    public RateLimitEntryList() {
+        super();
+    }
+
+    public RateLimitEntryList(Collection<? extends RateLimitEntry> entries) {
+        super(entries);
+    }
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return RateLimitDataSerializableFactory.ENTRY_LIST;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        writeEntries(out, this);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        clear();
+        addAll(readEntries(in));
+    }
+
+    static void writeEntries(ObjectDataOutput out, List<RateLimitEntry> entries) throws IOException {
+        if (EntryCodec.supports(entries)) {
+            out.writeByte(CODEC);
+            EntryCodec.writeEntries(out, entries);
+        } else {
+            out.writeByte(OBJECT);
+            out.writeObject(new ArrayList<>(entries));
+        }
+    }
+
+    static List<RateLimitEntry> readEntries(ObjectDataInput in) throws IOException {
+        byte format = in.readByte();
+        switch (format) {
+            case CODEC:
+                return EntryCodec.readEntries(in);
+            case OBJECT:
+                return in.readObject();
+            default:
+                throw new IOException("Unknown entry list format: " + format);
+        }
+    }
+
+}
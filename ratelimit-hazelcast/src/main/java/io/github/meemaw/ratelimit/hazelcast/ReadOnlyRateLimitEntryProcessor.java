@@ -0,0 +1,79 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.core.Offloadable;
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.ReadOnly;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimitExceptions;
+import io.github.ratelimit.storage.RateLimitEntryProcessor;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a non-mutating command as a read-only, offloadable entry processor. Hazelcast executes it on the
+ * offloadable executor without locking the key or creating a backup, so reads don't queue behind conforms on
+ * the partition thread.
+ */
+public final class ReadOnlyRateLimitEntryProcessor<K extends Serializable, T>
+        implements EntryProcessor<K, List<RateLimitEntry>>, ReadOnly, Offloadable, IdentifiedDataSerializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String EXECUTOR_NAME = System.getProperty("ratelimit.hazelcast.readExecutor",
+            Offloadable.OFFLOADABLE_EXECUTOR);
+
+    private RateLimitEntryProcessor<K, T> entryProcessor;
+
+    public ReadOnlyRateLimitEntryProcessor() {
+    }
+
+    public ReadOnlyRateLimitEntryProcessor(RateLimitEntryProcessor<K, T> entryProcessor) {
+        if (entryProcessor.getTargetCommand().doesMutate()) {
+            throw RateLimitExceptions.mutatingCommand(entryProcessor.getTargetCommand());
+        }
+        this.entryProcessor = entryProcessor;
+    }
+
+    @Override
+    public Object process(Map.Entry<K, List<RateLimitEntry>> mapEntry) {
+        return new HazelcastCommandResult<>(entryProcessor.process(new HazelcastMutableEntry<>(mapEntry)));
+    }
+
+    @Override
+    public EntryBackupProcessor<K, List<RateLimitEntry>> getBackupProcessor() {
+        return null;
+    }
+
+    @Override
+    public String getExecutorName() {
+        return EXECUTOR_NAME;
+    }
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return RateLimitDataSerializableFactory.READ_ONLY_ENTRY_PROCESSOR;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        CommandCodec.writeCommand(out, entryProcessor.getTargetCommand());
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        entryProcessor = new RateLimitEntryProcessor<>(CommandCodec.<T>readCommand(in));
+    }
+
+}
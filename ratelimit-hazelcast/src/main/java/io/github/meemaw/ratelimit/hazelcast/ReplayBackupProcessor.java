@@ -0,0 +1,104 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backup processor which replays the primary's command at the primary's timestamp instead of copying its state.
+ * Built-in commands are deterministic for the same entries and time, so the replica ends up with the same state
+ * while only the command and a timestamp are sent. Entries a command creates for a missing key are created again
+ * from the same timestamp.
+ * <p>
+ * Hazelcast applies one backup processor to all keys of a multi-key operation, so timestamps are kept per key and
+ * keys the primary didn't change are skipped.
+ */
+public final class ReplayBackupProcessor<K extends Serializable>
+        implements EntryBackupProcessor<K, List<RateLimitEntry>>, IdentifiedDataSerializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private EntryStorageCommand<?> command;
+    private Map<K, Long> epochNanosByKey;
+
+    public ReplayBackupProcessor() {
+    }
+
+    /**
+     * @param command
+     * @param epochNanosByKey primary's execution time of every key it changed, see epochNanos
+     */
+    public ReplayBackupProcessor(EntryStorageCommand<?> command, Map<K, Long> epochNanosByKey) {
+        this.command = command;
+        this.epochNanosByKey = epochNanosByKey;
+    }
+
+    static long epochNanos(Instant timestamp) {
+        return timestamp.getEpochSecond() * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    @Override
+    public void processBackup(Map.Entry<K, List<RateLimitEntry>> entry) {
+        Long epochNanos = epochNanosByKey.get(entry.getKey());
+        if (epochNanos != null) {
+            replay(command, entry, Instant.ofEpochSecond(0L, epochNanos));
+        }
+    }
+
+    private static <K> void replay(EntryStorageCommand<?> command, Map.Entry<K, List<RateLimitEntry>> entry,
+                                   Instant timestamp) {
+        List<RateLimitEntry> entries = entry.getValue();
+        if (entries == null || entries.isEmpty()) {
+            entries = command.initialEntries(timestamp);
+            if (entries == null) {
+                return;
+            }
+        }
+        command.execute(entries, timestamp);
+        entry.setValue(entries instanceof RateLimitEntryList ? entries : new RateLimitEntryList(entries));
+    }
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return RateLimitDataSerializableFactory.REPLAY_BACKUP_PROCESSOR;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        CommandCodec.writeCommand(out, command);
+        out.writeInt(epochNanosByKey.size());
+        for (Map.Entry<K, Long> epochNanos : epochNanosByKey.entrySet()) {
+            out.writeObject(epochNanos.getKey());
+            out.writeLong(epochNanos.getValue());
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        command = CommandCodec.readCommand(in);
+        int size = in.readInt();
+        epochNanosByKey = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            K key = in.readObject();
+            epochNanosByKey.put(key, in.readLong());
+        }
+    }
+
+}
@@ -1,25 +1,72 @@
 package io.github.meemaw.ratelimit.hazelcast;
 
 import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 import io.github.ratelimit.core.RateLimitEntry;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public final class SimpleBackupProcessor<K extends Serializable> implements EntryBackupProcessor<K, List<RateLimitEntry>> {
+/**
+ * Backup processor which copies the primary's state of every changed key. Hazelcast applies one backup processor
+ * to all keys of a multi-key operation, so states are kept per key and keys the primary didn't change are skipped.
+ */
+public final class SimpleBackupProcessor<K extends Serializable>
+        implements EntryBackupProcessor<K, List<RateLimitEntry>>, IdentifiedDataSerializable {
 
     private static final long serialVersionUID = 1L;
 
-    private final List<RateLimitEntry> state;
+    private Map<K, List<RateLimitEntry>> states;
 
-    public SimpleBackupProcessor(List<RateLimitEntry> state) {
-        this.state = state;
+    public SimpleBackupProcessor() {
+    }
+
+    public SimpleBackupProcessor(Map<K, List<RateLimitEntry>> states) {
+        this.states = states;
     }
 
     @Override
     public void processBackup(Map.Entry<K, List<RateLimitEntry>> entry) {
-        entry.setValue(state);
+        if (states.containsKey(entry.getKey())) {
+            entry.setValue(states.get(entry.getKey()));
+        }
+    }
+
+    @Override
+    public int getFactoryId() {
+        return RateLimitDataSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getId() {
+        return RateLimitDataSerializableFactory.BACKUP_PROCESSOR;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeInt(states.size());
+        for (Map.Entry<K, List<RateLimitEntry>> state : states.entrySet()) {
+            out.writeObject(state.getKey());
+            out.writeBoolean(state.getValue() != null);
+            if (state.getValue() != null) {
+                RateLimitEntryList.writeEntries(out, state.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        int size = in.readInt();
+        states = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            K key = in.readObject();
+            states.put(key, in.readBoolean() ? new RateLimitEntryList(RateLimitEntryList.readEntries(in)) : null);
+        }
     }
 
 }
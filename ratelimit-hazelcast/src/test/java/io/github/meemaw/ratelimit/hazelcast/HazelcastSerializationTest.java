@@ -0,0 +1,154 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.spi.serialization.SerializationService;
+import com.hazelcast.spi.serialization.SerializationServiceSupport;
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.RateLimitEntryProcessor;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HazelcastSerializationTest {
+
+    private static final int INVOCATIONS = 20_000;
+
+    private HazelcastInstance hazelcastInstance;
+    private SerializationService serializationService;
+    private HazelcastStorage storage;
+    private List<RateLimitEntry> entries;
+
+    @Before
+    public void setup() {
+        hazelcastInstance = Hazelcast.newHazelcastInstance();
+        serializationService = ((SerializationServiceSupport) hazelcastInstance).getSerializationService();
+        storage = new HazelcastStorage(hazelcastInstance);
+
+        EntryBuilder builder = RateLimiting.entryBuilder().withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET);
+        entries = Arrays.asList(builder.withRefillPolicy(SimpleRefillPolicy.perSecond(1_000_000)).filled().build(),
+                builder.withRefillPolicy(SimpleRefillPolicy.perMinute(10_000_000)).filled().build(),
+                builder.withRefillPolicy(SimpleRefillPolicy.perHour(100_000_000)).filled().build());
+    }
+
+    @After
+    public void tearDown() {
+        hazelcastInstance.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void roundTripsThroughFactory() throws Exception {
+        RateLimitEntryList entryList = serializationService.toObject(
+                serializationService.toData(new RateLimitEntryList(entries)));
+        assertEquals(entries.size(), entryList.size());
+        assertEquals(entries.get(1).getTokenCount(), entryList.get(1).getTokenCount());
+        assertEquals(entries.get(1).getRefillPolicy(), entryList.get(1).getRefillPolicy());
+
+        HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> processor = serializationService.toObject(
+                serializationService.toData(newProcessor(3)));
+        HazelcastCommandResult<ConsumptionEntry> result =
+                (HazelcastCommandResult<ConsumptionEntry>) processor.process(
+                        new AbstractMap.SimpleEntry<>("user", new ArrayList<>(entries)));
+        assertEquals(entries.get(0).getTokenCount() - 3, result.getResult().getData().getRemainingTokens());
+
+        HazelcastCommandResult<ConsumptionEntry> copy = serializationService.toObject(
+                serializationService.toData(result));
+        assertTrue(copy.getResult().containsEntries());
+        assertTrue(copy.getResult().getData().doesConform());
+        assertEquals(result.getResult().getData().getRemainingTokens(), copy.getResult().getData().getRemainingTokens());
+    }
+
+    @Test
+    public void fallsBackToJavaSerializationForCustomPolicies() throws Exception {
+        List<RateLimitEntry> customEntries = Collections.singletonList(RateLimiting.entryBuilder()
+                .withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET).withRefillPolicy(new HalvingRefillPolicy(10))
+                .filled().build());
+        RateLimitEntryList entryList = serializationService.toObject(
+                serializationService.toData(new RateLimitEntryList(customEntries)));
+        assertEquals(HalvingRefillPolicy.class, entryList.get(0).getRefillPolicy().getClass());
+
+        SimpleBackupProcessor<String> backupProcessor = serializationService.toObject(serializationService.toData(
+                new SimpleBackupProcessor<>(Collections.singletonMap("user", customEntries))));
+        AbstractMap.SimpleEntry<String, List<RateLimitEntry>> backup = new AbstractMap.SimpleEntry<>("user", null);
+        backupProcessor.processBackup(backup);
+        assertEquals(HalvingRefillPolicy.class, backup.getValue().get(0).getRefillPolicy().getClass());
+    }
+
+    @Test
+    public void measuresBytesPerInvocationAndThroughput() throws Exception {
+        HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> processor = newProcessor(1);
+        HazelcastCommandResult<ConsumptionEntry> result =
+                new HazelcastCommandResult<>(StorageBackendCommandResult.success(ConsumptionEntry.conformant(5L)));
+        SimpleBackupProcessor<String> backupProcessor = new SimpleBackupProcessor<>(Collections.singletonMap("user", entries));
+
+        int nativeBytes = serializationService.toData(processor).totalSize()
+                + serializationService.toData(result).totalSize()
+                + serializationService.toData(backupProcessor).totalSize();
+        int javaBytes = javaSerializedSize(new RateLimitEntryProcessor<String, ConsumptionEntry>(new ConformRateLimits(1)))
+                + javaSerializedSize(result.getResult())
+                + javaSerializedSize(new ArrayList<>(entries));
+        System.out.printf("Bytes per invocation: %d native, %d java serialization%n", nativeBytes, javaBytes);
+        assertTrue(nativeBytes < javaBytes);
+
+        storage.storeEntries("user", entries).get();
+        for (int i = 0; i < INVOCATIONS / 10; i++) {
+            storage.conformsRateLimitsWithStatus("user", 1).get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < INVOCATIONS; i++) {
+            assertTrue(storage.conformsRateLimitsWithStatus("user", 1).get().getData().doesConform());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        System.out.printf("Embedded member: %.0f ops/sec%n", INVOCATIONS * 1e9 / elapsedNanos);
+    }
+
+    public static class HalvingRefillPolicy extends SimpleRefillPolicy {
+
+        public HalvingRefillPolicy() {
+        }
+
+        public HalvingRefillPolicy(int capacity) {
+            super(capacity, Duration.ofSeconds(1));
+        }
+
+        @Override
+        public int distributeNewTokens(Duration timeElapsed) {
+            return super.distributeNewTokens(timeElapsed) / 2;
+        }
+
+    }
+
+    private static HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> newProcessor(int requestWeight) {
+        return new HazelcastRateLimitEntryProcessor<>(new RateLimitEntryProcessor<>(new ConformRateLimits(requestWeight)));
+    }
+
+    private static int javaSerializedSize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.size();
+    }
+
+}
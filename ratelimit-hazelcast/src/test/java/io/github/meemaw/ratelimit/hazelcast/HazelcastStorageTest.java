@@ -0,0 +1,75 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.StorageBackendCommandResult;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HazelcastStorageTest {
+
+    @Test
+    public void executeAllAsyncDoesNotBlockCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        HazelcastStorage storage = new HazelcastStorage(instanceWithMap(release));
+        Set<String> keys = new HashSet<>(Collections.singletonList("u1"));
+
+        CompletableFuture<Map<String, StorageBackendCommandResult<ConsumptionEntry>>> future =
+                storage.executeAllAsync(keys, new ConformRateLimits(1));
+        assertFalse(future.isDone());
+
+        release.countDown();
+        assertFalse(future.get(5, TimeUnit.SECONDS).get("u1").containsEntries());
+    }
+
+    @Test
+    public void executeAllAsyncFailsWhenExecutorRejects() throws Exception {
+        HazelcastStorage storage = new HazelcastStorage(instanceWithMap(new CountDownLatch(0)), runnable -> {
+            throw new RejectedExecutionException();
+        });
+        try {
+            storage.executeAllAsync(Collections.singleton("u1"), new ConformRateLimits(1)).get();
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * Map whose executeOnKeys blocks until release, then reports every key as missing.
+     */
+    private static HazelcastInstance instanceWithMap(CountDownLatch release) {
+        IMap<?, ?> map = (IMap<?, ?>) Proxy.newProxyInstance(IMap.class.getClassLoader(), new Class<?>[]{IMap.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("executeOnKeys")) {
+                        release.await();
+                        return Collections.emptyMap();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return (HazelcastInstance) Proxy.newProxyInstance(HazelcastInstance.class.getClassLoader(),
+                new Class<?>[]{HazelcastInstance.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getMap")) {
+                        return map;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+}
@@ -0,0 +1,70 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import com.hazelcast.core.Offloadable;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.ReadOnly;
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.RateLimitEntryProcessor;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.GetEntries;
+import io.github.ratelimit.storage.command.GetUpdateEntries;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReadOnlyRateLimitEntryProcessorTest {
+
+    @Test
+    public void nonMutatingCommandsRunReadOnly() {
+        EntryProcessor<String, List<RateLimitEntry>> processor =
+                HazelcastRateLimitEntryProcessor.of(new RateLimitEntryProcessor<>(new GetEntries()));
+        assertTrue(processor instanceof ReadOnly);
+        assertTrue(processor instanceof Offloadable);
+        assertEquals(Offloadable.OFFLOADABLE_EXECUTOR, ((Offloadable) processor).getExecutorName());
+    }
+
+    @Test
+    public void mutatingCommandsRunOnPartitionThread() {
+        EntryProcessor<String, List<RateLimitEntry>> processor =
+                HazelcastRateLimitEntryProcessor.of(new RateLimitEntryProcessor<>(new ConformRateLimits(1)));
+        assertFalse(processor instanceof ReadOnly);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void readsEntriesWithoutWritingOrBackup() {
+        List<RateLimitEntry> entries = new ArrayList<>(Collections.singletonList(RateLimiting.entryBuilder()
+                .withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET)
+                .withRefillPolicy(SimpleRefillPolicy.perSecond(5)).filled().build()));
+        Map.Entry<String, List<RateLimitEntry>> mapEntry = new AbstractMap.SimpleEntry<>("user", entries);
+
+        EntryProcessor<String, List<RateLimitEntry>> processor =
+                HazelcastRateLimitEntryProcessor.of(new RateLimitEntryProcessor<>(new GetEntries()));
+        HazelcastCommandResult<List<RateLimitEntry>> result =
+                (HazelcastCommandResult<List<RateLimitEntry>>) processor.process(mapEntry);
+
+        assertTrue(result.getResult().containsEntries());
+        assertEquals(5L, result.getResult().getData().get(0).getTokenCount());
+        assertSame(entries, mapEntry.getValue());
+        assertNull(processor.getBackupProcessor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMutatingCommands() {
+        new ReadOnlyRateLimitEntryProcessor<>(new RateLimitEntryProcessor<String, List<RateLimitEntry>>(new GetUpdateEntries()));
+    }
+
+}
@@ -0,0 +1,204 @@
+package io.github.meemaw.ratelimit.hazelcast;
+
+import io.github.ratelimit.core.RateLimitAlgorithm;
+import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.RateLimiting;
+import io.github.ratelimit.core.impl.ConsumptionEntry;
+import io.github.ratelimit.core.impl.EntryBuilder;
+import io.github.ratelimit.core.impl.ManualTimeSource;
+import io.github.ratelimit.core.impl.PolicyTemplate;
+import io.github.ratelimit.core.impl.SimpleRefillPolicy;
+import io.github.ratelimit.storage.RateLimitEntryProcessor;
+import io.github.ratelimit.storage.codec.EntryCodec;
+import io.github.ratelimit.storage.command.ConformRateLimits;
+import io.github.ratelimit.storage.command.ConformRateLimitsOrInitialize;
+import io.github.ratelimit.storage.command.EntryStorageCommand;
+import io.github.ratelimit.storage.command.GetUpdateEntries;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayBackupProcessorTest {
+
+    private ManualTimeSource timeSource;
+    private byte[] primaryState;
+    private Map.Entry<String, List<RateLimitEntry>> primary;
+    private Map.Entry<String, List<RateLimitEntry>> backup;
+
+    @Before
+    public void setup() throws Exception {
+        timeSource = new ManualTimeSource();
+        EntryBuilder builder = RateLimiting.entryBuilder().withTimeSource(timeSource);
+        List<RateLimitEntry> entries = Arrays.asList(
+                builder.withAlgorithm(RateLimitAlgorithm.TOKEN_BUCKET)
+                        .withRefillPolicy(SimpleRefillPolicy.perSecond(10)).filled().build(),
+                builder.withAlgorithm(RateLimitAlgorithm.FIXED_WINDOW)
+                        .withRefillPolicy(SimpleRefillPolicy.perMinute(50)).filled().build(),
+                builder.withAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW)
+                        .withRefillPolicy(SimpleRefillPolicy.perHour(100)).filled().build());
+        primaryState = EntryCodec.encodeEntries(entries);
+        primary = new AbstractMap.SimpleEntry<>("user", EntryCodec.decodeEntries(primaryState));
+        backup = new AbstractMap.SimpleEntry<>("user", EntryCodec.decodeEntries(primaryState));
+    }
+
+    @Test
+    public void replayedConformsKeepBackupInSync() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            processOnPrimaryAndBackup(new ConformRateLimits(1 + i % 3));
+            timeSource.advance(Duration.ofMillis(37));
+        }
+        assertEquals(Arrays.toString(primaryState), Arrays.toString(EntryCodec.encodeEntries(backup.getValue())));
+    }
+
+    @Test
+    public void replayedUpdatesKeepBackupInSync() throws Exception {
+        processOnPrimaryAndBackup(new ConformRateLimits(5));
+        timeSource.advance(Duration.ofMillis(450));
+        processOnPrimaryAndBackup(new GetUpdateEntries());
+        assertEquals(Arrays.toString(primaryState), Arrays.toString(EntryCodec.encodeEntries(backup.getValue())));
+    }
+
+    @Test
+    public void replayedInitializationsKeepBackupInSync() throws Exception {
+        EntryStorageCommand<ConsumptionEntry> command = new ConformRateLimitsOrInitialize(2, new PolicyTemplate(
+                Arrays.asList(SimpleRefillPolicy.perSecond(10), SimpleRefillPolicy.perMinute(50)),
+                RateLimitAlgorithm.FIXED_WINDOW));
+        HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(command, timeSource));
+        Map.Entry<String, List<RateLimitEntry>> newPrimary = new AbstractMap.SimpleEntry<>("new", null);
+        Map.Entry<String, List<RateLimitEntry>> newBackup = new AbstractMap.SimpleEntry<>("new", null);
+
+        processor.process(newPrimary);
+        timeSource.advance(Duration.ofMillis(250));
+        processor.getBackupProcessor().processBackup(newBackup);
+        assertTrue(processor.getBackupProcessor() instanceof ReplayBackupProcessor);
+        assertEquals(Arrays.toString(EntryCodec.encodeEntries(newPrimary.getValue())),
+                Arrays.toString(EntryCodec.encodeEntries(newBackup.getValue())));
+    }
+
+    @Test
+    public void builtInCommandsAreReplayed() {
+        HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(new ConformRateLimits(1), timeSource));
+        processor.process(primary);
+        assertTrue(processor.getBackupProcessor() instanceof ReplayBackupProcessor);
+    }
+
+    @Test
+    public void rejectionsAreNotReplicated() {
+        HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(new ConformRateLimits(11), timeSource));
+        processor.process(primary);
+        assertNull(processor.getBackupProcessor());
+    }
+
+    @Test
+    public void customCommandsCopyState() {
+        EntryStorageCommand<Void> custom = new EntryStorageCommand<Void>() {
+            @Override
+            public Void execute(List<RateLimitEntry> entries, Instant currentTime) {
+                return null;
+            }
+
+            @Override
+            public boolean doesMutate() {
+                return true;
+            }
+        };
+        HazelcastRateLimitEntryProcessor<String, Void> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(custom, timeSource));
+        processor.process(primary);
+        assertTrue(processor.getBackupProcessor() instanceof SimpleBackupProcessor);
+    }
+
+    @Test
+    public void multiKeyOperationsReplayEveryKeyAtItsOwnTimestamp() throws Exception {
+        Map.Entry<String, List<RateLimitEntry>> drainedPrimary = new AbstractMap.SimpleEntry<>("drained",
+                EntryCodec.decodeEntries(primaryState));
+        new RateLimitEntryProcessor<String, ConsumptionEntry>(new ConformRateLimits(6), timeSource)
+                .process(new HazelcastMutableEntry<>(drainedPrimary), timeSource.now());
+        byte[] drainedState = EntryCodec.encodeEntries(drainedPrimary.getValue());
+        Map.Entry<String, List<RateLimitEntry>> secondPrimary = new AbstractMap.SimpleEntry<>("second",
+                EntryCodec.decodeEntries(primaryState));
+
+        HazelcastRateLimitEntryProcessor<String, ConsumptionEntry> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(new ConformRateLimits(6), timeSource));
+        processor.process(primary);
+        timeSource.advance(Duration.ofMillis(130));
+        processor.process(drainedPrimary);
+        timeSource.advance(Duration.ofMillis(170));
+        processor.process(secondPrimary);
+
+        Map.Entry<String, List<RateLimitEntry>> drainedBackup = new AbstractMap.SimpleEntry<>("drained",
+                EntryCodec.decodeEntries(drainedState));
+        Map.Entry<String, List<RateLimitEntry>> secondBackup = new AbstractMap.SimpleEntry<>("second",
+                EntryCodec.decodeEntries(primaryState));
+        for (Map.Entry<String, List<RateLimitEntry>> entry : Arrays.asList(backup, drainedBackup, secondBackup)) {
+            processor.getBackupProcessor().processBackup(entry);
+        }
+        assertEquals(Arrays.toString(EntryCodec.encodeEntries(primary.getValue())),
+                Arrays.toString(EntryCodec.encodeEntries(backup.getValue())));
+        assertEquals(Arrays.toString(drainedState), Arrays.toString(EntryCodec.encodeEntries(drainedBackup.getValue())));
+        assertEquals(Arrays.toString(EntryCodec.encodeEntries(secondPrimary.getValue())),
+                Arrays.toString(EntryCodec.encodeEntries(secondBackup.getValue())));
+    }
+
+    @Test
+    public void multiKeyOperationsCopyEveryKeysOwnState() throws Exception {
+        EntryStorageCommand<Void> custom = new EntryStorageCommand<Void>() {
+            @Override
+            public Void execute(List<RateLimitEntry> entries, Instant currentTime) {
+                entries.get(0).consumeInPlace(entries.get(0).getTokenCount() > 5 ? 5 : 1);
+                return null;
+            }
+
+            @Override
+            public boolean doesMutate() {
+                return true;
+            }
+        };
+        Map.Entry<String, List<RateLimitEntry>> secondPrimary = new AbstractMap.SimpleEntry<>("second",
+                EntryCodec.decodeEntries(primaryState));
+        HazelcastRateLimitEntryProcessor<String, Void> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(custom, timeSource));
+        processor.process(primary);
+        processor.process(primary);
+        processor.process(secondPrimary);
+
+        Map.Entry<String, List<RateLimitEntry>> secondBackup = new AbstractMap.SimpleEntry<>("second",
+                EntryCodec.decodeEntries(primaryState));
+        processor.getBackupProcessor().processBackup(backup);
+        processor.getBackupProcessor().processBackup(secondBackup);
+        assertEquals(Arrays.toString(EntryCodec.encodeEntries(primary.getValue())),
+                Arrays.toString(EntryCodec.encodeEntries(backup.getValue())));
+        assertEquals(Arrays.toString(EntryCodec.encodeEntries(secondPrimary.getValue())),
+                Arrays.toString(EntryCodec.encodeEntries(secondBackup.getValue())));
+    }
+
+    /**
+     * Like a member with BINARY in-memory format, the primary works on a deserialized copy which is only stored
+     * when the processor sets the value.
+     */
+    private <T> void processOnPrimaryAndBackup(EntryStorageCommand<T> command) throws Exception {
+        HazelcastRateLimitEntryProcessor<String, T> processor = new HazelcastRateLimitEntryProcessor<>(
+                new RateLimitEntryProcessor<>(command, timeSource));
+        Map.Entry<String, List<RateLimitEntry>> mapEntry =
+                new AbstractMap.SimpleEntry<>("user", EntryCodec.decodeEntries(primaryState));
+        processor.process(mapEntry);
+        if (processor.getBackupProcessor() != null) {
+            primaryState = EntryCodec.encodeEntries(mapEntry.getValue());
+            processor.getBackupProcessor().processBackup(backup);
+        }
+    }
+
+}
@@ -1,41 +1,81 @@
 package io.github.meemaw.ratelimit.jcache;
 
 import io.github.ratelimit.core.RateLimitEntry;
+import io.github.ratelimit.core.TimeSource;
+import io.github.ratelimit.core.impl.SystemTimeSource;
 import io.github.ratelimit.storage.RateLimitEntryProcessor;
 import io.github.ratelimit.storage.StorageBackend;
 import io.github.ratelimit.storage.command.EntryStorageCommand;
 import io.github.ratelimit.storage.command.StorageBackendCommandResult;
 
 import javax.cache.Cache;
+import javax.cache.processor.EntryProcessorResult;
 import java.io.Serializable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
 
 public class JCacheStorage<K extends Serializable> implements StorageBackend<K> {
 
     private final Cache<K, List<RateLimitEntry>> cache;
+    private final TimeSource timeSource;
 
     public JCacheStorage(Cache<K, List<RateLimitEntry>> cache) {
+        this(cache, SystemTimeSource.INSTANCE);
+    }
+
+    public JCacheStorage(Cache<K, List<RateLimitEntry>> cache, TimeSource timeSource) {
         this.cache = Objects.requireNonNull(cache);
+        this.timeSource = Objects.requireNonNull(timeSource);
     }
 
     private <T> StorageBackendCommandResult<T> execute(K key, EntryStorageCommand<T> command) {
-        RateLimitEntryProcessor<K, T> entryProcessor = new RateLimitEntryProcessor<>(command);
+        RateLimitEntryProcessor<K, T> entryProcessor = new RateLimitEntryProcessor<>(command, timeSource);
         return cache.invoke(key, entryProcessor);
     }
 
 
     @Override
-    public <T> Future<StorageBackendCommandResult<T>> executeAsync(K key, EntryStorageCommand<T> command) {
+    public <T> CompletableFuture<StorageBackendCommandResult<T>> executeAsync(K key, EntryStorageCommand<T> command) {
         return CompletableFuture.completedFuture(execute(key, command));
     }
 
+    /**
+     * Executes all keys with one invokeAll call.
+     */
+    @Override
+    public <T> CompletableFuture<Map<K, StorageBackendCommandResult<T>>> executeAllAsync(
+            Set<K> keys, EntryStorageCommand<T> command) {
+        CompletableFuture<Map<K, StorageBackendCommandResult<T>>> future = new CompletableFuture<>();
+        try {
+            Map<K, EntryProcessorResult<StorageBackendCommandResult<T>>> processorResults =
+                    cache.invokeAll(keys, new RateLimitEntryProcessor<>(command, timeSource));
+            Map<K, StorageBackendCommandResult<T>> results = new LinkedHashMap<>(keys.size() * 2);
+            for (K key : keys) {
+                EntryProcessorResult<StorageBackendCommandResult<T>> processorResult = processorResults.get(key);
+                results.put(key, processorResult != null ? processorResult.get()
+                        : StorageBackendCommandResult.entriesNotFound());
+            }
+            future.complete(results);
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
     @Override
-    public Future<Void> storeEntries(K key, List<RateLimitEntry> entries) {
+    public CompletableFuture<Void> storeEntries(K key, List<RateLimitEntry> entries) {
         cache.put(key, entries);
         return CompletableFuture.completedFuture(null);
 
     }
+
+    @Override
+    public CompletableFuture<Void> removeEntries(K key) {
+        cache.remove(key);
+        return CompletableFuture.completedFuture(null);
+    }
 }